@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to find JARs in the plugin's runtime classpath which are unreachable from the plugin's main class.
+ *
+ * <p>It walks references in constant pools of class files from {@code embulkPlugin.mainClass}, and from
+ * implementations in {@code META-INF/services/} of reachable service interfaces. Classes loaded only through
+ * reflection are invisible to it. List them in {@code roots}, or list their artifacts in {@code keeps}.
+ *
+ * <p>It only reports by default. Set {@code embulkPlugin.dropsUnreachableDependencies = true} to exclude
+ * unreachable JARs from the gem's {@code classpath/}, and from pom.xml.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code analyzeReachability {
+ *   roots = [ "org.example.LoadedByReflection", "org.example.reflective.*" ]  // "*" for a package and its sub-packages.
+ *   keeps = [ "com.example:needed-at-runtime" ]  // In "group:name".
+ * }}</pre>
+ */
+abstract class AnalyzeReachability extends DefaultTask {
+    @Inject
+    public AnalyzeReachability() {
+        super();
+
+        this.setGroup("verification");
+        this.setDescription("Finds JARs in the Embulk plugin's runtime classpath unreachable from its main class.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.mainClass = objectFactory.property(String.class);
+        this.roots = objectFactory.listProperty(String.class);
+        this.keeps = objectFactory.listProperty(String.class);
+        this.runtimeClasspath = null;
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/reachability.txt"));
+        this.getUnreachableDependenciesFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("embulk/unreachableDependencies.txt"));
+    }
+
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    /**
+     * A file listing unreachable dependencies line by line, in the same style as {@link VersionlessDependency#toString()}.
+     */
+    @OutputFile
+    abstract RegularFileProperty getUnreachableDependenciesFile();
+
+    @Input
+    public Property<String> getMainClass() {
+        return this.mainClass;
+    }
+
+    @Input
+    public ListProperty<String> getRoots() {
+        return this.roots;
+    }
+
+    @Input
+    public ListProperty<String> getKeeps() {
+        return this.keeps;
+    }
+
+    @TaskAction
+    public void analyze() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+
+        final ArrayList<String> rootsInternal = new ArrayList<>();
+        rootsInternal.add(toInternalName(this.mainClass.get()));
+        for (final String root : this.roots.getOrElse(Collections.emptyList())) {
+            rootsInternal.add(toInternalName(root));
+        }
+        final Set<String> keepsSet = new LinkedHashSet<>(this.keeps.getOrElse(Collections.emptyList()));
+
+        final HashMap<File, ResolvedArtifact> artifacts = new HashMap<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            artifacts.put(artifact.getFile(), artifact);
+        }
+
+        final long started = System.nanoTime();
+
+        final List<Path> jars = this.getClasspath().getFiles().stream()
+                .filter(File::isFile)
+                .map(File::toPath)
+                .collect(Collectors.toList());
+        final ReachabilityAnalysis analysis;
+        try {
+            analysis = ReachabilityAnalysis.analyze(jars, rootsInternal);
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex.getCause());
+        }
+
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+        logger.lifecycle("Analyzed reachability in {} JARs in {} ms.", jars.size(), elapsedMillis);
+
+        final ArrayList<String> unreachableDependencies = new ArrayList<>();
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                final Set<Path> unreachable = new LinkedHashSet<>(analysis.getUnreachableJars());
+                for (final Path jar : analysis.getJars()) {
+                    final ResolvedArtifact artifact = artifacts.get(jar.toFile());
+                    final String label = artifact == null ? jar.getFileName().toString() : artifact.getModuleVersion().getId().toString();
+                    final boolean kept = artifact != null && keepsSet.contains(groupAndName(artifact));
+                    final String mark;
+                    if (!unreachable.contains(jar)) {
+                        mark = "";
+                    } else if (kept || artifact == null) {
+                        mark = " [UNREACHABLE, KEPT]";
+                    } else {
+                        mark = " [UNREACHABLE]";
+                        unreachableDependencies.add(
+                                ProjectCoordinates.resolve(this.getProject(), artifact).toVersionlessDependency(artifact).toString());
+                        logger.warn("Unreachable from {}: {}", this.mainClass.get(), label);
+                    }
+                    writer.println(String.format(
+                            "%s: %d / %d classes reachable%s",
+                            label, analysis.getNumberOfReachableClasses(jar), analysis.getNumberOfClasses(jar), mark));
+                }
+            }
+
+            final Path unreachablePath = this.getUnreachableDependenciesFile().get().getAsFile().toPath();
+            Files.createDirectories(unreachablePath.getParent());
+            Files.write(unreachablePath, unreachableDependencies, StandardCharsets.UTF_8);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the result of reachability analysis: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle("{} JAR(s) unreachable from {}. See: {}", unreachableDependencies.size(), this.mainClass.get(), reportPath);
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    /**
+     * Reads a file written as {@link #getUnreachableDependenciesFile()}.
+     */
+    static Set<String> readUnreachableDependencies(final Path path) {
+        try {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(Files.readAllLines(path, StandardCharsets.UTF_8)));
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read the result of reachability analysis: " + path.toString(), ex);
+        }
+    }
+
+    /**
+     * Converts {@code "org.example.Foo"} to {@code "org/example/Foo"}, and {@code "org.example.*"} to {@code "org/example/"}.
+     */
+    static String toInternalName(final String name) {
+        if (name.endsWith(".*")) {
+            return name.substring(0, name.length() - 1).replace('.', '/');
+        }
+        return name.replace('.', '/');
+    }
+
+    private static String groupAndName(final ResolvedArtifact artifact) {
+        final ModuleVersionIdentifier id = artifact.getModuleVersion().getId();
+        return id.getGroup() + ":" + id.getName();
+    }
+
+    private final Property<String> mainClass;
+    private final ListProperty<String> roots;
+    private final ListProperty<String> keeps;
+
+    private Configuration runtimeClasspath;
+}
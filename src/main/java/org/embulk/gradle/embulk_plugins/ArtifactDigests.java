@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Digests of an artifact in all the algorithms of Maven repository checksums, computed in a single pass.
+ *
+ * <p>Sidecar checksum files are written next to the artifact in the same format as Maven repositories, such as
+ * {@code foo-1.0.jar.sha256} which contains only the digest in lowercase hexadecimal.
+ */
+final class ArtifactDigests {
+    private ArtifactDigests(final Map<String, String> digests) {
+        this.digests = Collections.unmodifiableMap(digests);
+    }
+
+    /**
+     * Reads a file only once to compute MD5, SHA-1, SHA-256, and SHA-512 at once.
+     */
+    static ArtifactDigests of(final Path file) throws IOException {
+        final MessageDigest[] messageDigests = new MessageDigest[ALGORITHMS.length];
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            try {
+                messageDigests[i] = MessageDigest.getInstance(ALGORITHMS[i]);
+            } catch (final NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ALGORITHMS[i] + " is unavailable unexpectedly.", ex);
+            }
+        }
+
+        final byte[] buffer = new byte[65536];
+        try (final InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                for (final MessageDigest messageDigest : messageDigests) {
+                    messageDigest.update(buffer, 0, read);
+                }
+            }
+        }
+
+        final LinkedHashMap<String, String> digests = new LinkedHashMap<>();
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            digests.put(EXTENSIONS[i], GenerateClasspathManifest.toHex(messageDigests[i].digest()));
+        }
+        return new ArtifactDigests(digests);
+    }
+
+    /**
+     * Returns sidecar file extensions, such as {@code "sha256"}, to digests in lowercase hexadecimal.
+     */
+    Map<String, String> getDigests() {
+        return this.digests;
+    }
+
+    /**
+     * Writes sidecar checksum files next to {@code artifact}.
+     *
+     * @return paths of the written sidecar files
+     */
+    List<Path> writeSidecars(final Path artifact) throws IOException {
+        final ArrayList<Path> sidecars = new ArrayList<>();
+        for (final Map.Entry<String, String> digest : this.digests.entrySet()) {
+            final Path sidecar = sidecarOf(artifact, digest.getKey());
+            Files.write(sidecar, digest.getValue().getBytes(StandardCharsets.US_ASCII));
+            sidecars.add(sidecar);
+        }
+        return Collections.unmodifiableList(sidecars);
+    }
+
+    static Path sidecarOf(final Path artifact, final String extension) {
+        return artifact.resolveSibling(artifact.getFileName().toString() + "." + extension);
+    }
+
+    static final String[] EXTENSIONS = { "md5", "sha1", "sha256", "sha512" };
+
+    private static final String[] ALGORITHMS = { "MD5", "SHA-1", "SHA-256", "SHA-512" };
+
+    private final Map<String, String> digests;
+}
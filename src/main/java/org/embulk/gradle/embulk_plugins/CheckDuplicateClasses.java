@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to find duplicate classes and split packages in the plugin's runtime classpath.
+ *
+ * <p>Embulk's {@code PluginClassLoader} loads the flattened first-level JARs in one class loader. A class
+ * duplicated in multiple JARs is loaded from whichever JAR comes first, and a package split across multiple JARs
+ * is often a sign of such conflicts.
+ *
+ * <p>It reads only the central directory of each JAR through memory-mapped I/O, in parallel.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code checkDuplicateClasses {
+ *   failOnDuplicateClasses = true  // Default = false
+ *   failOnSplitPackages = false  // Default = false
+ *   ignoredPrefixes = [ "org/apache/commons/logging/" ]  // In JAR entry style, separated with "/".
+ * }}</pre>
+ */
+abstract class CheckDuplicateClasses extends DefaultTask {
+    @Inject
+    public CheckDuplicateClasses() {
+        super();
+
+        this.setGroup("verification");
+        this.setDescription("Finds duplicate classes and split packages in the Embulk plugin's runtime classpath.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.failOnDuplicateClasses = objectFactory.property(Boolean.class);
+        this.failOnDuplicateClasses.set(false);
+        this.failOnSplitPackages = objectFactory.property(Boolean.class);
+        this.failOnSplitPackages.set(false);
+        this.ignoredPrefixes = objectFactory.listProperty(String.class);
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/duplicateClasses.txt"));
+    }
+
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public Property<Boolean> getFailOnDuplicateClasses() {
+        return this.failOnDuplicateClasses;
+    }
+
+    @Input
+    public Property<Boolean> getFailOnSplitPackages() {
+        return this.failOnSplitPackages;
+    }
+
+    @Input
+    public ListProperty<String> getIgnoredPrefixes() {
+        return this.ignoredPrefixes;
+    }
+
+    @TaskAction
+    public void check() {
+        final Logger logger = this.getProject().getLogger();
+
+        final long started = System.nanoTime();
+
+        final List<Path> jars = this.getClasspath().getFiles().stream()
+                .filter(File::isFile)
+                .map(File::toPath)
+                .collect(Collectors.toList());
+        final ClassIndex index;
+        try {
+            index = ClassIndex.build(jars, this.ignoredPrefixes.getOrElse(new ArrayList<>()));
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException(ex.getMessage(), ex.getCause());
+        }
+
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+        logger.lifecycle("Indexed {} classes in {} JARs in {} ms.", index.getNumberOfClasses(), jars.size(), elapsedMillis);
+
+        final Map<String, List<Path>> duplicateClasses = index.getDuplicateClasses();
+        final Map<String, List<Path>> splitPackages = index.getSplitPackages();
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final Map.Entry<String, List<Path>> duplicate : duplicateClasses.entrySet()) {
+                    writer.println("Duplicate class: " + duplicate.getKey() + " in " + fileNames(duplicate.getValue()));
+                }
+                for (final Map.Entry<String, List<Path>> split : splitPackages.entrySet()) {
+                    writer.println("Split package: " + split.getKey() + " in " + fileNames(split.getValue()));
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        for (final Map.Entry<String, List<Path>> duplicate : duplicateClasses.entrySet()) {
+            logger.warn("Duplicate class: {} in {}", duplicate.getKey(), fileNames(duplicate.getValue()));
+        }
+        for (final Map.Entry<String, List<Path>> split : splitPackages.entrySet()) {
+            logger.warn("Split package: {} in {}", split.getKey(), fileNames(split.getValue()));
+        }
+
+        final ArrayList<String> errors = new ArrayList<>();
+        if (this.failOnDuplicateClasses.getOrElse(false) && !duplicateClasses.isEmpty()) {
+            errors.add(duplicateClasses.size() + " duplicate class(es)");
+        }
+        if (this.failOnSplitPackages.getOrElse(false) && !splitPackages.isEmpty()) {
+            errors.add(splitPackages.size() + " split package(s)");
+        }
+        if (!errors.isEmpty()) {
+            throw new GradleException(
+                    "Found " + String.join(" and ", errors) + " in the runtime classpath. See: " + reportPath.toString());
+        }
+    }
+
+    /**
+     * An index from class names and package names to JAR files containing them.
+     */
+    static final class ClassIndex {
+        private ClassIndex(final Map<String, List<Path>> classes, final Map<String, List<Path>> packages) {
+            this.classes = classes;
+            this.packages = packages;
+        }
+
+        static ClassIndex build(final List<Path> jars, final List<String> ignoredPrefixes) {
+            // Reading central directories is I/O-bound and independent per JAR. Merging is done sequentially in
+            // the classpath order so that the result is deterministic.
+            final List<List<String>> classesPerJar = jars.parallelStream().map(jar -> {
+                try {
+                    final ArrayList<String> classNames = new ArrayList<>();
+                    for (final ZipCentralDirectory.Entry entry : ZipCentralDirectory.read(jar)) {
+                        final String name = entry.getName();
+                        if (isClassToIndex(name) && !isIgnored(name, ignoredPrefixes)) {
+                            classNames.add(name);
+                        }
+                    }
+                    return classNames;
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException("Failed to read the JAR in the runtime classpath: " + jar.toString(), ex);
+                }
+            }).collect(Collectors.toList());
+
+            final HashMap<String, List<Path>> classes = new HashMap<>();
+            final HashMap<String, List<Path>> packages = new HashMap<>();
+            for (int i = 0; i < jars.size(); i++) {
+                final Path jar = jars.get(i);
+                final LinkedHashSet<String> packagesInJar = new LinkedHashSet<>();
+                for (final String className : classesPerJar.get(i)) {
+                    classes.computeIfAbsent(className, key -> new ArrayList<>(1)).add(jar);
+                    final int lastSlash = className.lastIndexOf('/');
+                    packagesInJar.add(lastSlash < 0 ? "" : className.substring(0, lastSlash));
+                }
+                for (final String packageName : packagesInJar) {
+                    packages.computeIfAbsent(packageName, key -> new ArrayList<>(1)).add(jar);
+                }
+            }
+            return new ClassIndex(classes, packages);
+        }
+
+        int getNumberOfClasses() {
+            return this.classes.size();
+        }
+
+        /**
+         * Returns duplicate classes, whose keys are in JAR entry style such as {@code "org/example/Foo.class"}.
+         */
+        Map<String, List<Path>> getDuplicateClasses() {
+            return filterMultiple(this.classes);
+        }
+
+        /**
+         * Returns split packages, whose keys are in JAR entry style such as {@code "org/example"}.
+         */
+        Map<String, List<Path>> getSplitPackages() {
+            return filterMultiple(this.packages);
+        }
+
+        private static Map<String, List<Path>> filterMultiple(final Map<String, List<Path>> map) {
+            final TreeMap<String, List<Path>> filtered = new TreeMap<>();
+            for (final Map.Entry<String, List<Path>> entry : map.entrySet()) {
+                if (entry.getValue().size() > 1) {
+                    filtered.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return filtered;
+        }
+
+        private final Map<String, List<Path>> classes;
+        private final Map<String, List<Path>> packages;
+    }
+
+    private static boolean isClassToIndex(final String name) {
+        if (!name.endsWith(".class")) {
+            return false;
+        }
+        // Multi-release variants in "META-INF/versions/" are expected to duplicate. "module-info.class" is not a class.
+        if (name.startsWith("META-INF/") || name.endsWith("module-info.class")) {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isIgnored(final String name, final List<String> ignoredPrefixes) {
+        for (final String prefix : ignoredPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String fileNames(final List<Path> paths) {
+        return paths.stream().map(path -> path.getFileName().toString()).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private final Property<Boolean> failOnDuplicateClasses;
+    private final Property<Boolean> failOnSplitPackages;
+    private final ListProperty<String> ignoredPrefixes;
+}
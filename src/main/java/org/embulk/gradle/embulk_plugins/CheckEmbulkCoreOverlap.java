@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to report artifacts in the plugin's {@code runtimeClasspath} which Embulk core already provides.
+ *
+ * <p>Such artifacts are staged into the gem by {@code gem}, but never loaded because Embulk core loads them
+ * parent-first. Set {@code embulkPlugin.providesEmbulkCoreArtifacts = true} to move them to {@code provided}
+ * in pom.xml, and to exclude them from the gem.
+ */
+abstract class CheckEmbulkCoreOverlap extends DefaultTask {
+    @Inject
+    public CheckEmbulkCoreOverlap() {
+        super();
+
+        this.setGroup("verification");
+        this.setDescription("Reports artifacts in the Embulk plugin's runtime classpath which Embulk core already provides.");
+
+        this.getOutputs().upToDateWhen(task -> {
+            return false;
+        });
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+        this.embulkCoreArtifacts = objectFactory.listProperty(String.class);
+        this.runtimeClasspath = null;
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/embulkCoreOverlap.txt"));
+    }
+
+    @Internal
+    public ListProperty<String> getEmbulkCoreArtifacts() {
+        return this.embulkCoreArtifacts;
+    }
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public void check() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+
+        final EmbulkCoreArtifacts core = EmbulkCoreArtifacts.of(this.embulkCoreArtifacts.get());
+        final List<ResolvedArtifact> overlapping =
+                core.filterOverlapping(this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts());
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        long totalBytes = 0;
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final ResolvedArtifact artifact : overlapping) {
+                    final long bytes = artifact.getFile().length();
+                    totalBytes += bytes;
+                    final String line = String.format(
+                            "%s (%s, %d bytes)", artifact.getModuleVersion().getId(), artifact.getFile().getName(), bytes);
+                    writer.println(line);
+                    logger.warn("Overlapping with Embulk core: {}", line);
+                }
+                writer.println(String.format("Total: %d artifact(s), %d bytes", overlapping.size(), totalBytes));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        if (overlapping.isEmpty()) {
+            logger.lifecycle("No artifacts overlapping with Embulk core.");
+        } else {
+            logger.lifecycle(
+                    "{} artifact(s), {} bytes in total, overlap with Embulk core. See: {}",
+                    overlapping.size(), totalBytes, reportPath);
+        }
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    private final ListProperty<String> embulkCoreArtifacts;
+
+    private Configuration runtimeClasspath;
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Extracts names of classes referenced from a class file, by scanning its constant pool.
+ *
+ * <p>It collects {@code CONSTANT_Class} entries, and class names in descriptors and signatures found in
+ * {@code CONSTANT_Utf8} entries, such as {@code "(Lorg/example/Foo;)V"}. It is conservative: a string constant
+ * which happens to look like a descriptor is counted as a reference. References through reflection or
+ * {@link java.util.ServiceLoader} are invisible here.
+ *
+ * <p>Class names are in the internal form, such as {@code "org/example/Foo"}.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html#jvms-4.4">JVMS 4.4. The Constant Pool</a>
+ */
+final class ClassReferences {
+    private ClassReferences() {
+        // No instantiation.
+    }
+
+    static Set<String> read(final byte[] classFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xcafebabe) {
+            throw new IOException("Not a class file.");
+        }
+        in.readUnsignedShort();  // minor_version
+        in.readUnsignedShort();  // major_version
+
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8s = new String[constantPoolCount];
+        final int[] classNameIndices = new int[constantPoolCount];
+        int numberOfClasses = 0;
+
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:  // CONSTANT_Utf8
+                    utf8s[i] = in.readUTF();  // The class file format uses the same "modified UTF-8" as DataInput.
+                    break;
+                case 7:  // CONSTANT_Class
+                    classNameIndices[numberOfClasses++] = in.readUnsignedShort();
+                    break;
+                case 8:  // CONSTANT_String
+                case 16:  // CONSTANT_MethodType
+                case 19:  // CONSTANT_Module
+                case 20:  // CONSTANT_Package
+                    in.readUnsignedShort();
+                    break;
+                case 15:  // CONSTANT_MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3:  // CONSTANT_Integer
+                case 4:  // CONSTANT_Float
+                case 9:  // CONSTANT_Fieldref
+                case 10:  // CONSTANT_Methodref
+                case 11:  // CONSTANT_InterfaceMethodref
+                case 12:  // CONSTANT_NameAndType
+                case 17:  // CONSTANT_Dynamic
+                case 18:  // CONSTANT_InvokeDynamic
+                    in.readInt();
+                    break;
+                case 5:  // CONSTANT_Long
+                case 6:  // CONSTANT_Double
+                    in.readLong();
+                    i++;  // 8-byte constants take up two entries.
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        final LinkedHashSet<String> references = new LinkedHashSet<>();
+        for (int i = 0; i < numberOfClasses; i++) {
+            final String name = utf8s[classNameIndices[i]];
+            if (name == null) {
+                continue;
+            }
+            if (name.startsWith("[")) {
+                addFromDescriptor(name, references);
+            } else {
+                references.add(name);
+            }
+        }
+        for (final String utf8 : utf8s) {
+            if (utf8 != null) {
+                addFromDescriptor(utf8, references);
+            }
+        }
+        return Collections.unmodifiableSet(references);
+    }
+
+    /**
+     * Adds class names in a descriptor or a signature, such as {@code "Ljava/util/List<Lorg/example/Foo;>;"}.
+     */
+    static void addFromDescriptor(final String descriptor, final Set<String> references) {
+        final int length = descriptor.length();
+        int i = descriptor.indexOf('L');
+        while (i >= 0 && i < length) {
+            final int start = i + 1;
+            int end = start;
+            while (end < length && isClassNameChar(descriptor.charAt(end))) {
+                end++;
+            }
+            if (end > start && end < length && (descriptor.charAt(end) == ';' || descriptor.charAt(end) == '<')) {
+                references.add(descriptor.substring(start, end));
+            }
+            i = descriptor.indexOf('L', Math.max(end, start));
+        }
+    }
+
+    private static boolean isClassNameChar(final char c) {
+        // JVMS 4.2.1: Binary class names. '.', ';', '[', '<', '>' and ':' are not allowed in the internal form.
+        return c != ';' && c != '<' && c != '>' && c != '.' && c != '[' && c != ':' && c != '(' && c != ')' && !Character.isWhitespace(c);
+    }
+}
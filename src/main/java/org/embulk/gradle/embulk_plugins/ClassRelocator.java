@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relocates packages in class files, entry names, and service files, by rewriting their package prefixes.
+ *
+ * <p>In a class file, it rewrites {@code CONSTANT_Utf8} entries in the constant pool, which contain all class names,
+ * descriptors, and signatures, such as {@code "org/example/Foo"} and {@code "(Lorg/example/Foo;)V"}. It also rewrites
+ * dotted names such as {@code "org.example.Foo"} in them, which are typically for {@link Class#forName}. The rest of
+ * the class file refers constants only by indices, then it is copied as-is.
+ *
+ * <p>It is conservative: any string constant which contains a prefix at the start of a name is rewritten. Prefixes
+ * should be specific enough.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se21/html/jvms-4.html#jvms-4.4">JVMS 4.4. The Constant Pool</a>
+ */
+final class ClassRelocator {
+    private ClassRelocator(final List<String[]> prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Creates a relocator from package prefixes in the dotted form, such as {@code "com.google.common"}.
+     */
+    static ClassRelocator of(final Map<String, String> relocations) {
+        final ArrayList<String[]> prefixes = new ArrayList<>();
+        for (final Map.Entry<String, String> relocation : relocations.entrySet()) {
+            final String from = trimDot(relocation.getKey());
+            final String to = trimDot(relocation.getValue());
+            prefixes.add(new String[] { from.replace('.', '/') + "/", to.replace('.', '/') + "/" });
+            prefixes.add(new String[] { from + ".", to + "." });
+        }
+        // The longest prefix wins.
+        prefixes.sort((a, b) -> Integer.compare(b[0].length(), a[0].length()));
+        return new ClassRelocator(Collections.unmodifiableList(prefixes));
+    }
+
+    boolean isEmpty() {
+        return this.prefixes.isEmpty();
+    }
+
+    /**
+     * Rewrites prefixes in a string in a single pass, so that a relocated name is never relocated again.
+     */
+    String relocate(final String value) {
+        if (this.prefixes.isEmpty()) {
+            return value;
+        }
+        StringBuilder builder = null;
+        int copied = 0;
+        int i = 0;
+        while (i < value.length()) {
+            String[] matched = null;
+            for (final String[] prefix : this.prefixes) {
+                if (value.startsWith(prefix[0], i) && isNameStart(value, i, prefix[0].endsWith("/"))) {
+                    matched = prefix;
+                    break;
+                }
+            }
+            if (matched == null) {
+                i++;
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(value.length() + 32);
+            }
+            builder.append(value, copied, i).append(matched[1]);
+            i += matched[0].length();
+            copied = i;
+        }
+        if (builder == null) {
+            return value;
+        }
+        return builder.append(value, copied, value.length()).toString();
+    }
+
+    byte[] relocateClass(final byte[] classFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(classFile.length + 256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        final int magic = in.readInt();
+        if (magic != 0xcafebabe) {
+            throw new IOException("Not a class file.");
+        }
+        out.writeInt(magic);
+        out.writeShort(in.readUnsignedShort());  // minor_version
+        out.writeShort(in.readUnsignedShort());  // major_version
+
+        final int constantPoolCount = in.readUnsignedShort();
+        out.writeShort(constantPoolCount);
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            out.writeByte(tag);
+            switch (tag) {
+                case 1:  // CONSTANT_Utf8
+                    out.writeUTF(this.relocate(in.readUTF()));
+                    break;
+                case 7:  // CONSTANT_Class
+                case 8:  // CONSTANT_String
+                case 16:  // CONSTANT_MethodType
+                case 19:  // CONSTANT_Module
+                case 20:  // CONSTANT_Package
+                    out.writeShort(in.readUnsignedShort());
+                    break;
+                case 15:  // CONSTANT_MethodHandle
+                    out.writeByte(in.readUnsignedByte());
+                    out.writeShort(in.readUnsignedShort());
+                    break;
+                case 3:  // CONSTANT_Integer
+                case 4:  // CONSTANT_Float
+                case 9:  // CONSTANT_Fieldref
+                case 10:  // CONSTANT_Methodref
+                case 11:  // CONSTANT_InterfaceMethodref
+                case 12:  // CONSTANT_NameAndType
+                case 17:  // CONSTANT_Dynamic
+                case 18:  // CONSTANT_InvokeDynamic
+                    out.writeInt(in.readInt());
+                    break;
+                case 5:  // CONSTANT_Long
+                case 6:  // CONSTANT_Double
+                    out.writeLong(in.readLong());
+                    i++;  // 8-byte constants take up two entries.
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        // Everything after the constant pool refers to constants by indices.
+        final int offset = classFile.length - in.available();
+        out.write(classFile, offset, classFile.length - offset);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns true if a name can start at the index, not in the middle of another name such as {@code "xcom.google"}.
+     */
+    private static boolean isNameStart(final String value, final int index, final boolean internalForm) {
+        if (index == 0) {
+            return true;
+        }
+        final char previous = value.charAt(index - 1);
+        if (internalForm && previous == 'L') {
+            return true;  // In a descriptor, such as "(ILcom/google/Foo;)V".
+        }
+        return previous != '.' && previous != '/' && !Character.isJavaIdentifierPart(previous);
+    }
+
+    private static String trimDot(final String name) {
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private final List<String[]> prefixes;
+}
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 
@@ -54,6 +55,7 @@ final class DependenciesNodeManipulator implements AutoCloseable {
         this.nodeMap = Collections.unmodifiableMap(nodeMap);
         this.dependencyManagementsToRemove = new ArrayList<>();
         this.providedDependenciesToInsert = new LinkedHashMap<>();
+        this.existingDependenciesToRemove = new LinkedHashMap<>();
         this.existingDependenciesToModify = new LinkedHashMap<>();
         this.compileRuntimeDependenciesToAppend = new LinkedHashMap<>();
         this.remainingDependenciesToOverride = new LinkedHashMap<>();
@@ -131,14 +133,32 @@ final class DependenciesNodeManipulator implements AutoCloseable {
     }
 
     /**
-     * Insert a new {@code <dependency>} node at the top, or update an existing {@code <dependency>}.
+     * Insert a new {@code <dependency>} node at the top.
+     *
+     * <p>If the dependency already exists with another scope, for example, when a runtime dependency is to be provided
+     * by Embulk core, the existing {@code <dependency>} node is removed.
      */
     Node insertProvidedDependency(final ScopedDependency dependency) {
+        final Node found = this.nodeMap.get(dependency.getVersionlessDependency());
+        if (found != null) {
+            this.existingDependenciesToRemove.put(dependency.getVersionlessDependency(), found);
+        }
         final Node node = newDependencyNode(dependency);
         this.providedDependenciesToInsert.put(dependency, node);
         return node;
     }
 
+    /**
+     * Remove existing {@code <dependency>} nodes matching {@code toBeRemoved}, for example, unreachable from the plugin.
+     */
+    void removeDependencies(final Predicate<VersionlessDependency> toBeRemoved) {
+        for (final Map.Entry<VersionlessDependency, Node> entry : this.nodeMap.entrySet()) {
+            if (toBeRemoved.test(entry.getKey())) {
+                this.existingDependenciesToRemove.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Append a new {@code <dependency>} node at the bottom, or update an existing {@code <dependency>}.
      */
@@ -166,7 +186,8 @@ final class DependenciesNodeManipulator implements AutoCloseable {
         }
 
         this.nodeMap.entrySet().stream().filter(entry -> {
-            return !modifiedDependencies.containsKey(entry.getKey());
+            return !modifiedDependencies.containsKey(entry.getKey())
+                    && !this.existingDependenciesToRemove.containsKey(entry.getKey());
         }).forEach(entry -> {
             this.remainingDependenciesToOverride.put(entry.getKey(), entry.getValue());
         });
@@ -221,6 +242,11 @@ final class DependenciesNodeManipulator implements AutoCloseable {
 
             this.logger.lifecycle("<dependencies> is going to be updated:");
 
+            for (final Map.Entry<VersionlessDependency, Node> entry : this.existingDependenciesToRemove.entrySet()) {
+                this.logger.lifecycle("    => [REMOVE] {}", entry.getKey());
+                this.dependencies.remove(entry.getValue());
+            }
+
             this.insertProvidedDependencies();
 
             for (final Map.Entry<ScopedDependency, Node> entry : existingDependenciesToModify.entrySet()) {
@@ -619,6 +645,7 @@ final class DependenciesNodeManipulator implements AutoCloseable {
     // Operations reserved to be committed into the target XML node.
     private final ArrayList<Node> dependencyManagementsToRemove;
     private final LinkedHashMap<ScopedDependency, Node> providedDependenciesToInsert;  // key: logging, value: node to add
+    private final LinkedHashMap<VersionlessDependency, Node> existingDependenciesToRemove;  // key: logging, value: node to remove
     private final LinkedHashMap<ScopedDependency, Node> existingDependenciesToModify;  // key: prospect, value: node to modify
     private final LinkedHashMap<ScopedDependency, Node> compileRuntimeDependenciesToAppend;  // key: logging, value: node to add
     private final LinkedHashMap<VersionlessDependency, Node> remainingDependenciesToOverride;  // key: logging, value: node to modify
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+
+/**
+ * Finds which dependency path pulls each artifact into a resolved configuration, such as {@code runtimeClasspath}.
+ */
+final class DependencyPaths {
+    private DependencyPaths() {
+        // No instantiation.
+    }
+
+    /**
+     * Returns file names of artifacts in {@code configuration} to their shortest dependency paths from the project.
+     *
+     * <p>A path is rendered from the artifact to a direct dependency, such as
+     * {@code "org.example:bar:1.0 <- org.example:foo:2.0"} where {@code foo} is declared in the project.
+     */
+    static Map<String, String> attributeFileNames(final Configuration configuration) {
+        final ResolvedComponentResult root = configuration.getIncoming().getResolutionResult().getRoot();
+        final Map<ResolvedComponentResult, List<ResolvedComponentResult>> paths = shortestPaths(root, component -> {
+            final ArrayList<ResolvedComponentResult> children = new ArrayList<>();
+            for (final DependencyResult dependency : component.getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult) {
+                    children.add(((ResolvedDependencyResult) dependency).getSelected());
+                }
+            }
+            return children;
+        });
+
+        final HashMap<ComponentIdentifier, String> rendered = new HashMap<>();
+        for (final Map.Entry<ResolvedComponentResult, List<ResolvedComponentResult>> path : paths.entrySet()) {
+            final ArrayList<String> names = new ArrayList<>();
+            for (final ResolvedComponentResult component : path.getValue()) {
+                names.add(component.getId().getDisplayName());
+            }
+            Collections.reverse(names);
+            rendered.put(path.getKey().getId(), String.join(" <- ", names));
+        }
+
+        final LinkedHashMap<String, String> attributed = new LinkedHashMap<>();
+        for (final ResolvedArtifact artifact : configuration.getResolvedConfiguration().getResolvedArtifacts()) {
+            final String path = rendered.get(artifact.getId().getComponentIdentifier());
+            if (path != null) {
+                attributed.putIfAbsent(artifact.getFile().getName(), path);
+            }
+        }
+        return Collections.unmodifiableMap(attributed);
+    }
+
+    /**
+     * Returns nodes reachable from {@code root} to their shortest paths, from a child of {@code root} to the node.
+     *
+     * <p>The first path found in the breadth-first order wins among paths of the same length.
+     */
+    static <T> Map<T, List<T>> shortestPaths(final T root, final Function<T, ? extends Iterable<T>> children) {
+        final LinkedHashMap<T, List<T>> paths = new LinkedHashMap<>();
+        final ArrayDeque<T> queue = new ArrayDeque<>();
+        paths.put(root, Collections.<T>emptyList());
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            final T node = queue.poll();
+            final List<T> path = paths.get(node);
+            for (final T child : children.apply(node)) {
+                if (paths.containsKey(child)) {
+                    continue;
+                }
+                final ArrayList<T> childPath = new ArrayList<>(path);
+                childPath.add(child);
+                paths.put(child, Collections.unmodifiableList(childPath));
+                queue.add(child);
+            }
+        }
+        paths.remove(root);
+        return paths;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+/**
+ * A Gradle task to sync changes in the plugin into the plugin installed by {@code embulkInstallLocal}, for continuous
+ * builds such as {@code ./gradlew -t embulkDevSync}.
+ *
+ * <p>It takes the same classes and resources as the {@code jar} task, and only changed ones are updated as entries in
+ * the installed plugin JAR, without building the main JAR, the gem, and {@code pom.xml}. Only changed JARs in the
+ * runtime classpath are installed again.
+ *
+ * <p>The installed plugin JAR is rewritten into another file, and then replaced, so that a hard link to the main JAR
+ * is not modified. Entries removed from the installed JAR are only the ones removed since the last sync. Changes in
+ * dependencies, such as adding a new dependency, need {@code embulkInstallLocal} to update {@code pom.xml}.
+ *
+ * <p>The latency from the latest modification in the source files to the end of the sync is reported at
+ * {@code build/reports/embulk/devSync.txt}.
+ */
+abstract class DevSync extends DefaultTask {
+    @Inject
+    public DevSync() {
+        super();
+
+        this.setDescription("Syncs changed classes, resources, and dependencies into the plugin installed by \"embulkInstallLocal\".");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.groupId = objectFactory.property(String.class);
+        this.artifactId = objectFactory.property(String.class);
+        this.version = objectFactory.property(String.class);
+        this.runtimeClasspath = null;
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/devSync.txt"));
+    }
+
+    /**
+     * Returns directories of classes and resources, whose relative paths are entry names in the plugin JAR.
+     */
+    @Incremental
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @InputFiles
+    abstract ConfigurableFileCollection getClasses();
+
+    @Incremental
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    // Only to find the time of the latest modification.
+    @Internal
+    abstract ConfigurableFileCollection getSources();
+
+    // The repository is shared with other builds. It is not tracked as an output.
+    @Internal
+    abstract DirectoryProperty getRepositoryDirectory();
+
+    // An incremental task needs an output.
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public Property<String> getGroupId() {
+        return this.groupId;
+    }
+
+    @Input
+    public Property<String> getArtifactId() {
+        return this.artifactId;
+    }
+
+    @Input
+    public Property<String> getVersion() {
+        return this.version;
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    @TaskAction
+    public void sync(final InputChanges inputChanges) {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+        final Path repository = this.getRepositoryDirectory().get().getAsFile().toPath();
+        final Path installedJar = repository.resolve(
+                InstallLocal.m2Path(this.groupId.get(), this.artifactId.get(), this.version.get(), null, "jar"));
+        if (!Files.isRegularFile(installedJar)) {
+            throw new GradleException("The plugin is not installed at: " + installedJar.toString() + ". Run \"embulkInstallLocal\" first.");
+        }
+
+        // Entry names to files, or null to remove.
+        final LinkedHashMap<String, Path> entries = new LinkedHashMap<>();
+        for (final FileChange change : inputChanges.getFileChanges(this.getClasses())) {
+            if (change.getFileType() == FileType.DIRECTORY) {
+                continue;
+            }
+            entries.put(change.getNormalizedPath(), change.getChangeType() == ChangeType.REMOVED ? null : change.getFile().toPath());
+        }
+
+        final HashMap<File, String> m2Paths = new HashMap<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            m2Paths.put(artifact.getFile(), InstallLocal.m2PathOf(this.getProject(), artifact));
+        }
+        int installedJars = 0;
+        int dependencyChanges = 0;
+        try {
+            for (final FileChange change : inputChanges.getFileChanges(this.getClasspath())) {
+                if (change.getFileType() == FileType.DIRECTORY) {
+                    continue;
+                }
+                if (change.getChangeType() == ChangeType.REMOVED) {
+                    dependencyChanges++;
+                    continue;
+                }
+                final String m2Path = m2Paths.get(change.getFile());
+                if (m2Path == null) {
+                    continue;  // Not in pom.xml, such as file dependencies.
+                }
+                if (inputChanges.isIncremental() && change.getChangeType() == ChangeType.ADDED) {
+                    dependencyChanges++;
+                }
+                if (InstallLocal.install(change.getFile().toPath(), repository.resolve(m2Path))) {
+                    installedJars++;
+                }
+            }
+            if (!entries.isEmpty()) {
+                update(installedJar, entries);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to sync the plugin installed at: " + installedJar.toString(), ex);
+        }
+
+        long latestModified = 0L;
+        for (final File source : this.getSources().getAsFileTree().getFiles()) {
+            latestModified = Math.max(latestModified, source.lastModified());
+        }
+        final long latency = System.currentTimeMillis() - latestModified;
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final Map.Entry<String, Path> entry : entries.entrySet()) {
+                    writer.println((entry.getValue() == null ? "- " : "~ ") + entry.getKey());
+                }
+                writer.println(String.format("Synced %d entries and %d JAR(s) into %s, %d ms after the latest change in sources",
+                                             entries.size(), installedJars, installedJar, latency));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        if (dependencyChanges > 0) {
+            logger.warn("Dependencies have been added or removed. Run \"embulkInstallLocal\" to update pom.xml.");
+        }
+        logger.lifecycle("Synced {} entries and {} JAR(s), {} ms after the latest change in sources. See: {}",
+                         entries.size(), installedJars, latency, reportPath);
+    }
+
+    /**
+     * Updates entries in a JAR file, and replaces the JAR file with the updated one.
+     *
+     * <p>The JAR file is replaced by another file, not rewritten in place, even if it is a hard link.
+     *
+     * @param entries  entry names to files to add or replace, or {@code null} to remove
+     */
+    static void update(final Path jar, final Map<String, Path> entries) throws IOException {
+        final Path updating = jar.resolveSibling(jar.getFileName().toString() + ".syncing");
+        Files.copy(jar, updating, StandardCopyOption.REPLACE_EXISTING);
+
+        // The ZIP file system copies unchanged entries as they are without recompression.
+        try (final FileSystem zip = FileSystems.newFileSystem(updating, (ClassLoader) null)) {
+            for (final Map.Entry<String, Path> entry : entries.entrySet()) {
+                final Path path = zip.getPath(entry.getKey());
+                if (entry.getValue() == null) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                Files.copy(entry.getValue(), path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(updating, jar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private final Property<String> groupId;
+    private final Property<String> artifactId;
+    private final Property<String> version;
+
+    private Configuration runtimeClasspath;
+}
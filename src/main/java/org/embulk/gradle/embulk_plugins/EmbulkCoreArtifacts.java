@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+
+/**
+ * A set of artifacts which Embulk core provides by itself, and loads parent-first for plugins.
+ *
+ * <p>A plugin does not need to ship them in its gem, or to declare them other than {@code provided} in its pom.xml.
+ */
+final class EmbulkCoreArtifacts {
+    private EmbulkCoreArtifacts(final Set<String> groupAndNames) {
+        this.groupAndNames = Collections.unmodifiableSet(groupAndNames);
+    }
+
+    /**
+     * Creates an instance from a list of {@code "group:name"}.
+     */
+    static EmbulkCoreArtifacts of(final List<String> groupAndNames) {
+        return new EmbulkCoreArtifacts(new HashSet<>(groupAndNames));
+    }
+
+    boolean contains(final VersionlessDependency dependency) {
+        return this.groupAndNames.contains(dependency.getGroup() + ":" + dependency.getArtifactName());
+    }
+
+    boolean contains(final ResolvedArtifact artifact) {
+        final ModuleVersionIdentifier id = artifact.getModuleVersion().getId();
+        return this.groupAndNames.contains(id.getGroup() + ":" + id.getName());
+    }
+
+    /**
+     * Returns artifacts overlapping with Embulk core in the order of {@code artifacts}.
+     */
+    List<ResolvedArtifact> filterOverlapping(final Set<ResolvedArtifact> artifacts) {
+        final ArrayList<ResolvedArtifact> overlapping = new ArrayList<>();
+        for (final ResolvedArtifact artifact : artifacts) {
+            if (this.contains(artifact)) {
+                overlapping.add(artifact);
+            }
+        }
+        return Collections.unmodifiableList(overlapping);
+    }
+
+    /**
+     * Returns files of artifacts overlapping with Embulk core.
+     */
+    Set<File> filterOverlappingFiles(final Set<ResolvedArtifact> artifacts) {
+        final HashSet<File> files = new HashSet<>();
+        for (final ResolvedArtifact artifact : this.filterOverlapping(artifacts)) {
+            files.add(artifact.getFile());
+        }
+        return Collections.unmodifiableSet(files);
+    }
+
+    private final Set<String> groupAndNames;
+}
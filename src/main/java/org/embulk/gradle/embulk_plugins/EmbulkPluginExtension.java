@@ -26,8 +26,10 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 
 /**
@@ -39,7 +41,56 @@ import org.gradle.api.provider.Property;
  *     mainClass = "org.embulk.input.example.ExampleInputPlugin"
  *     category = "input"
  *     type = "example"
- *     // mainJar = "shadowJar"  -- Experimental: It may not work.
+ *     // mainJar = "shadowJar"  -- Experimental: It may not work. Use "shadesDependencies" below instead.
+ *
+ *     // Artifacts provided by Embulk core, and loaded parent-first. (Default: embulk-api, embulk-spi, msgpack-core, slf4j-api)
+ *     // embulkCoreArtifacts = [ "org.embulk:embulk-api", "org.embulk:embulk-spi", "org.msgpack:msgpack-core", "org.slf4j:slf4j-api" ]
+ *
+ *     // If true, the artifacts above are "provided" in pom.xml, and excluded from the gem. (Default: false)
+ *     // providesEmbulkCoreArtifacts = true
+ *
+ *     // If true, JARs unreachable from mainClass by "analyzeReachability" are excluded from pom.xml and the gem. (Default: false)
+ *     // dropsUnreachableDependencies = true
+ *
+ *     // If true, an index of packages in runtime JARs is embedded in the main JAR. (Default: false)
+ *     // embedsClasspathIndex = true
+ *
+ *     // If true, runtime JARs are listed with their sizes and SHA-256 digests in the main JAR's manifest. (Default: false)
+ *     // listsClasspathInManifest = true
+ *
+ *     // Class names loaded at startup, one per line, or a log of "-Xlog:class+load". Entries in the main JAR are reordered by it.
+ *     // classLoadTrace = file("classload.txt")
+ *
+ *     // Multi-release JARs are staged in the gem only with variants for the Java version through "pruneMultiReleaseJars". (Default: unset)
+ *     // targetJavaVersion = 11
+ *
+ *     // If true, JARs are staged in the gem through "slimClasspath" without signatures and redundant META-INF. (Default: false)
+ *     // slimsClasspath = true
+ *
+ *     // If true, small JARs are merged into one JAR through "mergeClasspath" to be staged in the gem. (Default: false)
+ *     // mergesSmallJars = true
+ *
+ *     // If true, the gem contains "instrumentedJar" with timing probes on Embulk SPI calls instead of the main JAR. (Default: false)
+ *     // instrumentsGem = true
+ *
+ *     // If true, dependencies are shaded into the main JAR, and removed from pom.xml and the gem. (Default: false)
+ *     // shadesDependencies = true
+ *
+ *     // Packages to relocate in the shaded main JAR. (Default: empty)
+ *     // relocations = [ "com.google.common": "org.embulk.input.example.shaded.com.google.common" ]
+ *
+ *     // If true, classes in dependencies unreachable from the plugin's classes are not shaded. (Default: false)
+ *     // minimizesShadedJar = true
+ *
+ *     // If true, the gem contains only the plugin JAR, and "classpath.lock" of dependencies to be resolved at installation. (Default: false)
+ *     // buildsThinGem = true
+ *
+ *     // If true, JARs are staged in the gem from a content-addressed store in the Gradle user home by hard links. (Default: false)
+ *     // usesJarStore = true
+ *     // jarStoreMaxBytes = 4L * 1024 * 1024 * 1024  // Least-recently-used JARs are evicted beyond it. (Default: 2 GiB)
+ *
+ *     // If true, MD5, SHA-1, SHA-256, and SHA-512 sidecar files are written next to the main JAR and the gem. (Default: false)
+ *     // writesChecksums = true
  * }}</pre>
  */
 public class EmbulkPluginExtension {
@@ -57,6 +108,38 @@ public class EmbulkPluginExtension {
         this.directPomManipulation.set(true);
         this.additionalDependencyDeclarations = castedListProperty(objectFactory);
         this.ignoreConflicts = castedListProperty(objectFactory);
+        this.embulkCoreArtifacts = objectFactory.listProperty(String.class);
+        this.embulkCoreArtifacts.set(Arrays.asList(DEFAULT_EMBULK_CORE_ARTIFACTS));
+        this.providesEmbulkCoreArtifacts = objectFactory.property(Boolean.class);
+        this.providesEmbulkCoreArtifacts.set(false);
+        this.dropsUnreachableDependencies = objectFactory.property(Boolean.class);
+        this.dropsUnreachableDependencies.set(false);
+        this.embedsClasspathIndex = objectFactory.property(Boolean.class);
+        this.embedsClasspathIndex.set(false);
+        this.listsClasspathInManifest = objectFactory.property(Boolean.class);
+        this.listsClasspathInManifest.set(false);
+        this.classLoadTrace = objectFactory.fileProperty();
+        this.targetJavaVersion = objectFactory.property(Integer.class);
+        this.slimsClasspath = objectFactory.property(Boolean.class);
+        this.slimsClasspath.set(false);
+        this.mergesSmallJars = objectFactory.property(Boolean.class);
+        this.mergesSmallJars.set(false);
+        this.instrumentsGem = objectFactory.property(Boolean.class);
+        this.instrumentsGem.set(false);
+        this.shadesDependencies = objectFactory.property(Boolean.class);
+        this.shadesDependencies.set(false);
+        this.relocations = objectFactory.mapProperty(String.class, String.class);
+        this.relocations.set(Collections.emptyMap());
+        this.minimizesShadedJar = objectFactory.property(Boolean.class);
+        this.minimizesShadedJar.set(false);
+        this.buildsThinGem = objectFactory.property(Boolean.class);
+        this.buildsThinGem.set(false);
+        this.usesJarStore = objectFactory.property(Boolean.class);
+        this.usesJarStore.set(false);
+        this.jarStoreMaxBytes = objectFactory.property(Long.class);
+        this.jarStoreMaxBytes.set(DEFAULT_JAR_STORE_MAX_BYTES);
+        this.writesChecksums = objectFactory.property(Boolean.class);
+        this.writesChecksums.set(false);
     }
 
     public Property<String> getMainClass() {
@@ -91,6 +174,74 @@ public class EmbulkPluginExtension {
         return this.additionalDependencyDeclarations;
     }
 
+    public ListProperty<String> getEmbulkCoreArtifacts() {
+        return this.embulkCoreArtifacts;
+    }
+
+    public Property<Boolean> getProvidesEmbulkCoreArtifacts() {
+        return this.providesEmbulkCoreArtifacts;
+    }
+
+    public Property<Boolean> getDropsUnreachableDependencies() {
+        return this.dropsUnreachableDependencies;
+    }
+
+    public Property<Boolean> getEmbedsClasspathIndex() {
+        return this.embedsClasspathIndex;
+    }
+
+    public Property<Boolean> getListsClasspathInManifest() {
+        return this.listsClasspathInManifest;
+    }
+
+    public RegularFileProperty getClassLoadTrace() {
+        return this.classLoadTrace;
+    }
+
+    public Property<Integer> getTargetJavaVersion() {
+        return this.targetJavaVersion;
+    }
+
+    public Property<Boolean> getSlimsClasspath() {
+        return this.slimsClasspath;
+    }
+
+    public Property<Boolean> getMergesSmallJars() {
+        return this.mergesSmallJars;
+    }
+
+    public Property<Boolean> getInstrumentsGem() {
+        return this.instrumentsGem;
+    }
+
+    public Property<Boolean> getShadesDependencies() {
+        return this.shadesDependencies;
+    }
+
+    public MapProperty<String, String> getRelocations() {
+        return this.relocations;
+    }
+
+    public Property<Boolean> getMinimizesShadedJar() {
+        return this.minimizesShadedJar;
+    }
+
+    public Property<Boolean> getBuildsThinGem() {
+        return this.buildsThinGem;
+    }
+
+    public Property<Boolean> getUsesJarStore() {
+        return this.usesJarStore;
+    }
+
+    public Property<Long> getJarStoreMaxBytes() {
+        return this.jarStoreMaxBytes;
+    }
+
+    public Property<Boolean> getWritesChecksums() {
+        return this.writesChecksums;
+    }
+
     List<ScopedDependency> getAdditionalDependencyDeclarationsAsScopedDependency() {
         if (this.additionalDependencyDeclarations.isPresent() && !this.additionalDependencyDeclarations.get().isEmpty()) {
             return Collections.unmodifiableList(
@@ -124,7 +275,15 @@ public class EmbulkPluginExtension {
         }
 
         if (this.mainJar.isPresent()) {
-            this.project.getLogger().warn("\"mainJar\" is experimental. Note that it may not work well.");
+            if (this.shadesDependencies.getOrElse(false)) {
+                throw new GradleException(
+                        "Failed to configure \"embulkPlugin\" because \"mainJar\" and \"shadesDependencies\" cannot be set together.");
+            }
+            this.project.getLogger().warn("\"mainJar\" is experimental. Note that it may not work well. Consider \"shadesDependencies\".");
+        }
+        if ((!this.shadesDependencies.getOrElse(false)) && !this.relocations.getOrElse(Collections.emptyMap()).isEmpty()) {
+            throw new GradleException(
+                    "Failed to configure \"embulkPlugin\" because \"relocations\" is available only with \"shadesDependencies = true\".");
         }
 
         if (!this.directPomManipulation.getOrElse(true)) {
@@ -137,6 +296,44 @@ public class EmbulkPluginExtension {
                     "Failed to configure \"embulkPlugin\" because \"ignoreConflicts\" is no longer supported.");
         }
 
+        // The index and the manifest are embedded in the main JAR, which "analyzeReachability" reads before dropping JARs.
+        if (this.dropsUnreachableDependencies.getOrElse(false)
+                && (this.embedsClasspathIndex.getOrElse(false) || this.listsClasspathInManifest.getOrElse(false))) {
+            throw new GradleException(
+                    "Failed to configure \"embulkPlugin\" because \"dropsUnreachableDependencies\" cannot be set together with"
+                    + " \"embedsClasspathIndex\" nor \"listsClasspathInManifest\".");
+        }
+
+        if (this.buildsThinGem.getOrElse(false)) {
+            final ArrayList<String> staging = new ArrayList<>();
+            if (this.targetJavaVersion.isPresent()) {
+                staging.add("\"targetJavaVersion\"");
+            }
+            if (this.slimsClasspath.getOrElse(false)) {
+                staging.add("\"slimsClasspath\"");
+            }
+            if (this.mergesSmallJars.getOrElse(false)) {
+                staging.add("\"mergesSmallJars\"");
+            }
+            if (!staging.isEmpty()) {
+                throw new GradleException(
+                        "Failed to configure \"embulkPlugin\" because \"buildsThinGem\" stages no dependency JARs to be rewritten by: [ "
+                        + String.join(", ", staging) + " ]");
+            }
+        }
+
+        if (this.targetJavaVersion.isPresent() && this.targetJavaVersion.get() < 8) {
+            throw new GradleException(
+                    "Failed to configure \"embulkPlugin\" because \"targetJavaVersion\" must be 8 or greater.");
+        }
+
+        for (final String artifact : this.embulkCoreArtifacts.getOrElse(Collections.emptyList())) {
+            if (artifact.split(":", -1).length != 2) {
+                throw new GradleException(
+                        "Failed to configure \"embulkPlugin\" because \"embulkCoreArtifacts\" must be in \"group:name\": " + artifact);
+            }
+        }
+
         if (this.additionalDependencyDeclarations.isPresent() && !this.additionalDependencyDeclarations.get().isEmpty()) {
             try {
                 this.getAdditionalDependencyDeclarationsAsScopedDependency();
@@ -165,6 +362,16 @@ public class EmbulkPluginExtension {
         "executor"
     };
 
+    // Embulk v0.11+ loads only them parent-first from its core for plugins.
+    private static final String[] DEFAULT_EMBULK_CORE_ARTIFACTS = {
+        "org.embulk:embulk-api",
+        "org.embulk:embulk-spi",
+        "org.msgpack:msgpack-core",
+        "org.slf4j:slf4j-api",
+    };
+
+    private static final long DEFAULT_JAR_STORE_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+
     private static final Set<String> CATEGORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(CATEGORIES_ARRAY)));
 
     private final Project project;
@@ -176,4 +383,21 @@ public class EmbulkPluginExtension {
     private final Property<Boolean> directPomManipulation;
     private final ListProperty<Map<String, String>> ignoreConflicts;
     private final ListProperty<Map<String, Object>> additionalDependencyDeclarations;
+    private final ListProperty<String> embulkCoreArtifacts;
+    private final Property<Boolean> providesEmbulkCoreArtifacts;
+    private final Property<Boolean> dropsUnreachableDependencies;
+    private final Property<Boolean> embedsClasspathIndex;
+    private final Property<Boolean> listsClasspathInManifest;
+    private final RegularFileProperty classLoadTrace;
+    private final Property<Integer> targetJavaVersion;
+    private final Property<Boolean> slimsClasspath;
+    private final Property<Boolean> mergesSmallJars;
+    private final Property<Boolean> instrumentsGem;
+    private final Property<Boolean> shadesDependencies;
+    private final MapProperty<String, String> relocations;
+    private final Property<Boolean> minimizesShadedJar;
+    private final Property<Boolean> buildsThinGem;
+    private final Property<Boolean> usesJarStore;
+    private final Property<Long> jarStoreMaxBytes;
+    private final Property<Boolean> writesChecksums;
 }
@@ -17,20 +17,41 @@
 package org.embulk.gradle.embulk_plugins;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
+import org.gradle.api.publish.maven.tasks.GenerateMavenPom;
 import org.gradle.api.publish.tasks.GenerateModuleMetadata;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.bundling.Tar;
+import org.gradle.api.tasks.compile.JavaCompile;
 
 /**
  * A Gradle plugin for building Embulk plugins.
@@ -69,6 +90,25 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
 
         project.getTasks().create("gem", Gem.class);
         project.getTasks().create("gemPush", GemPush.class);
+        project.getTasks().create("gemVerify", GemVerify.class);
+        project.getTasks().create("gemDiff", GemDiff.class);
+        project.getTasks().create("gemHome", Tar.class);
+        project.getTasks().create("embulkInstallLocal", InstallLocal.class);
+        project.getTasks().create("embulkDevSync", DevSync.class);
+        project.getTasks().create("checkDuplicateClasses", CheckDuplicateClasses.class);
+        project.getTasks().create("checkEmbulkCoreOverlap", CheckEmbulkCoreOverlap.class);
+        project.getTasks().create("analyzeReachability", AnalyzeReachability.class);
+        project.getTasks().create("embulkClasspathIndex", GenerateClasspathIndex.class);
+        project.getTasks().create("embulkClasspathManifest", GenerateClasspathManifest.class);
+        project.getTasks().create("embulkClasspathLock", GenerateClasspathLock.class);
+        project.getTasks().create("embulkClasspathLayers", GenerateClasspathLayers.class);
+        project.getTasks().create("embulkCdsArchive", GenerateCdsArchive.class);
+        project.getTasks().create("pruneMultiReleaseJars", PruneMultiReleaseJars.class);
+        project.getTasks().create("slimClasspath", SlimClasspath.class);
+        project.getTasks().create("mergeClasspath", MergeClasspath.class);
+        project.getTasks().create("generateEmbulkInstrumentation", GenerateInstrumentation.class);
+        project.getTasks().create("compileEmbulkInstrumentationJava", JavaCompile.class);
+        project.getTasks().create("instrumentedJar", Jar.class);
 
         final Configuration compileClasspath = project.getConfigurations().getByName("compileClasspath");
         final Configuration runtimeClasspath = project.getConfigurations().getByName("runtimeClasspath");
@@ -103,6 +143,33 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
             project.getTasks().withType(GenerateModuleMetadata.class, configureGenerateModuleMetadata -> {
                 configureGenerateModuleMetadata.setEnabled(false);
             });
+        } else {
+            // Gradle Module Metadata (.module) is flattened in the same way as pom.xml so that Gradle-based consumers
+            // resolve the same first-level dependencies without traversing transitive dependencies.
+            project.getTasks().withType(GenerateModuleMetadata.class, configureGenerateModuleMetadata -> {
+                configureGenerateModuleMetadata.doLast(task -> {
+                    final Logger logger = project.getLogger();
+                    final Path modulePath = configureGenerateModuleMetadata.getOutputFile().get().getAsFile().toPath();
+
+                    final ProspectiveDependencies prospectiveDependencies =
+                            buildProspectiveDependencies(project, extension, compileClasspath, runtimeClasspath, logger);
+
+                    final ArrayList<ScopedDependency> dependencies = new ArrayList<>();
+                    for (final ScopedDependency dependency : prospectiveDependencies) {
+                        dependencies.add(dependency);
+                    }
+                    for (final ScopedDependency dependency : extension.getAdditionalDependencyDeclarationsAsScopedDependency()) {
+                        // Gradle Module Metadata has no notion of Maven's optional dependencies.
+                        if (!dependency.isOptional()) {
+                            dependencies.add(dependency);
+                        }
+                    }
+
+                    final ModuleMetadataManipulator module = ModuleMetadataManipulator.read(modulePath, logger);
+                    module.flattenDependencies(dependencies);
+                    module.write(modulePath);
+                });
+            });
         }
 
         // The "compileClasspath" and "runtimeClasspath" configurations have dependency locking activated by default.
@@ -110,7 +177,8 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
         compileClasspath.getResolutionStrategy().activateDependencyLocking();
         runtimeClasspath.getResolutionStrategy().activateDependencyLocking();
 
-        configureJarTask(project, extension);
+        configureJarTask(project, extension, runtimeClasspath);
+        configureInstrumentedJarTask(project, extension, compileClasspath, runtimeClasspath);
 
         final PublishingExtension publishing = getPublishingExtension(project);
 
@@ -149,10 +217,8 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
             configureMavenPublication.getPom().withXml(configureXml -> {
                 final Logger logger = project.getLogger();
 
-                final ProspectiveDependencies prospectiveDependencies = ProspectiveDependencies.build(
-                        compileClasspath.getResolvedConfiguration().getResolvedArtifacts(),
-                        runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts(),
-                        logger);
+                final ProspectiveDependencies prospectiveDependencies =
+                        buildProspectiveDependencies(project, extension, compileClasspath, runtimeClasspath, logger);
 
                 // TODO: Use XmlProvider#asElement (org.w3c.dom.Element) instead of XmlProvider#asNode (groovy.util.Node).
                 // https://docs.gradle.org/6.4.1/javadoc/org/gradle/api/XmlProvider.html
@@ -185,6 +251,14 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
                         }
                     }
 
+                    if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                        final Set<String> unreachable = readUnreachableDependencies(project);
+                        xml.removeDependencies(dependency -> unreachable.contains(dependency.toString()));
+                    }
+                    if (extension.getShadesDependencies().getOrElse(false)) {
+                        xml.removeDependencies(bundledInShadedJar(extension));
+                    }
+
                     xml.gleanRemainingDependencies();
                     xml.addDependencyDeclarations(extension.getAdditionalDependencyDeclarationsAsScopedDependency());
 
@@ -193,7 +267,142 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
             });
         });
 
-        configureGemTasks(project, extension, runtimeClasspath);
+        configureGemTasks(project, extension, compileClasspath, runtimeClasspath);
+        configureCheckDuplicateClassesTask(project, extension, runtimeClasspath);
+
+        project.getTasks().named("checkEmbulkCoreOverlap", CheckEmbulkCoreOverlap.class, task -> {
+            task.getEmbulkCoreArtifacts().set(extension.getEmbulkCoreArtifacts());
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("analyzeReachability", AnalyzeReachability.class, task -> {
+            task.getMainClass().set(extension.getMainClass());
+            // The main JAR comes first as Embulk's PluginClassLoader loads it first.
+            task.getClasspath().from(((Jar) project.getTasks().getByName(getMainJarTaskName(extension))).getArchiveFile());
+            task.getClasspath().from(runtimeClasspath);
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("embulkCdsArchive", GenerateCdsArchive.class, task -> {
+            task.getPluginClasspath().from(((Jar) project.getTasks().getByName(getMainJarTaskName(extension))).getArchiveFile());
+            task.getPluginClasspath().from(getStagedClasspath(extension, runtimeClasspath));
+        });
+
+        project.getTasks().named("embulkInstallLocal", InstallLocal.class, task -> {
+            task.getCategory().set(extension.getCategory());
+            task.getType().set(extension.getType());
+            task.getPluginJar().set(((Jar) project.getTasks().getByName(getMainJarTaskName(extension))).getArchiveFile());
+            // The same dependencies as "compile" and "runtime" dependencies in the manipulated pom.xml.
+            if (!extension.getShadesDependencies().getOrElse(false)) {
+                task.getClasspath().from(getGemClasspath(project, extension, runtimeClasspath));
+            }
+            task.setRuntimeClasspath(runtimeClasspath);
+
+            final ArrayList<MavenPublication> publications = new ArrayList<>(publishing.getPublications().withType(MavenPublication.class));
+            if (publications.isEmpty()) {
+                return;  // It fails on execution.
+            }
+            final MavenPublication publication = publications.get(0);
+            if (publications.size() > 1) {
+                project.getLogger().warn("The project has multiple Maven publications. Installing \"{}\" locally.", publication.getName());
+            }
+            final String publicationName = publication.getName();
+            final TaskProvider<GenerateMavenPom> pomTask = project.getTasks().named(
+                    "generatePomFileFor" + publicationName.substring(0, 1).toUpperCase(Locale.ROOT) + publicationName.substring(1) + "Publication",
+                    GenerateMavenPom.class);
+            task.dependsOn(pomTask);
+            task.getPomFile().set(project.getLayout().file(pomTask.map(GenerateMavenPom::getDestination)));
+            task.getGroupId().set(project.provider(publication::getGroupId));
+            task.getArtifactId().set(project.provider(publication::getArtifactId));
+            task.getVersion().set(project.provider(publication::getVersion));
+        });
+
+        project.getTasks().named("embulkDevSync", DevSync.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            if (extension.getShadesDependencies().getOrElse(false)) {
+                // Classes in the shaded JAR may be relocated.
+                task.doFirst(t -> {
+                    throw new GradleException("\"embulkDevSync\" does not work with \"shadesDependencies\". Run \"embulkInstallLocal\" instead.");
+                });
+            }
+            final SourceSet mainSourceSet =
+                    project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+            // The same classes and resources as the "jar" task.
+            task.getClasses().from(mainSourceSet.getOutput());
+            task.getSources().from(mainSourceSet.getAllSource());
+            if (!extension.getShadesDependencies().getOrElse(false)) {
+                task.getClasspath().from(getGemClasspath(project, extension, runtimeClasspath));
+            }
+            task.setRuntimeClasspath(runtimeClasspath);
+
+            final TaskProvider<InstallLocal> installTask = project.getTasks().named("embulkInstallLocal", InstallLocal.class);
+            task.getRepositoryDirectory().set(installTask.flatMap(InstallLocal::getRepositoryDirectory));
+            task.getGroupId().set(installTask.flatMap(InstallLocal::getGroupId));
+            task.getArtifactId().set(installTask.flatMap(InstallLocal::getArtifactId));
+            task.getVersion().set(installTask.flatMap(InstallLocal::getVersion));
+        });
+
+        if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+            project.getTasks().withType(GenerateMavenPom.class, task -> {
+                task.dependsOn("analyzeReachability");
+            });
+            project.getTasks().withType(GenerateModuleMetadata.class, task -> {
+                task.dependsOn("analyzeReachability");
+            });
+        }
+    }
+
+    private static ProspectiveDependencies buildProspectiveDependencies(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration compileClasspath,
+            final Configuration runtimeClasspath,
+            final Logger logger) {
+        final ProspectiveDependencies prospectiveDependencies = ProspectiveDependencies.build(
+                compileClasspath.getResolvedConfiguration().getResolvedArtifacts(),
+                runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts(),
+                ProjectCoordinates.resolverOf(project),
+                logger);
+
+        final ProspectiveDependencies reachableDependencies;
+        if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+            final Set<String> unreachable = readUnreachableDependencies(project);
+            reachableDependencies = prospectiveDependencies.without(dependency -> unreachable.contains(dependency.toString()));
+        } else {
+            reachableDependencies = prospectiveDependencies;
+        }
+
+        final ProspectiveDependencies unbundledDependencies;
+        if (extension.getShadesDependencies().getOrElse(false)) {
+            // Dependencies shaded in the main JAR are not dependencies of the plugin any more.
+            unbundledDependencies = reachableDependencies.without(bundledInShadedJar(extension));
+        } else {
+            unbundledDependencies = reachableDependencies;
+        }
+
+        if (extension.getProvidesEmbulkCoreArtifacts().getOrElse(false)) {
+            final EmbulkCoreArtifacts core = EmbulkCoreArtifacts.of(extension.getEmbulkCoreArtifacts().get());
+            return unbundledDependencies.withProvided(core::contains);
+        }
+        return unbundledDependencies;
+    }
+
+    /**
+     * Returns a predicate for dependencies shaded in the main JAR, which are ones in {@link #getStagedClasspath}.
+     */
+    private static Predicate<VersionlessDependency> bundledInShadedJar(final EmbulkPluginExtension extension) {
+        if (!extension.getProvidesEmbulkCoreArtifacts().getOrElse(false)) {
+            return dependency -> true;
+        }
+        final EmbulkCoreArtifacts core = EmbulkCoreArtifacts.of(extension.getEmbulkCoreArtifacts().get());
+        return dependency -> !core.contains(dependency);
+    }
+
+    private static Set<String> readUnreachableDependencies(final Project project) {
+        final AnalyzeReachability task = (AnalyzeReachability) project.getTasks().getByName("analyzeReachability");
+        return AnalyzeReachability.readUnreachableDependencies(task.getUnreachableDependenciesFile().get().getAsFile().toPath());
     }
 
     private static PublishingExtension getPublishingExtension(final Project project) {
@@ -211,41 +420,215 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
     /**
      * Configures the standard {@code "jar"} task with required MANIFEST.
      */
-    private static void configureJarTask(final Project project, final EmbulkPluginExtension extension) {
-        final String mainJarTaskName;
-        if (extension.getMainJar().isPresent()) {
-            mainJarTaskName = extension.getMainJar().get();
-        } else {
-            mainJarTaskName = "jar";
+    private static void configureJarTask(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration runtimeClasspath) {
+        final boolean embedsClasspathIndex = extension.getEmbedsClasspathIndex().getOrElse(false);
+        // The index and the manifest list the same JARs as staged in the gem's "classpath/".
+        if (embedsClasspathIndex) {
+            project.getTasks().named("embulkClasspathIndex", GenerateClasspathIndex.class, task -> {
+                task.getClasspath().from(getGemStagedDependencies(project, extension, runtimeClasspath));
+                task.getClasspathOrder().from(getStagedClasspath(extension, runtimeClasspath));
+            });
         }
-        project.getTasks().named(mainJarTaskName, Jar.class, jarTask -> {
-            jarTask.manifest(UpdateManifestAction.builder()
-                             .add("Embulk-Plugin-Main-Class", extension.getMainClass().get())
-                             .add("Embulk-Plugin-Category", extension.getCategory().get())
-                             .add("Embulk-Plugin-Type", extension.getType().get())
-                             .add("Embulk-Plugin-Spi-Version", "0")
-                             .add("Implementation-Title", project.getName())
-                             .add("Implementation-Version", project.getVersion().toString())
-                             .build());
+        final boolean listsClasspathInManifest = extension.getListsClasspathInManifest().getOrElse(false);
+        if (listsClasspathInManifest) {
+            project.getTasks().named("embulkClasspathManifest", GenerateClasspathManifest.class, task -> {
+                task.getClasspath().from(getGemStagedDependencies(project, extension, runtimeClasspath));
+                task.getClasspathOrder().from(getStagedClasspath(extension, runtimeClasspath));
+                task.setRuntimeClasspath(runtimeClasspath);
+            });
+        }
+
+        project.getTasks().named(getMainJarTaskName(extension), Jar.class, jarTask -> {
+            final UpdateManifestAction.Builder manifest = buildManifest(project, extension, extension.getMainClass().get());
+            if (embedsClasspathIndex) {
+                manifest.add("Embulk-Plugin-Classpath-Index", GenerateClasspathIndex.INDEX_PATH);
+                jarTask.from(project.getTasks().named("embulkClasspathIndex"));
+            }
+            jarTask.manifest(manifest.build());
+            if (listsClasspathInManifest) {
+                final TaskProvider<GenerateClasspathManifest> manifestTask =
+                        project.getTasks().named("embulkClasspathManifest", GenerateClasspathManifest.class);
+                jarTask.dependsOn(manifestTask);
+                jarTask.getInputs().file(manifestTask.flatMap(GenerateClasspathManifest::getManifestFile));
+                // The fragment is merged lazily when the JAR is built.
+                jarTask.getManifest().from(manifestTask.flatMap(GenerateClasspathManifest::getManifestFile));
+            }
+
+            if (extension.getShadesDependencies().getOrElse(false)) {
+                final FileCollection dependencies = getStagedClasspath(extension, runtimeClasspath);
+                jarTask.getInputs().files(dependencies);
+                jarTask.getInputs().property("embulkRelocations", extension.getRelocations());
+                jarTask.getInputs().property("embulkMinimizesShadedJar", extension.getMinimizesShadedJar());
+                jarTask.doLast(task -> {
+                    shadeJar(project, extension, jarTask.getArchiveFile().get().getAsFile().toPath(), dependencies);
+                });
+            }
+
+            if (extension.getClassLoadTrace().isPresent()) {
+                final File trace = extension.getClassLoadTrace().get().getAsFile();
+                jarTask.getInputs().file(trace);
+                jarTask.doLast(task -> {
+                    reorderJarEntries(project, jarTask.getArchiveFile().get().getAsFile().toPath(), trace.toPath());
+                });
+            }
+
+            // Checksums are computed after all the rewrites above.
+            if (extension.getWritesChecksums().getOrElse(false)) {
+                declareChecksumOutputs(jarTask, jarTask.getArchiveFile());
+                jarTask.doLast(task -> {
+                    writeChecksums(project, jarTask.getArchiveFile().get().getAsFile().toPath());
+                });
+            }
+        });
+    }
+
+    /**
+     * Configures "instrumentedJar", the main JAR with a wrapper of the main class to record time of Embulk SPI calls.
+     *
+     * <p>The wrapper is generated by "generateEmbulkInstrumentation", and compiled by "compileEmbulkInstrumentationJava".
+     */
+    private static void configureInstrumentedJarTask(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration compileClasspath,
+            final Configuration runtimeClasspath) {
+        final SourceSet mainSourceSet =
+                project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        final String wrapperClassName = GenerateInstrumentation.wrapperClassName(extension.getMainClass().get());
+
+        final TaskProvider<GenerateInstrumentation> generateTask =
+                project.getTasks().named("generateEmbulkInstrumentation", GenerateInstrumentation.class, task -> {
+                    task.getMainClass().set(extension.getMainClass());
+                    task.getProbeName().convention(extension.getCategory().get() + "." + extension.getType().get());
+                    task.getClasspath().from(mainSourceSet.getOutput());
+                    task.getClasspath().from(compileClasspath);
+                    task.getClasspath().from(runtimeClasspath);
+                });
+
+        final TaskProvider<JavaCompile> compileTask =
+                project.getTasks().named("compileEmbulkInstrumentationJava", JavaCompile.class, task -> {
+                    final JavaCompile compileJava = project.getTasks().named("compileJava", JavaCompile.class).get();
+                    task.setDescription("Compiles the wrapper generated by \"generateEmbulkInstrumentation\".");
+                    task.setSource(generateTask.flatMap(GenerateInstrumentation::getDestinationDirectory));
+                    task.setClasspath(mainSourceSet.getOutput().plus(compileClasspath));
+                    task.getDestinationDirectory().set(project.getLayout().getBuildDirectory().dir("embulk/instrumentation/classes"));
+                    task.setSourceCompatibility(compileJava.getSourceCompatibility());
+                    task.setTargetCompatibility(compileJava.getTargetCompatibility());
+                    task.getOptions().setEncoding("UTF-8");
+                });
+
+        project.getTasks().named("instrumentedJar", Jar.class, task -> {
+            final Jar mainJarTask = (Jar) project.getTasks().getByName(getMainJarTaskName(extension));
+            task.setDescription("Assembles the main JAR with timing probes on Embulk SPI calls.");
+            task.dependsOn(mainJarTask);
+            task.getArchiveClassifier().set("instrumented");
+            task.from(mainJarTask.getArchiveFile().map(file -> project.zipTree(file)), copySpec -> {
+                copySpec.exclude("META-INF/MANIFEST.MF");
+            });
+            task.from(compileTask);
+            // The main JAR's manifest is kept with its sections and user attributes, except for the main class.
+            task.manifest(UpdateManifestAction.builder().add("Embulk-Plugin-Main-Class", wrapperClassName).build());
+            task.getManifest().from(mainJarTask.getManifest(), mergeSpec -> {
+                mergeSpec.eachEntry(details -> {
+                    if (details.getSection() == null && "Embulk-Plugin-Main-Class".equals(details.getKey())) {
+                        details.exclude();
+                    }
+                });
+            });
         });
     }
 
+    private static UpdateManifestAction.Builder buildManifest(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final String mainClass) {
+        return UpdateManifestAction.builder()
+                .add("Embulk-Plugin-Main-Class", mainClass)
+                .add("Embulk-Plugin-Category", extension.getCategory().get())
+                .add("Embulk-Plugin-Type", extension.getType().get())
+                .add("Embulk-Plugin-Spi-Version", "0")
+                .add("Implementation-Title", project.getName())
+                .add("Implementation-Version", project.getVersion().toString());
+    }
+
+    private static void shadeJar(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Path jar,
+            final FileCollection dependencies) {
+        final ArrayList<Path> dependencyPaths = new ArrayList<>();
+        for (final File file : dependencies.getFiles()) {
+            if (file.isFile()) {
+                dependencyPaths.add(file.toPath());
+            }
+        }
+        final ShadedJar shaded;
+        try {
+            shaded = ShadedJar.shade(
+                    jar, dependencyPaths, extension.getRelocations().get(), extension.getMinimizesShadedJar().getOrElse(false));
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to shade dependencies into: " + jar.toString(), ex);
+        }
+        project.getLogger().lifecycle(
+                "Shaded {} entries from {} JARs into {}, {} unreachable classes minimized: {} -> {} bytes",
+                shaded.getAddedEntries(), dependencyPaths.size(), jar.getFileName(), shaded.getMinimizedClasses(),
+                shaded.getBytesBefore(), shaded.getBytesAfter());
+    }
+
+    private static void declareChecksumOutputs(final Task task, final Provider<RegularFile> artifact) {
+        for (final String extension : ArtifactDigests.EXTENSIONS) {
+            task.getOutputs().file(artifact.map(file -> ArtifactDigests.sidecarOf(file.getAsFile().toPath(), extension).toFile()));
+        }
+    }
+
+    private static void writeChecksums(final Project project, final Path artifact) {
+        final long started = System.nanoTime();
+        try {
+            ArtifactDigests.of(artifact).writeSidecars(artifact);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write checksums of: " + artifact.toString(), ex);
+        }
+        project.getLogger().lifecycle(
+                "Wrote checksums of {} in a single pass in {} ms.", artifact.getFileName(), (System.nanoTime() - started) / 1_000_000L);
+    }
+
+    private static void reorderJarEntries(final Project project, final Path jar, final Path trace) {
+        final JarEntryOrder order;
+        try {
+            order = JarEntryOrder.reorder(jar, JarEntryOrder.readTrace(trace));
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to reorder entries in the JAR by the class-load trace: " + jar.toString(), ex);
+        }
+        project.getLogger().lifecycle(
+                "Reordered {} classes in the class-load trace to the front of {}. Cold-start reads: {} bytes -> {} bytes",
+                order.getNumberOfTracedEntries(), jar.getFileName(), order.getColdReadBytesBefore(), order.getColdReadBytesAfter());
+    }
+
     private static void configureGemTasks(
             final Project project,
             final EmbulkPluginExtension extension,
+            final Configuration compileClasspath,
             final Configuration runtimeClasspath) {
         final TaskProvider<Gem> gemTask = project.getTasks().named("gem", Gem.class, task -> {
-            final String mainJarTaskName;
-            if (extension.getMainJar().isPresent()) {
-                mainJarTaskName = extension.getMainJar().get();
-            } else {
-                mainJarTaskName = "jar";
-            }
+            final String mainJarTaskName = getMainJarTaskName(extension);
             task.dependsOn(mainJarTaskName);
 
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+
             task.setEmbulkPluginMainClass(extension.getMainClass().get());
             task.setEmbulkPluginCategory(extension.getCategory().get());
             task.setEmbulkPluginType(extension.getType().get());
+            // Only to attribute JARs in the gem to dependency paths in the size report.
+            task.setRuntimeClasspath(runtimeClasspath);
+            if (extension.getWritesChecksums().getOrElse(false)) {
+                task.setWritesChecksums(true);
+                declareChecksumOutputs(task, task.getArchiveFile());
+            }
 
             if ((!task.getArchiveBaseName().isPresent())) {
                 // project.getName() never returns null.
@@ -263,12 +646,135 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
             }
 
             task.getDestinationDirectory().set(((File) project.property("buildDir")).toPath().resolve("gems").toFile());
-            task.from(runtimeClasspath, copySpec -> {
+            // The instrumented JAR replaces the main JAR in the gem only if "instrumentsGem" is true.
+            final String stagedJarTaskName = extension.getInstrumentsGem().getOrElse(false) ? "instrumentedJar" : mainJarTaskName;
+            final Provider<RegularFile> stagedJar = ((Jar) project.getTasks().getByName(stagedJarTaskName)).getArchiveFile();
+            // The plugin JAR comes first in the classpath listed in the bootstrap Ruby code, and then dependencies in order.
+            task.getClasspathOrder().from(stagedJar);
+            if (extension.getBuildsThinGem().getOrElse(false)) {
+                // A thin gem locks dependencies in "classpath.lock" instead of staging them.
+                task.from(project.getTasks().named("embulkClasspathLock", GenerateClasspathLock.class)
+                                  .flatMap(GenerateClasspathLock::getLockFile));
+            } else if (!extension.getShadesDependencies().getOrElse(false)) {
+                // Dependencies are not staged if they are shaded in the main JAR.
+                final FileCollection stagedClasspath = getGemClasspathStagedBefore(project, extension, runtimeClasspath, null);
+                if (extension.getUsesJarStore().getOrElse(false)) {
+                    // Materialized from the JAR store by hard links, instead of the copy spec.
+                    task.getStoredClasspath().from(stagedClasspath);
+                    task.getJarStoreDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/embulk-plugins/jar-store"));
+                    task.getJarStoreMaxBytes().set(extension.getJarStoreMaxBytes());
+                } else {
+                    task.from(stagedClasspath, copySpec -> {
+                        copySpec.into("classpath");
+                    });
+                }
+                // Staging tasks keep file names, but their outputs are file trees without the order of the runtime classpath.
+                task.getClasspathOrder().from(getGemClasspath(project, extension, runtimeClasspath));
+            }
+            task.dependsOn(stagedJarTaskName);
+            task.from(stagedJar, copySpec -> {
                 copySpec.into("classpath");
             });
-            task.from(((Jar) project.getTasks().getByName(mainJarTaskName)).getArchiveFile(), copySpec -> {
-                copySpec.into("classpath");
+        });
+
+        project.getTasks().named("embulkClasspathLock", GenerateClasspathLock.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            // The same dependencies as "compile" and "runtime" dependencies in pom.xml.
+            task.getDependencies().set(project.provider(() -> {
+                final ArrayList<String> dependencies = new ArrayList<>();
+                for (final ScopedDependency dependency : buildProspectiveDependencies(
+                        project, extension, compileClasspath, runtimeClasspath, project.getLogger())) {
+                    if (dependency.getScope() == MavenScope.COMPILE || dependency.getScope() == MavenScope.RUNTIME) {
+                        dependencies.add(dependency.getVersionlessDependency().toString());
+                    }
+                }
+                return dependencies;
+            }));
+            task.getClasspath().from(runtimeClasspath);
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("embulkClasspathLayers", GenerateClasspathLayers.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            // The same JARs as staged in the gem's "classpath/".
+            if (!extension.getBuildsThinGem().getOrElse(false) && !extension.getShadesDependencies().getOrElse(false)) {
+                task.getClasspath().from(getGemClasspathStagedBefore(project, extension, runtimeClasspath, null));
+            }
+            final String stagedJarTaskName = extension.getInstrumentsGem().getOrElse(false) ? "instrumentedJar" : getMainJarTaskName(extension);
+            task.dependsOn(stagedJarTaskName);
+            task.getPluginJar().set(((Jar) project.getTasks().getByName(stagedJarTaskName)).getArchiveFile());
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("pruneMultiReleaseJars", PruneMultiReleaseJars.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            task.getTargetJavaVersion().set(extension.getTargetJavaVersion());
+            task.getClasspath().from(getGemClasspathStagedBefore(project, extension, runtimeClasspath, "pruneMultiReleaseJars"));
+        });
+
+        project.getTasks().named("slimClasspath", SlimClasspath.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            task.getClasspath().from(getGemClasspathStagedBefore(project, extension, runtimeClasspath, "slimClasspath"));
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("mergeClasspath", MergeClasspath.class, task -> {
+            if (extension.getDropsUnreachableDependencies().getOrElse(false)) {
+                task.dependsOn("analyzeReachability");
+            }
+            task.getClasspath().from(getGemClasspathStagedBefore(project, extension, runtimeClasspath, "mergeClasspath"));
+            task.setRuntimeClasspath(runtimeClasspath);
+        });
+
+        project.getTasks().named("gemVerify", GemVerify.class, task -> {
+            task.dependsOn("gem");
+            if (!task.getGem().isPresent()) {
+                task.getGem().set(gemTask.get().getArchiveFile());
+            }
+            final String stagedJarTaskName = extension.getInstrumentsGem().getOrElse(false) ? "instrumentedJar" : getMainJarTaskName(extension);
+            task.getPluginJarName().convention(
+                    ((Jar) project.getTasks().getByName(stagedJarTaskName)).getArchiveFileName());
+        });
+
+        project.getTasks().named("gemDiff", GemDiff.class, task -> {
+            task.dependsOn("gem");
+            if (!task.getGem().isPresent()) {
+                task.getGem().set(gemTask.get().getArchiveFile());
+            }
+        });
+
+        project.getTasks().named("gemHome", Tar.class, task -> {
+            task.setDescription("Assembles the gem pre-installed in the GEM_HOME layout, to be extracted without `gem install`.");
+            task.dependsOn("gem");
+            // The same files as packaged in the gem by `gem build`. The version is in the Ruby style after "gem" runs.
+            final Provider<String> fullName = project.provider(() -> {
+                final Gem gem = gemTask.get();
+                return gem.getArchiveBaseName().get() + "-" + gem.getArchiveVersion().get() + "-java";
             });
+            final Path gemContents = gemTask.get().getWorkingDir(project);
+            final String gemspecName = project.getName() + ".gemspec";
+            task.from(gemContents.toFile(), copySpec -> {
+                copySpec.exclude(gemspecName);
+                copySpec.into(fullName.map(name -> "gems/" + name));
+            });
+            // RubyGems loads any Ruby code which returns Gem::Specification from "specifications/".
+            task.from(gemContents.resolve(gemspecName).toFile(), copySpec -> {
+                copySpec.rename(name -> fullName.get() + ".gemspec");
+                copySpec.into("specifications");
+            });
+            task.getDestinationDirectory().set(((File) project.property("buildDir")).toPath().resolve("gems").toFile());
+            task.getArchiveFileName().set(fullName.map(name -> name + "-gem-home.tar"));
+            // Timestamps and the order of entries are fixed so that the same gem builds the same tar.
+            task.setPreserveFileTimestamps(false);
+            task.setReproducibleFileOrder(true);
         });
 
         project.getTasks().named("gemPush", GemPush.class, task -> {
@@ -279,6 +785,142 @@ public class EmbulkPluginsPlugin implements Plugin<Project> {
         });
     }
 
+    /**
+     * Returns JAR files from {@code runtimeClasspath} to be staged in the gem's {@code classpath/}.
+     *
+     * <p>Artifacts provided by Embulk core are excluded only if {@code providesEmbulkCoreArtifacts} is true.
+     * Artifacts unreachable from the main class are excluded only if {@code dropsUnreachableDependencies} is true.
+     */
+    private static FileCollection getGemClasspath(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration runtimeClasspath) {
+        final FileCollection stagedClasspath = getStagedClasspath(extension, runtimeClasspath);
+        if (!extension.getDropsUnreachableDependencies().getOrElse(false)) {
+            return stagedClasspath;
+        }
+        // The filter is evaluated lazily, after "analyzeReachability" runs. Unreachable files are looked up only once then.
+        final Supplier<Set<File>> unreachableFiles = memoize(() -> {
+            final Set<String> unreachable = readUnreachableDependencies(project);
+            final HashMap<File, String> coordinates = new HashMap<>();
+            for (final ResolvedArtifact artifact : runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+                coordinates.put(artifact.getFile(),
+                                ProjectCoordinates.resolve(project, artifact).toVersionlessDependency(artifact).toString());
+            }
+            final HashSet<File> files = new HashSet<>();
+            for (final Map.Entry<File, String> entry : coordinates.entrySet()) {
+                if (unreachable.contains(entry.getValue())) {
+                    files.add(entry.getKey());
+                }
+            }
+            return files;
+        });
+        return stagedClasspath.filter(file -> !unreachableFiles.get().contains(file));
+    }
+
+    /**
+     * Returns dependency JARs staged in the gem's {@code classpath/}, which are none for a thin gem and a shaded JAR.
+     *
+     * <p>It must not be used for the main JAR with {@code dropsUnreachableDependencies} as "analyzeReachability" reads
+     * the main JAR.
+     */
+    private static FileCollection getGemStagedDependencies(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration runtimeClasspath) {
+        if (extension.getBuildsThinGem().getOrElse(false) || extension.getShadesDependencies().getOrElse(false)) {
+            return project.files();
+        }
+        return getGemClasspathStagedBefore(project, extension, runtimeClasspath, null);
+    }
+
+    /**
+     * Returns JAR files to be staged in the gem's {@code classpath/}, rewritten by staging tasks enabled before {@code stage}.
+     *
+     * <p>Staging tasks run in the order of "pruneMultiReleaseJars", "slimClasspath", and "mergeClasspath". All enabled
+     * staging tasks are applied if {@code stage} is {@code null}.
+     */
+    private static FileCollection getGemClasspathStagedBefore(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration runtimeClasspath,
+            final String stage) {
+        FileCollection staged = getGemClasspath(project, extension, runtimeClasspath);
+        if ("pruneMultiReleaseJars".equals(stage)) {
+            return staged;
+        }
+        if (extension.getTargetJavaVersion().isPresent()) {
+            final TaskProvider<PruneMultiReleaseJars> pruneTask =
+                    project.getTasks().named("pruneMultiReleaseJars", PruneMultiReleaseJars.class);
+            staged = project.files(pruneTask.flatMap(PruneMultiReleaseJars::getDestinationDirectory)).getAsFileTree();
+        }
+        if ("slimClasspath".equals(stage)) {
+            return staged;
+        }
+        if (extension.getSlimsClasspath().getOrElse(false)) {
+            final TaskProvider<SlimClasspath> slimTask = project.getTasks().named("slimClasspath", SlimClasspath.class);
+            staged = project.files(slimTask.flatMap(SlimClasspath::getDestinationDirectory)).getAsFileTree();
+        }
+        if ("mergeClasspath".equals(stage)) {
+            return staged;
+        }
+        if (extension.getMergesSmallJars().getOrElse(false)) {
+            final TaskProvider<MergeClasspath> mergeTask = project.getTasks().named("mergeClasspath", MergeClasspath.class);
+            staged = project.files(mergeTask.flatMap(MergeClasspath::getDestinationDirectory)).getAsFileTree();
+        }
+        return staged;
+    }
+
+    /**
+     * Returns JAR files from {@code runtimeClasspath} except for artifacts provided by Embulk core if {@code providesEmbulkCoreArtifacts}.
+     *
+     * <p>Unlike {@link #getGemClasspath}, it does not depend on the main JAR through {@code analyzeReachability}.
+     */
+    private static FileCollection getStagedClasspath(final EmbulkPluginExtension extension, final Configuration runtimeClasspath) {
+        if (!extension.getProvidesEmbulkCoreArtifacts().getOrElse(false)) {
+            return runtimeClasspath;
+        }
+        final EmbulkCoreArtifacts core = EmbulkCoreArtifacts.of(extension.getEmbulkCoreArtifacts().get());
+        final Supplier<Set<File>> overlappingFiles = memoize(() -> {
+            return core.filterOverlappingFiles(runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts());
+        });
+        return runtimeClasspath.filter(file -> !overlappingFiles.get().contains(file));
+    }
+
+    /**
+     * Returns a supplier which calls {@code supplier} only at the first time, for filters evaluated per file.
+     */
+    private static <T> Supplier<T> memoize(final Supplier<T> supplier) {
+        final AtomicReference<T> value = new AtomicReference<>();
+        return () -> {
+            final T got = value.get();
+            if (got != null) {
+                return got;
+            }
+            final T computed = supplier.get();
+            value.compareAndSet(null, computed);
+            return value.get();
+        };
+    }
+
+    private static void configureCheckDuplicateClassesTask(
+            final Project project,
+            final EmbulkPluginExtension extension,
+            final Configuration runtimeClasspath) {
+        project.getTasks().named("checkDuplicateClasses", CheckDuplicateClasses.class, task -> {
+            // The main JAR comes first as Embulk's PluginClassLoader loads it first.
+            task.getClasspath().from(((Jar) project.getTasks().getByName(getMainJarTaskName(extension))).getArchiveFile());
+            task.getClasspath().from(runtimeClasspath);
+        });
+    }
+
+    private static String getMainJarTaskName(final EmbulkPluginExtension extension) {
+        if (extension.getMainJar().isPresent()) {
+            return extension.getMainJar().get();
+        }
+        return "jar";
+    }
+
     private static String buildGemVersionFromMavenVersion(final String mavenVersion) {
         if (mavenVersion.contains("-")) {
             final List<String> versionTokens = Arrays.asList(mavenVersion.split("-"));
@@ -19,12 +19,15 @@ package org.embulk.gradle.embulk_plugins;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,6 +41,8 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.logging.Logger;
@@ -46,6 +51,9 @@ import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 import org.gradle.process.ExecResult;
 
@@ -68,6 +76,15 @@ import org.gradle.process.ExecResult;
  *   // If true, auto-generate the bootstrap Ruby code in /lib/embulk/???/???.rb. (Default = true)
  *   generateRubyCode = true
  *
+ *   // If true, the bootstrap Ruby code registers the plugin with the ordered list of JAR files in /classpath,
+ *   // instead of the /classpath directory to be scanned at every load. (Default = false)
+ *   // NOTE: It requires Embulk whose `Embulk::JavaPlugin.register_*` accepts an Array of JAR files.
+ *   listClasspathInRubyCode = true
+ *
+ *   // Size budget of the gem contents. The gem task fails if exceeded. (Default = unset)
+ *   maxTotalBytes = 50 * 1024 * 1024
+ *   maxBytesPerJar = 10 * 1024 * 1024
+ *
  *   // If true, auto-generate the .gemspec file at the root directory. (Default = true)
  *   generateGemspec = true
  *
@@ -102,6 +119,19 @@ class Gem extends AbstractArchiveTask {
         this.generateRubyCode = objectFactory.property(Boolean.class);
         this.generateRubyCode.set(true);
 
+        this.listClasspathInRubyCode = objectFactory.property(Boolean.class);
+        this.listClasspathInRubyCode.set(false);
+        this.classpathOrder = objectFactory.fileCollection();
+
+        this.storedClasspath = objectFactory.fileCollection();
+        this.jarStoreDirectory = objectFactory.directoryProperty();
+        this.jarStoreMaxBytes = objectFactory.property(Long.class);
+
+        this.maxTotalBytes = objectFactory.property(Long.class);
+        this.maxBytesPerJar = objectFactory.property(Long.class);
+        this.runtimeClasspath = null;
+        this.writesChecksums = false;
+
         this.generateGemspec = objectFactory.property(Boolean.class);
         this.generateGemspec.set(true);
 
@@ -133,11 +163,16 @@ class Gem extends AbstractArchiveTask {
             copySpec.with(this);
             copySpec.into(this.getWorkingDir(project).toFile());
         });
+        if (!this.storedClasspath.isEmpty()) {
+            this.materializeStoredClasspath(project, logger);
+        }
         if ((!this.generateRubyCode.isPresent()) || this.generateRubyCode.get()) {
             this.createBootstrap(project);
         }
+        final List<Path> files = this.listFiles(project);
+        this.checkSizeBudget(project, logger, files);
         if ((!this.generateGemspec.isPresent()) || this.generateGemspec.get()) {
-            this.createGemspec(project, this.listFiles(project));
+            this.createGemspec(project, files);
         }
 
         final ArrayList<String> args = new ArrayList<>();
@@ -199,6 +234,7 @@ class Gem extends AbstractArchiveTask {
         return new GemCopyAction(
                 this.getWorkingDir(project).resolve(project.getName() + "-" + this.getArchiveVersion().get() + "-java.gem"),
                 this.getArchiveFile(),
+                this.writesChecksums,
                 project);
     }
 
@@ -242,6 +278,51 @@ class Gem extends AbstractArchiveTask {
         return this.generateRubyCode;
     }
 
+    @Input
+    public Property<Boolean> getListClasspathInRubyCode() {
+        return this.listClasspathInRubyCode;
+    }
+
+    /**
+     * Files in the order to be listed in the bootstrap Ruby code if {@code listClasspathInRubyCode} is true.
+     *
+     * <p>They are inputs through the copy spec. Only their order is used here.
+     */
+    @Internal
+    ConfigurableFileCollection getClasspathOrder() {
+        return this.classpathOrder;
+    }
+
+    /**
+     * JAR files to be materialized in /classpath from the JAR store at {@code jarStoreDirectory}, instead of copies.
+     */
+    @InputFiles
+    ConfigurableFileCollection getStoredClasspath() {
+        return this.storedClasspath;
+    }
+
+    @Internal
+    DirectoryProperty getJarStoreDirectory() {
+        return this.jarStoreDirectory;
+    }
+
+    @Internal
+    Property<Long> getJarStoreMaxBytes() {
+        return this.jarStoreMaxBytes;
+    }
+
+    @Input
+    @Optional
+    public Property<Long> getMaxTotalBytes() {
+        return this.maxTotalBytes;
+    }
+
+    @Input
+    @Optional
+    public Property<Long> getMaxBytesPerJar() {
+        return this.maxBytesPerJar;
+    }
+
     @Input
     public Property<Boolean> getGenerateGemspec() {
         return this.generateGemspec;
@@ -289,6 +370,14 @@ class Gem extends AbstractArchiveTask {
         }
     }
 
+    void setWritesChecksums(final boolean writesChecksums) {
+        this.writesChecksums = writesChecksums;
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
     void setEmbulkPluginMainClass(final String embulkPluginMainClass) {
         this.embulkPluginMainClass.set(embulkPluginMainClass);
     }
@@ -359,16 +448,189 @@ class Gem extends AbstractArchiveTask {
             throw new GradleException("Failed to create the directory: " + dirPath.toString(), ex);
         }
 
+        final List<String> jarNames;
+        if (this.listClasspathInRubyCode.getOrElse(false)) {
+            jarNames = this.listClasspathJarNames(project);
+        } else {
+            jarNames = null;
+        }
+
+        // A thin gem has "classpath.lock" copied at its root.
+        final boolean locked = Files.isRegularFile(this.getWorkingDir(project).resolve("classpath.lock"));
+
         final Path filePath = dirPath.resolve(this.embulkPluginType.get() + ".rb");
         try (final PrintWriter writer = new PrintWriter(Files.newOutputStream(filePath, StandardOpenOption.CREATE_NEW))) {
-            writer.println("Embulk::JavaPlugin.register_" + this.embulkPluginCategory.get() + "(");
-            writer.println("  \"" + this.embulkPluginType.get() + "\", \"" + this.embulkPluginMainClass.get() + "\",");
-            writer.println("  File.expand_path(\"../../../../classpath\", __FILE__))");
+            for (final String line : renderBootstrap(
+                    this.embulkPluginCategory.get(), this.embulkPluginType.get(), this.embulkPluginMainClass.get(), jarNames, locked)) {
+                writer.println(line);
+            }
         } catch (final IOException ex) {
             throw new GradleException("Failed to create/write to the bootstrap Ruby file: " + filePath.toString(), ex);
         }
     }
 
+    /**
+     * Renders the bootstrap Ruby code to register the plugin.
+     *
+     * <p>If {@code locked}, it refuses to load the plugin unless JARs in {@code /classpath.lock} are resolved into
+     * {@code /classpath} next to the plugin JAR, instead of failing later with {@code NoClassDefFoundError}.
+     *
+     * @param jarNames  file names of JARs in /classpath in the order of the classpath, or {@code null} to register with the directory
+     * @param locked  {@code true} for a thin gem with {@code /classpath.lock}
+     */
+    static List<String> renderBootstrap(
+            final String category, final String type, final String mainClass, final List<String> jarNames, final boolean locked) {
+        final ArrayList<String> lines = new ArrayList<>();
+        if (locked) {
+            lines.add("# No released Embulk resolves dependencies in classpath.lock. They must be put in classpath/ before loading.");
+            lines.add("lock = File.expand_path(\"../../../../classpath.lock\", __FILE__)");
+            lines.add("locked = File.readlines(lock).count { |line| !line.start_with?(\"#\") && !line.strip.empty? }");
+            lines.add("if Dir.glob(File.join(File.expand_path(\"../../../../classpath\", __FILE__), \"*.jar\")).size <= locked");
+            lines.add("  raise LoadError, \"Dependencies of the thin gem in #{lock} are not resolved into classpath/.\"");
+            lines.add("end");
+        }
+        lines.add("Embulk::JavaPlugin.register_" + category + "(");
+        lines.add("  \"" + type + "\", \"" + mainClass + "\",");
+        if (jarNames == null) {
+            lines.add("  File.expand_path(\"../../../../classpath\", __FILE__))");
+            return Collections.unmodifiableList(lines);
+        }
+        lines.add("  [");
+        for (final String jarName : jarNames) {
+            lines.add("    File.expand_path(\"../../../../classpath/" + jarName + "\", __FILE__),");
+        }
+        lines.add("  ].freeze)");
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Lists JAR files copied in /classpath, in the same order as {@code Embulk-Plugin-Classpath} in the manifest.
+     *
+     * @see GenerateClasspathManifest#inClasspathOrder
+     */
+    private List<String> listClasspathJarNames(final Project project) {
+        final Path classpathDir = this.getWorkingDir(project).resolve("classpath");
+        if (!Files.isDirectory(classpathDir)) {
+            return Collections.emptyList();
+        }
+        final ArrayList<File> copied = new ArrayList<>();
+        try {
+            try (final DirectoryStream<Path> jars = Files.newDirectoryStream(classpathDir, "*.jar")) {
+                for (final Path jar : jars) {
+                    copied.add(jar.toFile());
+                }
+            }
+            final ArrayList<String> jarNames = new ArrayList<>();
+            for (final File jar : GenerateClasspathManifest.inClasspathOrder(copied, this.classpathOrder.getFiles())) {
+                jarNames.add(jar.getName());
+            }
+            return Collections.unmodifiableList(jarNames);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to list JAR files in the directory: " + classpathDir.toString(), ex);
+        }
+    }
+
+    private void materializeStoredClasspath(final Project project, final Logger logger) {
+        final Path classpathDir = this.getWorkingDir(project).resolve("classpath");
+        final Path storeDir = this.jarStoreDirectory.get().getAsFile().toPath();
+        final JarStore store;
+        int evicted = 0;
+        try {
+            store = JarStore.open(storeDir);
+            Files.createDirectories(classpathDir);
+            for (final File file : this.storedClasspath.getFiles()) {
+                if (file.isFile()) {
+                    store.materialize(file.toPath(), classpathDir.resolve(file.getName()));
+                }
+            }
+            if (this.jarStoreMaxBytes.isPresent()) {
+                evicted = store.evict(this.jarStoreMaxBytes.get());
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to materialize JARs from the JAR store: " + storeDir.toString(), ex);
+        }
+
+        final int used = store.getHits() + store.getMisses();
+        final double hitRate = used == 0 ? 0.0 : (store.getHits() * 100.0 / used);
+        final Path reportPath = project.getLayout().getBuildDirectory().file("reports/embulk/jarStore.txt").get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                writer.println("Store: " + storeDir.toString());
+                writer.println(String.format("Stored: %d JARs, %d bytes%s", store.getStoredJars(), store.getStoredBytes(),
+                        this.jarStoreMaxBytes.isPresent() ? (" (max: " + this.jarStoreMaxBytes.get() + " bytes)") : ""));
+                writer.println(String.format("Materialized: %d JARs, %d hits, %d misses (hit rate: %.1f%%), %d hard links, %d copies",
+                        used, store.getHits(), store.getMisses(), hitRate, store.getLinks(), used - store.getLinks()));
+                writer.println(String.format("Evicted: %d least-recently-used JARs", evicted));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+        logger.lifecycle("Materialized {} JARs from the JAR store with a hit rate of {}%. See: {}",
+                         used, String.format("%.1f", hitRate), reportPath);
+    }
+
+    /**
+     * Reports sizes of the gem contents with dependency paths pulling JARs in /classpath, and checks them with the budget.
+     */
+    private void checkSizeBudget(final Project project, final Logger logger, final List<Path> files) {
+        final Path root = this.getWorkingDir(project);
+        final Map<String, String> attributed;
+        if (this.runtimeClasspath != null) {
+            attributed = DependencyPaths.attributeFileNames(this.runtimeClasspath);
+        } else {
+            attributed = Collections.emptyMap();
+        }
+
+        long totalBytes = 0L;
+        final ArrayList<Map.Entry<String, Long>> jars = new ArrayList<>();
+        for (final Path file : files) {
+            final long size;
+            try {
+                size = Files.size(root.resolve(file));
+            } catch (final IOException ex) {
+                throw new GradleException("Failed to get the size of: " + file.toString(), ex);
+            }
+            totalBytes += size;
+            final String path = pathToStringWithSlashes(file);
+            if (path.startsWith("classpath/") && path.endsWith(".jar")) {
+                jars.add(new AbstractMap.SimpleImmutableEntry<>(path.substring("classpath/".length()), size));
+            }
+        }
+        jars.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        final ArrayList<String> violations = new ArrayList<>();
+        if (this.maxTotalBytes.isPresent() && totalBytes > this.maxTotalBytes.get()) {
+            violations.add("Total " + totalBytes + " bytes exceeds \"maxTotalBytes\" " + this.maxTotalBytes.get() + " bytes.");
+        }
+
+        final Path reportPath = project.getLayout().getBuildDirectory().file("reports/embulk/gemSize.txt").get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                writer.println(String.format("Total: %d bytes in %d files%s", totalBytes, files.size(),
+                        this.maxTotalBytes.isPresent() ? (" (budget: " + this.maxTotalBytes.get() + " bytes)") : ""));
+                for (final Map.Entry<String, Long> jar : jars) {
+                    final String attribution = attributed.get(jar.getKey());
+                    writer.println(String.format("%12d  classpath/%s%s",
+                            jar.getValue(), jar.getKey(), attribution == null ? "" : ("  " + attribution)));
+                    if (this.maxBytesPerJar.isPresent() && jar.getValue() > this.maxBytesPerJar.get()) {
+                        violations.add("classpath/" + jar.getKey() + " " + jar.getValue() + " bytes exceeds \"maxBytesPerJar\" "
+                                       + this.maxBytesPerJar.get() + " bytes." + (attribution == null ? "" : (" Pulled by: " + attribution)));
+                    }
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        if (!violations.isEmpty()) {
+            throw new GradleException("The gem exceeds its size budget. See: " + reportPath.toString() + "\n    "
+                                      + String.join("\n    ", violations));
+        }
+        logger.lifecycle("The gem contains {} bytes in {} files. See: {}", totalBytes, files.size(), reportPath);
+    }
+
     private List<Path> listFiles(final Project project) {
         final ArrayList<Path> files = new ArrayList<>();
 
@@ -397,7 +659,7 @@ class Gem extends AbstractArchiveTask {
         }
     }
 
-    private Path getWorkingDir(final Project project) {
+    Path getWorkingDir(final Project project) {
         return ((File) project.property("buildDir")).toPath().resolve("gemContents").normalize();
     }
 
@@ -507,7 +769,17 @@ class Gem extends AbstractArchiveTask {
     private final MapProperty<String, String> metadata;
 
     private final Property<Boolean> generateRubyCode;
+    private final Property<Boolean> listClasspathInRubyCode;
+    private final ConfigurableFileCollection classpathOrder;
+    private final ConfigurableFileCollection storedClasspath;
+    private final DirectoryProperty jarStoreDirectory;
+    private final Property<Long> jarStoreMaxBytes;
+    private final Property<Long> maxTotalBytes;
+    private final Property<Long> maxBytesPerJar;
     private final Property<Boolean> generateGemspec;
 
     private final Property<Object> jruby;
+
+    private Configuration runtimeClasspath;
+    private boolean writesChecksums;
 }
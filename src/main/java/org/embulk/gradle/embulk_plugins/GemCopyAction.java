@@ -32,9 +32,11 @@ class GemCopyAction implements CopyAction {
     public GemCopyAction(
             final Path sourceGemFilePath,
             final Provider<RegularFile> destinationGemFile,
+            final boolean writesChecksums,
             final Project project) {
         this.sourceGemFilePath = sourceGemFilePath;
         this.destinationGemFile = destinationGemFile;
+        this.writesChecksums = writesChecksums;
         this.project = project;
     }
 
@@ -55,10 +57,20 @@ class GemCopyAction implements CopyAction {
                 project.getProjectDir().toPath().relativize(this.sourceGemFilePath),
                 project.getProjectDir().toPath().relativize(destinationGemFilePath));
 
+        if (this.writesChecksums) {
+            // The gem is moved, not copied. It is read only once for all the digests.
+            try {
+                ArtifactDigests.of(destinationGemFilePath).writeSidecars(destinationGemFilePath);
+            } catch (final IOException ex) {
+                throw new GradleException("Failed to write checksums of the gem file: " + destinationGemFilePath.toString(), ex);
+            }
+        }
+
         return WorkResults.didWork(true);
     }
 
     private final Path sourceGemFilePath;
     private final Provider<RegularFile> destinationGemFile;
+    private final boolean writesChecksums;
     private final Project project;
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to compare the contents of a gem with a base gem, such as the previous release.
+ *
+ * <p>It streams both gems without extracting them, and reports JARs in {@code classpath/} added, removed, and changed
+ * with their size deltas, and the change of the total payload in {@code data.tar.gz}. A JAR whose version is bumped,
+ * such as {@code foo-1.0.jar} to {@code foo-1.1.jar}, is reported as changed.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code gemDiff {
+ *   baseGem = file("embulk-input-example-0.1.0-java.gem")
+ *   maxGrowthPercent = 10.0  // Default: unset not to fail
+ *   maxGrowthBytes = 1048576  // Default: unset not to fail
+ * }}</pre>
+ */
+abstract class GemDiff extends DefaultTask {
+    @Inject
+    public GemDiff() {
+        super();
+
+        this.setDescription("Compares JARs and sizes in the built gem with a base gem, such as the previous release.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.maxGrowthPercent = objectFactory.property(Double.class);
+        this.maxGrowthBytes = objectFactory.property(Long.class);
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/gemDiff.txt"));
+    }
+
+    @InputFile
+    abstract RegularFileProperty getGem();
+
+    @InputFile
+    abstract RegularFileProperty getBaseGem();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    @Optional
+    public Property<Double> getMaxGrowthPercent() {
+        return this.maxGrowthPercent;
+    }
+
+    @Input
+    @Optional
+    public Property<Long> getMaxGrowthBytes() {
+        return this.maxGrowthBytes;
+    }
+
+    @TaskAction
+    public void diff() {
+        final Logger logger = this.getProject().getLogger();
+
+        final Path gemPath = this.getGem().get().getAsFile().toPath();
+        final Path baseGemPath = this.getBaseGem().get().getAsFile().toPath();
+
+        final Contents base;
+        final Contents current;
+        try {
+            base = Contents.read(baseGemPath);
+            current = Contents.read(gemPath);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read the gems: " + baseGemPath.toString() + ", " + gemPath.toString(), ex);
+        }
+
+        final List<String> changes = diff(base, current);
+        final long growth = current.payloadBytes - base.payloadBytes;
+        final double growthPercent = base.payloadBytes == 0L ? 0.0 : (growth * 100.0 / base.payloadBytes);
+        final String summary = String.format(
+                "Total payload: %d -> %d bytes (%+d bytes, %+.1f%%), gem file: %d -> %d bytes (%+d bytes)",
+                base.payloadBytes, current.payloadBytes, growth, growthPercent,
+                base.gemBytes, current.gemBytes, current.gemBytes - base.gemBytes);
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                writer.println(baseGemPath.getFileName() + " -> " + gemPath.getFileName());
+                for (final String change : changes) {
+                    writer.println(change);
+                }
+                writer.println(summary);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle("{} JAR change(s) from {}. {}. See: {}", changes.size(), baseGemPath.getFileName(), summary, reportPath);
+
+        if (this.maxGrowthBytes.isPresent() && growth > this.maxGrowthBytes.get()) {
+            throw new GradleException(String.format(
+                    "The gem payload grew by %d bytes, more than \"maxGrowthBytes\" %d. See: %s", growth, this.maxGrowthBytes.get(), reportPath));
+        }
+        if (this.maxGrowthPercent.isPresent() && growthPercent > this.maxGrowthPercent.get()) {
+            throw new GradleException(String.format(
+                    "The gem payload grew by %.1f%%, more than \"maxGrowthPercent\" %.1f%%. See: %s",
+                    growthPercent, this.maxGrowthPercent.get(), reportPath));
+        }
+    }
+
+    /**
+     * Returns changes of JARs in {@code classpath/}, in the order of removed, changed, and added.
+     */
+    static List<String> diff(final Contents base, final Contents current) {
+        final LinkedHashMap<String, Jar> removed = new LinkedHashMap<>(base.jars);
+        final LinkedHashMap<String, Jar> added = new LinkedHashMap<>();
+        final ArrayList<String> changed = new ArrayList<>();
+
+        for (final Jar jar : current.jars.values()) {
+            final Jar same = removed.remove(jar.name);
+            if (same == null) {
+                added.put(jar.name, jar);
+            } else if (same.size != jar.size || !same.sha256.equals(jar.sha256)) {
+                changed.add(String.format("~ %s: %d -> %d bytes (%+d bytes)", jar.name, same.size, jar.size, jar.size - same.size));
+            }
+        }
+
+        // JARs with only different versions are paired.
+        final LinkedHashMap<String, Jar> removedByKey = new LinkedHashMap<>();
+        for (final Jar jar : removed.values()) {
+            removedByKey.putIfAbsent(versionlessKey(jar.name), jar);
+        }
+        for (final Jar jar : new ArrayList<>(added.values())) {
+            final Jar previous = removedByKey.remove(versionlessKey(jar.name));
+            if (previous != null) {
+                removed.remove(previous.name);
+                added.remove(jar.name);
+                changed.add(String.format(
+                        "~ %s -> %s: %d -> %d bytes (%+d bytes)", previous.name, jar.name, previous.size, jar.size, jar.size - previous.size));
+            }
+        }
+
+        final ArrayList<String> changes = new ArrayList<>();
+        for (final Jar jar : removed.values()) {
+            changes.add(String.format("- %s: %d bytes (%+d bytes)", jar.name, jar.size, -jar.size));
+        }
+        changes.addAll(changed);
+        for (final Jar jar : added.values()) {
+            changes.add(String.format("+ %s: %d bytes (%+d bytes)", jar.name, jar.size, jar.size));
+        }
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Returns a JAR file name without its version, such as {@code "jffi-native"} for {@code "jffi-1.2.23-native.jar"}.
+     */
+    static String versionlessKey(final String jarName) {
+        final Matcher matcher = VERSIONED_JAR.matcher(jarName);
+        if (!matcher.matches()) {
+            return jarName;
+        }
+        return matcher.group(1) + (matcher.group(2) == null ? "" : matcher.group(2));
+    }
+
+    /**
+     * JARs in {@code classpath/} and sizes of a gem.
+     */
+    static final class Contents {
+        private Contents(final Map<String, Jar> jars, final long payloadBytes, final long gemBytes) {
+            this.jars = Collections.unmodifiableMap(jars);
+            this.payloadBytes = payloadBytes;
+            this.gemBytes = gemBytes;
+        }
+
+        static Contents read(final Path gem) throws IOException {
+            final LinkedHashMap<String, Jar> jars = new LinkedHashMap<>();
+            long payloadBytes = 0L;
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try (final InputStream in = new BufferedInputStream(Files.newInputStream(gem), BUFFER_SIZE)) {
+                final TarReader tar = new TarReader(in);
+                TarReader.Entry entry;
+                while ((entry = tar.next()) != null) {
+                    if (!entry.getName().equals("data.tar.gz")) {
+                        continue;
+                    }
+                    final TarReader data = new TarReader(new GZIPInputStream(tar.getInputStream(), BUFFER_SIZE));
+                    TarReader.Entry file;
+                    while ((file = data.next()) != null) {
+                        if (!file.isFile()) {
+                            continue;
+                        }
+                        payloadBytes += file.getSize();
+                        final String name = file.getName();
+                        if (name.startsWith("classpath/") && name.endsWith(".jar")) {
+                            final MessageDigest digest = newSha256();
+                            final InputStream jar = data.getInputStream();
+                            int read;
+                            while ((read = jar.read(buffer)) >= 0) {
+                                digest.update(buffer, 0, read);
+                            }
+                            final String jarName = name.substring("classpath/".length());
+                            jars.put(jarName, new Jar(jarName, file.getSize(), GenerateClasspathManifest.toHex(digest.digest())));
+                        }
+                    }
+                }
+            }
+            return new Contents(jars, payloadBytes, Files.size(gem));
+        }
+
+        long getPayloadBytes() {
+            return this.payloadBytes;
+        }
+
+        private final Map<String, Jar> jars;
+        private final long payloadBytes;
+        private final long gemBytes;
+    }
+
+    private static final class Jar {
+        private Jar(final String name, final long size, final String sha256) {
+            this.name = name;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        private final String name;
+        private final long size;
+        private final String sha256;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is unavailable unexpectedly.", ex);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 65536;
+
+    // "<name>-<version>[-<classifier>].jar" where a version starts with a digit, and a classifier starts with a letter.
+    private static final Pattern VERSIONED_JAR = Pattern.compile("(.+?)-\\d[^-]*(?:-\\d[^-]*)*(-[A-Za-z][A-Za-z0-9_.-]*)?\\.jar");
+
+    private final Property<Double> maxGrowthPercent;
+    private final Property<Long> maxGrowthBytes;
+}
@@ -0,0 +1,584 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to verify a built gem without JRuby.
+ *
+ * <p>It streams the gem, a tar of {@code metadata.gz}, {@code data.tar.gz}, and {@code checksums.yaml.gz}, only once.
+ * It verifies:
+ *
+ * <ul>
+ * <li>SHA-256 (or SHA-512) digests of {@code metadata.gz} and {@code data.tar.gz} in {@code checksums.yaml.gz}
+ * <li>{@code files} in the gem specification against the files actually in {@code data.tar.gz}
+ * <li>{@code Embulk-Plugin-Main-Class}, {@code Embulk-Plugin-Category}, and {@code Embulk-Plugin-Type} in the plugin
+ *     JAR's manifest against the main class in the JAR, and the bootstrap Ruby code {@code lib/embulk/<category>/<type>.rb}
+ * <li>JAR files referred from the bootstrap Ruby code, and JAR files listed with their sizes and digests in
+ *     {@code Embulk-Plugin-Classpath} if {@code checksClasspathManifest} is true
+ * </ul>
+ *
+ * <p>JAR files in the gem are not extracted on disk, and only the plugin JAR is inflated in memory.
+ */
+abstract class GemVerify extends DefaultTask {
+    @Inject
+    public GemVerify() {
+        super();
+
+        this.setDescription("Verifies checksums, the specification, the bootstrap Ruby code, and JARs of the built gem.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.pluginJarName = objectFactory.property(String.class);
+        this.checksClasspathManifest = objectFactory.property(Boolean.class);
+        this.checksClasspathManifest.convention(true);
+
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/gemVerify.txt"));
+    }
+
+    @InputFile
+    abstract RegularFileProperty getGem();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    /**
+     * The file name of the plugin JAR in {@code classpath/}. It is guessed from the gem name if not set.
+     */
+    @Input
+    @Optional
+    public Property<String> getPluginJarName() {
+        return this.pluginJarName;
+    }
+
+    /**
+     * If true, JARs in {@code Embulk-Plugin-Classpath} are verified against JARs in the gem's {@code classpath/}.
+     */
+    @Input
+    public Property<Boolean> getChecksClasspathManifest() {
+        return this.checksClasspathManifest;
+    }
+
+    @TaskAction
+    public void verify() {
+        final Logger logger = this.getProject().getLogger();
+
+        final Path gemPath = this.getGem().get().getAsFile().toPath();
+
+        final long started = System.nanoTime();
+        final Verified verified;
+        try {
+            verified = verify(gemPath, this.pluginJarName.getOrNull(), this.checksClasspathManifest.get());
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read the gem: " + gemPath.toString(), ex);
+        }
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                writer.println(gemPath.getFileName() + ": " + verified.files + " files, " + verified.dataBytes + " bytes");
+                for (final String problem : verified.problems) {
+                    writer.println("ERROR: " + problem);
+                }
+                writer.println(verified.problems.isEmpty() ? "OK" : (verified.problems.size() + " problem(s)"));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        if (!verified.problems.isEmpty()) {
+            throw new GradleException(
+                    "The gem is inconsistent: " + gemPath.toString() + "\n    " + String.join("\n    ", verified.problems));
+        }
+        logger.lifecycle("Verified {} files in the gem in {} ms. See: {}", verified.files, elapsedMillis, reportPath);
+    }
+
+    static final class Verified {
+        private Verified(final List<String> problems, final int files, final long dataBytes) {
+            this.problems = Collections.unmodifiableList(problems);
+            this.files = files;
+            this.dataBytes = dataBytes;
+        }
+
+        List<String> getProblems() {
+            return this.problems;
+        }
+
+        int getFiles() {
+            return this.files;
+        }
+
+        private final List<String> problems;
+        private final int files;
+        private final long dataBytes;
+    }
+
+    /**
+     * Verifies a gem in a single pass over the file.
+     *
+     * @param pluginJarName  the file name of the plugin JAR in {@code classpath/}, or {@code null} to guess from the gem name
+     */
+    static Verified verify(final Path gem, final String pluginJarName, final boolean checksClasspathManifest) throws IOException {
+        final ArrayList<String> problems = new ArrayList<>();
+
+        final HashMap<String, Map<String, String>> actualDigests = new HashMap<>();
+        Map<String, Map<String, String>> checksums = null;
+        Spec spec = null;
+        Data data = null;
+
+        try (final InputStream in = new BufferedInputStream(Files.newInputStream(gem), BUFFER_SIZE)) {
+            final TarReader tar = new TarReader(in);
+            TarReader.Entry entry;
+            while ((entry = tar.next()) != null) {
+                switch (entry.getName()) {
+                    case "metadata.gz": {
+                        final Digests digests = new Digests(tar.getInputStream());
+                        spec = Spec.parse(readGzippedLines(digests.getInputStream()));
+                        actualDigests.put(entry.getName(), digests.finish());
+                        break;
+                    }
+                    case "data.tar.gz": {
+                        final Digests digests = new Digests(tar.getInputStream());
+                        final String guessedPluginJarName;
+                        if (pluginJarName != null) {
+                            guessedPluginJarName = pluginJarName;
+                        } else {
+                            guessedPluginJarName = spec == null ? null : spec.name + "-";
+                        }
+                        data = Data.read(new GZIPInputStream(digests.getInputStream(), BUFFER_SIZE),
+                                         pluginJarName != null, guessedPluginJarName, checksClasspathManifest);
+                        actualDigests.put(entry.getName(), digests.finish());
+                        break;
+                    }
+                    case "checksums.yaml.gz":
+                        checksums = parseChecksums(readGzippedLines(tar.getInputStream()));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (spec == null) {
+            problems.add("metadata.gz is not found.");
+        }
+        if (data == null) {
+            problems.add("data.tar.gz is not found.");
+        }
+        if (checksums == null) {
+            problems.add("checksums.yaml.gz is not found.");
+        } else {
+            verifyChecksums(checksums, actualDigests, problems);
+        }
+        if (spec == null || data == null) {
+            return new Verified(problems, 0, 0L);
+        }
+
+        verifySpec(gem, spec, data, problems);
+        verifyPlugin(data, checksClasspathManifest, problems);
+
+        return new Verified(problems, data.sizes.size(), data.bytes);
+    }
+
+    private static void verifyChecksums(
+            final Map<String, Map<String, String>> checksums,
+            final Map<String, Map<String, String>> actualDigests,
+            final List<String> problems) {
+        for (final String name : new String[] { "metadata.gz", "data.tar.gz" }) {
+            final Map<String, String> actual = actualDigests.get(name);
+            if (actual == null) {
+                continue;
+            }
+            boolean verified = false;
+            for (final Map.Entry<String, String> algorithm : actual.entrySet()) {
+                final Map<String, String> expected = checksums.get(algorithm.getKey());
+                if (expected == null || !expected.containsKey(name)) {
+                    continue;
+                }
+                if (!expected.get(name).equalsIgnoreCase(algorithm.getValue())) {
+                    problems.add(algorithm.getKey() + " of " + name + " mismatches with checksums.yaml.gz: expected "
+                                 + expected.get(name) + ", actual " + algorithm.getValue());
+                }
+                verified = true;
+            }
+            if (!verified) {
+                problems.add("checksums.yaml.gz has neither SHA256 nor SHA512 of " + name + ".");
+            }
+        }
+    }
+
+    private static void verifySpec(final Path gem, final Spec spec, final Data data, final List<String> problems) {
+        if (spec.name == null || spec.version == null) {
+            problems.add("The gem specification has no name or version.");
+        } else {
+            final String expectedFileName =
+                    spec.name + "-" + spec.version + (spec.platform == null || spec.platform.equals("ruby") ? "" : "-" + spec.platform) + ".gem";
+            if (!gem.getFileName().toString().equals(expectedFileName)) {
+                problems.add("The gem file name is expected to be " + expectedFileName + " from the gem specification.");
+            }
+        }
+
+        final HashSet<String> specFiles = new HashSet<>(spec.files);
+        for (final String file : spec.files) {
+            if (!data.sizes.containsKey(file)) {
+                problems.add("A file in the gem specification is not in data.tar.gz: " + file);
+            }
+        }
+        for (final String file : data.sizes.keySet()) {
+            if (!specFiles.contains(file)) {
+                problems.add("A file in data.tar.gz is not in the gem specification: " + file);
+            }
+        }
+    }
+
+    private static void verifyPlugin(final Data data, final boolean checksClasspathManifest, final List<String> problems)
+            throws IOException {
+        if (data.pluginJarName == null) {
+            problems.add("The plugin JAR is not found in classpath/.");
+            return;
+        }
+        final String pluginJarPath = "classpath/" + data.pluginJarName;
+
+        Manifest manifest = null;
+        final HashSet<String> classes = new HashSet<>();
+        try (final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data.pluginJar))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                if (zipEntry.getName().equals("META-INF/MANIFEST.MF")) {
+                    manifest = new Manifest(zip);
+                } else if (zipEntry.getName().endsWith(".class")) {
+                    classes.add(zipEntry.getName());
+                }
+            }
+        }
+        if (manifest == null) {
+            problems.add("The plugin JAR has no manifest: " + pluginJarPath);
+            return;
+        }
+
+        final Attributes attributes = manifest.getMainAttributes();
+        final String mainClass = attributes.getValue("Embulk-Plugin-Main-Class");
+        final String category = attributes.getValue("Embulk-Plugin-Category");
+        final String type = attributes.getValue("Embulk-Plugin-Type");
+        if (mainClass == null || category == null || type == null) {
+            problems.add("The plugin JAR's manifest lacks Embulk-Plugin-Main-Class, Embulk-Plugin-Category, or Embulk-Plugin-Type: "
+                         + pluginJarPath);
+            return;
+        }
+        if (!classes.contains(mainClass.replace('.', '/') + ".class")) {
+            problems.add("Embulk-Plugin-Main-Class is not found in the plugin JAR: " + mainClass);
+        }
+
+        final String bootstrapPath = "lib/embulk/" + category + "/" + type + ".rb";
+        final String bootstrap = data.rubyFiles.get(bootstrapPath);
+        if (bootstrap == null) {
+            problems.add("The bootstrap Ruby code is not found for Embulk-Plugin-Category and Embulk-Plugin-Type: " + bootstrapPath);
+        } else if (bootstrap.contains("Embulk::JavaPlugin.register_")) {
+            if (!bootstrap.contains("Embulk::JavaPlugin.register_" + category + "(")
+                    || !bootstrap.contains("\"" + type + "\", \"" + mainClass + "\"")) {
+                problems.add("The bootstrap Ruby code does not register " + category + " \"" + type + "\" with " + mainClass);
+            }
+            final Matcher matcher = CLASSPATH_JAR_IN_RUBY.matcher(bootstrap);
+            while (matcher.find()) {
+                if (!data.sizes.containsKey(matcher.group(1))) {
+                    problems.add("A JAR in the bootstrap Ruby code is not in the gem: " + matcher.group(1));
+                }
+            }
+        }
+
+        final String classpath = attributes.getValue("Embulk-Plugin-Classpath");
+        if (checksClasspathManifest && classpath != null && !classpath.trim().isEmpty()) {
+            for (final String jarName : classpath.trim().split(" +")) {
+                final String jarPath = "classpath/" + jarName;
+                final Long size = data.sizes.get(jarPath);
+                if (size == null) {
+                    problems.add("A JAR in Embulk-Plugin-Classpath is not in the gem: " + jarPath);
+                    continue;
+                }
+                final Attributes section = manifest.getAttributes(jarPath);
+                if (section == null) {
+                    continue;
+                }
+                final String expectedSize = section.getValue("Embulk-Plugin-Artifact-Size");
+                if (expectedSize != null && !expectedSize.equals(Long.toString(size))) {
+                    problems.add("The size of " + jarPath + " mismatches with the manifest: expected " + expectedSize + ", actual " + size);
+                }
+                final String expectedDigest = section.getValue("Embulk-Plugin-Artifact-SHA-256");
+                final String actualDigest = data.jarDigests.get(jarPath);
+                if (expectedDigest != null && actualDigest != null && !expectedDigest.equalsIgnoreCase(actualDigest)) {
+                    problems.add("SHA-256 of " + jarPath + " mismatches with the manifest: expected " + expectedDigest + ", actual " + actualDigest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses {@code checksums.yaml} into algorithms to file names to digests.
+     *
+     * <pre>{@code ---
+     * SHA256:
+     *   metadata.gz: 0123...
+     *   data.tar.gz: 4567...}</pre>
+     */
+    static Map<String, Map<String, String>> parseChecksums(final List<String> lines) {
+        final LinkedHashMap<String, Map<String, String>> checksums = new LinkedHashMap<>();
+        Map<String, String> current = null;
+        for (final String line : lines) {
+            if (line.startsWith("---") || line.trim().isEmpty()) {
+                continue;
+            }
+            final int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            final String key = unquote(line.substring(0, colon).trim());
+            final String value = unquote(line.substring(colon + 1).trim());
+            if (!line.startsWith(" ")) {
+                current = new LinkedHashMap<>();
+                checksums.put(key, current);
+            } else if (current != null) {
+                current.put(key, value);
+            }
+        }
+        return checksums;
+    }
+
+    private static List<String> readGzippedLines(final InputStream in) throws IOException {
+        final ArrayList<String> lines = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(in), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static String unquote(final String value) {
+        if (value.length() >= 2
+                && ((value.startsWith("\"") && value.endsWith("\"")) || (value.startsWith("'") && value.endsWith("'")))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * A minimal view of a gem specification in YAML, only with what is verified.
+     */
+    static final class Spec {
+        private Spec(final String name, final String version, final String platform, final List<String> files) {
+            this.name = name;
+            this.version = version;
+            this.platform = platform;
+            this.files = Collections.unmodifiableList(files);
+        }
+
+        /**
+         * Parses top-level {@code name}, {@code version}, {@code platform}, and {@code files} in YAML dumped by RubyGems.
+         */
+        static Spec parse(final List<String> lines) {
+            String name = null;
+            String version = null;
+            String platform = null;
+            final ArrayList<String> files = new ArrayList<>();
+            String key = null;
+            for (final String line : lines) {
+                if (line.startsWith("- ")) {
+                    if ("files".equals(key)) {
+                        files.add(unquote(line.substring(2).trim()));
+                    }
+                    continue;
+                }
+                final int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                final String value = unquote(line.substring(colon + 1).trim());
+                if (!line.startsWith(" ")) {
+                    key = line.substring(0, colon);
+                    if (key.equals("name")) {
+                        name = value;
+                    } else if (key.equals("platform")) {
+                        platform = value;
+                    }
+                } else if ("version".equals(key) && line.trim().startsWith("version:")) {
+                    version = value;  // "version: !ruby/object:Gem::Version" is followed by "  version: X.Y.Z".
+                }
+            }
+            return new Spec(name, version, platform, files);
+        }
+
+        List<String> getFiles() {
+            return this.files;
+        }
+
+        private final String name;
+        private final String version;
+        private final String platform;
+        private final List<String> files;
+    }
+
+    /**
+     * What is read from {@code data.tar.gz} in a single pass.
+     */
+    private static final class Data {
+        private Data() {
+            this.sizes = new LinkedHashMap<>();
+            this.jarDigests = new HashMap<>();
+            this.rubyFiles = new HashMap<>();
+            this.bytes = 0L;
+        }
+
+        /**
+         * @param pluginJarName  the exact file name if {@code exact}, or the prefix to guess otherwise
+         */
+        static Data read(final InputStream in, final boolean exact, final String pluginJarName, final boolean digestsJars)
+                throws IOException {
+            final Data data = new Data();
+            final TarReader tar = new TarReader(in);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            TarReader.Entry entry;
+            while ((entry = tar.next()) != null) {
+                if (!entry.isFile()) {
+                    continue;
+                }
+                final String name = entry.getName();
+                data.sizes.put(name, entry.getSize());
+                data.bytes += entry.getSize();
+
+                if (name.startsWith("classpath/") && name.endsWith(".jar") && name.indexOf('/', "classpath/".length()) < 0) {
+                    final String jarName = name.substring("classpath/".length());
+                    final boolean isPluginJar = data.pluginJarName == null && pluginJarName != null
+                            && (exact ? jarName.equals(pluginJarName) : jarName.startsWith(pluginJarName));
+                    if (isPluginJar) {
+                        data.pluginJarName = jarName;
+                        data.pluginJar = ReachabilityAnalysis.readAllBytes(tar.getInputStream());
+                    } else if (digestsJars) {
+                        final MessageDigest digest = newMessageDigest("SHA-256");
+                        final InputStream jar = tar.getInputStream();
+                        int read;
+                        while ((read = jar.read(buffer)) >= 0) {
+                            digest.update(buffer, 0, read);
+                        }
+                        data.jarDigests.put(name, GenerateClasspathManifest.toHex(digest.digest()));
+                    }
+                } else if (name.startsWith("lib/") && name.endsWith(".rb")) {
+                    data.rubyFiles.put(name, new String(ReachabilityAnalysis.readAllBytes(tar.getInputStream()), StandardCharsets.UTF_8));
+                }
+            }
+            // Draining the rest so that the digests of data.tar.gz cover the whole.
+            while (in.read(buffer) >= 0) {
+                continue;
+            }
+            return data;
+        }
+
+        private final LinkedHashMap<String, Long> sizes;
+        private final HashMap<String, String> jarDigests;
+        private final HashMap<String, String> rubyFiles;
+        private long bytes;
+        private String pluginJarName;
+        private byte[] pluginJar;
+    }
+
+    /**
+     * Computes SHA256 and SHA512 of a stream at once, as RubyGems writes in {@code checksums.yaml.gz}.
+     */
+    private static final class Digests {
+        Digests(final InputStream in) {
+            this.sha256 = newMessageDigest("SHA-256");
+            this.sha512 = newMessageDigest("SHA-512");
+            this.in = new DigestInputStream(new DigestInputStream(in, this.sha256), this.sha512);
+        }
+
+        InputStream getInputStream() {
+            return this.in;
+        }
+
+        Map<String, String> finish() throws IOException {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (this.in.read(buffer) >= 0) {
+                continue;
+            }
+            final LinkedHashMap<String, String> digests = new LinkedHashMap<>();
+            digests.put("SHA256", GenerateClasspathManifest.toHex(this.sha256.digest()));
+            digests.put("SHA512", GenerateClasspathManifest.toHex(this.sha512.digest()));
+            return digests;
+        }
+
+        private final MessageDigest sha256;
+        private final MessageDigest sha512;
+        private final InputStream in;
+    }
+
+    private static MessageDigest newMessageDigest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(algorithm + " is unavailable unexpectedly.", ex);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final Pattern CLASSPATH_JAR_IN_RUBY = Pattern.compile("(classpath/[^\"'/]+\\.jar)");
+
+    private final Property<String> pluginJarName;
+    private final Property<Boolean> checksClasspathManifest;
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecResult;
+
+/**
+ * A Gradle task to generate a class list, and optionally a CDS archive, from a training run of Embulk with the plugin.
+ *
+ * <p>It runs {@code trainingMainClass} in a forked JVM with {@code embulkClasspath} followed by the main JAR and the
+ * plugin's runtime classpath, and dumps classes loaded with {@code -XX:DumpLoadedClassList}. It needs Java 11+.
+ *
+ * <p>If {@code createsArchive} is true, it dumps a CDS archive from the class list with {@code -Xshare:dump}, and then
+ * runs the training run twice with and without the archive to compare startup time. Note that a CDS archive works only
+ * with the same JVM and the same classpath, and that only classes loaded by the built-in class loaders are archived.
+ * Otherwise, {@code archiveFile} is unset, and no archive is written.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code repositories {
+ *   maven { url = file("/path/to/local/embulk/repository") }
+ * }
+ * configurations {
+ *   embulkTraining
+ * }
+ * dependencies {
+ *   embulkTraining "org.embulk:embulk-core:0.11.0"
+ * }
+ * embulkCdsArchive {
+ *   embulkClasspath.from(configurations.embulkTraining)
+ *   trainingMainClass = "org.embulk.cli.Main"  // Default
+ *   args = [ "run", "training.yml" ]
+ *   jvmArgs = [ "-Xmx1g" ]
+ *   createsArchive = true  // Default: false
+ * }}</pre>
+ */
+abstract class GenerateCdsArchive extends DefaultTask {
+    @Inject
+    public GenerateCdsArchive() {
+        super();
+
+        this.setDescription("Generates a class list and a CDS archive from a training run of Embulk with the plugin.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.trainingMainClass = objectFactory.property(String.class);
+        this.trainingMainClass.set("org.embulk.cli.Main");
+        this.args = objectFactory.listProperty(String.class);
+        this.jvmArgs = objectFactory.listProperty(String.class);
+        this.createsArchive = objectFactory.property(Boolean.class);
+        this.createsArchive.set(false);
+
+        this.getClassListFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("embulk/cds/classes.lst"));
+        this.getArchiveFile().convention(this.createsArchive.flatMap(createsArchive -> createsArchive
+                ? this.getProject().getLayout().getBuildDirectory().file("embulk/cds/classes.jsa")
+                : this.getProject().getObjects().fileProperty()));
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/cds.txt"));
+    }
+
+    /**
+     * The Embulk runtime to run the training, for example, resolved from a local file repository.
+     */
+    @Classpath
+    abstract ConfigurableFileCollection getEmbulkClasspath();
+
+    /**
+     * The main JAR and the runtime classpath of the plugin.
+     */
+    @Classpath
+    abstract ConfigurableFileCollection getPluginClasspath();
+
+    @OutputFile
+    abstract RegularFileProperty getClassListFile();
+
+    @Optional
+    @OutputFile
+    abstract RegularFileProperty getArchiveFile();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public Property<String> getTrainingMainClass() {
+        return this.trainingMainClass;
+    }
+
+    @Input
+    public ListProperty<String> getArgs() {
+        return this.args;
+    }
+
+    @Input
+    public ListProperty<String> getJvmArgs() {
+        return this.jvmArgs;
+    }
+
+    @Input
+    public Property<Boolean> getCreatesArchive() {
+        return this.createsArchive;
+    }
+
+    @TaskAction
+    public void generate() {
+        final Project project = this.getProject();
+        final Logger logger = project.getLogger();
+
+        if (this.getEmbulkClasspath().isEmpty()) {
+            throw new GradleException("\"embulkClasspath\" is not configured for \"" + this.getName() + "\".");
+        }
+
+        final boolean createsArchive = this.createsArchive.getOrElse(false);
+        if (createsArchive && !this.getArchiveFile().isPresent()) {
+            throw new GradleException("\"archiveFile\" is not configured for \"" + this.getName() + "\" with \"createsArchive\".");
+        }
+
+        final FileCollection classpath = this.getEmbulkClasspath().plus(this.getPluginClasspath());
+        final Path classList = this.getClassListFile().get().getAsFile().toPath();
+        final Path archive = this.getArchiveFile().isPresent() ? this.getArchiveFile().get().getAsFile().toPath() : null;
+        try {
+            prepareOutputs(classList, archive);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to prepare the directory: " + classList.getParent().toString(), ex);
+        }
+
+        final long trainingMillis = this.runJava(project, classpath, this.trainingMainClass.get(), this.args.get(), classListJvmArgs(classList));
+
+        final int numberOfClasses;
+        try {
+            numberOfClasses = countClasses(classList);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read the class list: " + classList.toString(), ex);
+        }
+        logger.lifecycle("Dumped {} classes loaded in the training run ({} ms) into: {}", numberOfClasses, trainingMillis, classList);
+
+        final ArrayList<String> report = new ArrayList<>();
+        report.add(String.format("Classes loaded in the training run: %d", numberOfClasses));
+        report.add(String.format("Training run with -Xshare:off: %d ms", trainingMillis));
+
+        if (createsArchive) {
+            // The JVM exits just after dumping the archive with "-Xshare:dump", without running the main class.
+            this.runJava(project, classpath, this.trainingMainClass.get(), new ArrayList<>(), archiveDumpJvmArgs(classList, archive));
+            if (!Files.isRegularFile(archive)) {
+                throw new GradleException("Failed to dump a CDS archive: " + archive.toString());
+            }
+
+            final long withoutArchiveMillis =
+                    this.runJava(project, classpath, this.trainingMainClass.get(), this.args.get(), archiveJvmArgs(null));
+            final long withArchiveMillis =
+                    this.runJava(project, classpath, this.trainingMainClass.get(), this.args.get(), archiveJvmArgs(archive));
+
+            report.add(String.format("Training run with the default CDS archive: %d ms", withoutArchiveMillis));
+            report.add(String.format("Training run with the generated CDS archive: %d ms", withArchiveMillis));
+            logger.lifecycle(
+                    "Generated a CDS archive: {}. Training run: {} ms without it, {} ms with it.",
+                    archive, withoutArchiveMillis, withArchiveMillis);
+        }
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final String line : report) {
+                    writer.println(line);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+    }
+
+    /**
+     * Creates the directory of the class list, and removes an archive left by a previous run.
+     *
+     * @param archive  the archive file, or {@code null} if no archive is created
+     */
+    static void prepareOutputs(final Path classList, final Path archive) throws IOException {
+        Files.createDirectories(classList.getParent());
+        if (archive != null) {
+            Files.createDirectories(archive.getParent());
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    static List<String> classListJvmArgs(final Path classList) {
+        return Arrays.asList("-Xshare:off", "-XX:DumpLoadedClassList=" + classList.toString());
+    }
+
+    static List<String> archiveDumpJvmArgs(final Path classList, final Path archive) {
+        return Arrays.asList("-Xshare:dump", "-XX:SharedClassListFile=" + classList.toString(), "-XX:SharedArchiveFile=" + archive.toString());
+    }
+
+    /**
+     * Returns JVM arguments to run with a CDS archive.
+     *
+     * @param archive  the archive file, or {@code null} to run with the default CDS archive of the JVM
+     */
+    static List<String> archiveJvmArgs(final Path archive) {
+        if (archive == null) {
+            return Collections.singletonList("-Xshare:auto");
+        }
+        return Arrays.asList("-Xshare:auto", "-XX:SharedArchiveFile=" + archive.toString());
+    }
+
+    /**
+     * Counts classes in a class list, excluding comments and directives such as {@code @lambda-proxy} of newer JVMs.
+     */
+    static int countClasses(final Path classList) throws IOException {
+        return (int) Files.readAllLines(classList, StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.isEmpty() && !line.startsWith("#") && !line.startsWith("@"))
+                .count();
+    }
+
+    private long runJava(
+            final Project project,
+            final FileCollection classpath,
+            final String mainClass,
+            final List<String> args,
+            final List<String> additionalJvmArgs) {
+        final ArrayList<String> jvmArgs = new ArrayList<>(this.jvmArgs.get());
+        jvmArgs.addAll(additionalJvmArgs);
+
+        final long started = System.nanoTime();
+        final ExecResult execResult = project.javaexec(javaExecSpec -> {
+            javaExecSpec.setClasspath(classpath);
+            javaExecSpec.setMain(mainClass);
+            javaExecSpec.setArgs(args);
+            javaExecSpec.setJvmArgs(jvmArgs);
+            javaExecSpec.setIgnoreExitValue(false);
+        });
+        execResult.assertNormalExitValue();
+        return (System.nanoTime() - started) / 1_000_000L;
+    }
+
+    private final Property<String> trainingMainClass;
+    private final ListProperty<String> args;
+    private final ListProperty<String> jvmArgs;
+    private final Property<Boolean> createsArchive;
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to generate an index from directories (packages) to JARs in the plugin's runtime classpath.
+ *
+ * <p>The index is embedded in the main JAR at {@link #INDEX_PATH}, and referred from the manifest attribute
+ * {@code Embulk-Plugin-Classpath-Index}. Embulk's plugin class loader can find JARs which may contain a class or
+ * a resource in one lookup by its directory, instead of probing all the JARs one by one.
+ *
+ * <p>The index is in a plain text format similar to {@code META-INF/INDEX.LIST} of the JAR specification. It is not
+ * named {@code INDEX.LIST} because {@link java.net.URLClassLoader} in Java 8 would interpret it by itself.
+ *
+ * <pre>{@code Embulk-Plugin-Classpath-Index-Version: 1
+ *
+ * foo-1.0.jar
+ * org/example/foo
+ * META-INF/services
+ *
+ * bar-2.0.jar
+ * org/example/bar
+ * META-INF/services}</pre>
+ *
+ * <p>Each section lists a JAR file name in the gem's {@code classpath/} in the classpath order, followed by
+ * directories containing any file in the JAR. Files at the root of a JAR are listed as the directory {@code "/"}.
+ */
+abstract class GenerateClasspathIndex extends DefaultTask {
+    @Inject
+    public GenerateClasspathIndex() {
+        super();
+
+        this.setDescription("Generates an index of packages in the Embulk plugin's runtime classpath.");
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/classpathIndex"));
+    }
+
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * Returns JARs in the classpath order, whose file names order JARs in {@link #getClasspath}.
+     */
+    @Internal
+    abstract ConfigurableFileCollection getClasspathOrder();
+
+    /**
+     * The directory to be included at the root of the main JAR.
+     */
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @TaskAction
+    public void generate() {
+        final Logger logger = this.getProject().getLogger();
+
+        final long started = System.nanoTime();
+
+        final List<Path> jars;
+        final Map<Path, TreeSet<String>> index;
+        try {
+            jars = GenerateClasspathManifest.inClasspathOrder(
+                            this.getClasspath().getFiles(), this.getClasspathOrder().getFiles()).stream()
+                    .map(File::toPath)
+                    .collect(Collectors.toList());
+            index = buildIndex(jars);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex);
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex.getCause());
+        }
+
+        final Path indexPath = this.getDestinationDirectory().get().getAsFile().toPath().resolve(INDEX_PATH);
+        try {
+            Files.createDirectories(indexPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8))) {
+                write(writer, index);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the classpath index: " + indexPath.toString(), ex);
+        }
+
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+        logger.lifecycle("Indexed {} JARs for the classpath index in {} ms.", jars.size(), elapsedMillis);
+    }
+
+    /**
+     * Builds an index from JARs to directories in them, in the classpath order.
+     */
+    static Map<Path, TreeSet<String>> buildIndex(final List<Path> jars) {
+        // Reading central directories is independent per JAR. Merging is done in the classpath order.
+        final List<TreeSet<String>> directoriesPerJar = jars.parallelStream().map(jar -> {
+            try {
+                final TreeSet<String> directories = new TreeSet<>();
+                for (final ZipCentralDirectory.Entry entry : ZipCentralDirectory.read(jar)) {
+                    if (entry.isDirectory() || entry.getName().equals("META-INF/MANIFEST.MF")) {
+                        continue;
+                    }
+                    final int lastSlash = entry.getName().lastIndexOf('/');
+                    directories.add(lastSlash < 0 ? "/" : entry.getName().substring(0, lastSlash));
+                }
+                return directories;
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).collect(Collectors.toList());
+
+        final LinkedHashMap<Path, TreeSet<String>> index = new LinkedHashMap<>();
+        for (int i = 0; i < jars.size(); i++) {
+            index.put(jars.get(i), directoriesPerJar.get(i));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    static void write(final PrintWriter writer, final Map<Path, TreeSet<String>> index) {
+        writer.print("Embulk-Plugin-Classpath-Index-Version: 1\n");
+        for (final Map.Entry<Path, TreeSet<String>> entry : index.entrySet()) {
+            writer.print("\n");
+            writer.print(entry.getKey().getFileName().toString() + "\n");
+            for (final String directory : entry.getValue()) {
+                writer.print(directory + "\n");
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(PrintWriter, Map)} into a map from a directory to JAR file names.
+     */
+    static Map<String, List<String>> read(final List<String> lines) {
+        final LinkedHashMap<String, List<String>> directories = new LinkedHashMap<>();
+        String jar = null;
+        for (final String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                jar = null;
+            } else if (jar == null) {
+                jar = line;
+            } else {
+                directories.computeIfAbsent(line, key -> new ArrayList<>(1)).add(jar);
+            }
+        }
+        return directories;
+    }
+
+    static final String INDEX_PATH = "META-INF/embulk/classpath.idx";
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to write JARs to be staged in the gem's {@code classpath/} into separate directories per layer of
+ * container images.
+ *
+ * <ul>
+ * <li>{@code dependencies/}: release versions of third-party dependencies, which rarely change among plugin releases
+ * <li>{@code snapshot-dependencies/}: {@code -SNAPSHOT} versions, project dependencies, and JARs rewritten by staging
+ *     tasks not to be attributed to a dependency, such as merged JARs
+ * <li>{@code plugin/}: the plugin JAR, which changes in every plugin release
+ * </ul>
+ *
+ * <p>All the files and directories are written with the same fixed modified time so that the same JARs make the same
+ * image layers. The directories are copied into the same {@code classpath/}, in the order from the most stable one,
+ * such as in {@code Dockerfile}:
+ *
+ * <pre>{@code COPY build/embulk/classpathLayers/dependencies/ /embulk/plugins/embulk-input-example/classpath/
+ * COPY build/embulk/classpathLayers/snapshot-dependencies/ /embulk/plugins/embulk-input-example/classpath/
+ * COPY build/embulk/classpathLayers/plugin/ /embulk/plugins/embulk-input-example/classpath/}</pre>
+ */
+abstract class GenerateClasspathLayers extends DefaultTask {
+    @Inject
+    public GenerateClasspathLayers() {
+        super();
+
+        this.setDescription("Writes JARs to be staged in the gem into separate directories per layer of container images.");
+
+        this.runtimeClasspath = null;
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/classpathLayers"));
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/classpathLayers.txt"));
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @InputFile
+    abstract RegularFileProperty getPluginJar();
+
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    @TaskAction
+    public void generate() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+        // Staging tasks keep file names of JARs unless they merge JARs.
+        final HashMap<String, String> layersByFileName = new HashMap<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            layersByFileName.put(artifact.getFile().getName(), layerOf(artifact.getId().getComponentIdentifier()));
+        }
+
+        final LinkedHashMap<Path, String> layers = new LinkedHashMap<>();
+        for (final File file : this.getClasspath().getFiles()) {
+            if (file.isFile()) {
+                layers.put(file.toPath(), layersByFileName.getOrDefault(file.getName(), SNAPSHOT_DEPENDENCIES));
+            }
+        }
+        layers.put(this.getPluginJar().get().getAsFile().toPath(), PLUGIN);
+
+        final Path destination = this.getDestinationDirectory().get().getAsFile().toPath();
+        try {
+            write(layers, destination);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write JARs into layers at: " + destination.toString(), ex);
+        }
+
+        final LinkedHashMap<String, long[]> totals = new LinkedHashMap<>();
+        for (final String layer : LAYERS) {
+            totals.put(layer, new long[2]);
+        }
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final Map.Entry<Path, String> jar : layers.entrySet()) {
+                    final long size = Files.size(jar.getKey());
+                    writer.println(String.format("%s/%s: %d bytes", jar.getValue(), jar.getKey().getFileName(), size));
+                    totals.get(jar.getValue())[0]++;
+                    totals.get(jar.getValue())[1] += size;
+                }
+                for (final Map.Entry<String, long[]> total : totals.entrySet()) {
+                    writer.println(String.format("Total of %s: %d JAR(s), %d bytes", total.getKey(), total.getValue()[0], total.getValue()[1]));
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle("Wrote {} JARs in {} layers at {}. See: {}", layers.size(), LAYERS.size(), destination, reportPath);
+    }
+
+    /**
+     * Returns the layer of a JAR from its component in the runtime classpath.
+     */
+    static String layerOf(final ComponentIdentifier id) {
+        if (id instanceof ModuleComponentIdentifier) {
+            final String version = ((ModuleComponentIdentifier) id).getVersion();
+            return version.endsWith("-SNAPSHOT") ? SNAPSHOT_DEPENDENCIES : DEPENDENCIES;
+        }
+        // Project dependencies and files change as often as the plugin itself.
+        return SNAPSHOT_DEPENDENCIES;
+    }
+
+    /**
+     * Copies JARs into directories of their layers under {@code destination}, with the fixed modified time.
+     *
+     * <p>Files in {@code destination} from a previous run are removed.
+     */
+    static void write(final Map<Path, String> layers, final Path destination) throws IOException {
+        if (Files.exists(destination)) {
+            Files.walkFileTree(destination, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(final Path dir, final IOException ex) throws IOException {
+                    if (ex != null) {
+                        throw ex;
+                    }
+                    if (!dir.equals(destination)) {
+                        Files.delete(dir);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        for (final String layer : LAYERS) {
+            Files.createDirectories(destination.resolve(layer));
+        }
+        for (final Map.Entry<Path, String> jar : layers.entrySet()) {
+            final Path target = destination.resolve(jar.getValue()).resolve(jar.getKey().getFileName().toString());
+            Files.copy(jar.getKey(), target, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(target, FIXED_TIME);
+        }
+        // Directories are touched after their files are written.
+        for (final String layer : LAYERS) {
+            Files.setLastModifiedTime(destination.resolve(layer), FIXED_TIME);
+        }
+    }
+
+    static final String DEPENDENCIES = "dependencies";
+    static final String SNAPSHOT_DEPENDENCIES = "snapshot-dependencies";
+    static final String PLUGIN = "plugin";
+
+    /**
+     * Layers in the order from the most stable one.
+     */
+    static final List<String> LAYERS = Collections.unmodifiableList(Arrays.asList(DEPENDENCIES, SNAPSHOT_DEPENDENCIES, PLUGIN));
+
+    /**
+     * 1980-01-01T00:00:00Z, the earliest time representable in ZIP, as used for reproducible archives.
+     */
+    static final FileTime FIXED_TIME = FileTime.fromMillis(315532800000L);
+
+    private Configuration runtimeClasspath;
+}
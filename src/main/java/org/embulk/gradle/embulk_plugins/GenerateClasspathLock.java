@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to generate a lock file of the plugin's first-level dependencies for a thin gem.
+ *
+ * <p>A thin gem contains only the plugin JAR in {@code classpath/}, and {@code classpath.lock} at its root instead
+ * of dependency JARs. Each line of the lock file is the Maven coordinates of a dependency in the classpath order,
+ * with its size and SHA-256 digest, such as:
+ *
+ * <pre>{@code org.example:foo:1.0 12345 sha256:0123456789abcdef...
+ * com.github.jnr:jffi:1.2.23:native 67890 sha256:fedcba9876543210...}</pre>
+ *
+ * <p>The dependencies are the same as {@code compile} and {@code runtime} dependencies in {@code pom.xml}, which
+ * are already flattened. They can be fetched from Maven repositories into a local cache shared among plugins at
+ * installation, and verified with the digests. No released Embulk reads the lock file, then the bootstrap Ruby code
+ * refuses to load the plugin unless they are put in {@code classpath/}.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code embulkPlugin {
+ *   buildsThinGem = true  // Default: false
+ * }}</pre>
+ */
+abstract class GenerateClasspathLock extends DefaultTask {
+    @Inject
+    public GenerateClasspathLock() {
+        super();
+
+        this.setDescription("Generates a lock file of the Embulk plugin's dependencies with digests for a thin gem.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.dependencies = objectFactory.listProperty(String.class);
+        this.runtimeClasspath = null;
+
+        this.getLockFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("embulk/classpathLock/classpath.lock"));
+    }
+
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputFile
+    abstract RegularFileProperty getLockFile();
+
+    /**
+     * Dependencies to be locked in {@code "group:name[:classifier]"}.
+     */
+    @Input
+    public ListProperty<String> getDependencies() {
+        return this.dependencies;
+    }
+
+    @TaskAction
+    public void generate() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+
+        final HashSet<String> toBeLocked = new HashSet<>(this.dependencies.get());
+
+        int locked = 0;
+        long totalBytes = 0L;
+        final Path lockPath = this.getLockFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(lockPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(lockPath, StandardCharsets.UTF_8))) {
+                writer.println("# Dependencies of the Embulk plugin in the classpath order, to be resolved from Maven at installation.");
+                writer.println("# <group>:<name>:<version>[:<classifier>] <size> sha256:<digest>");
+                // Resolved artifacts are in the classpath order.
+                for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+                    final ProjectCoordinates coordinates = ProjectCoordinates.resolve(this.getProject(), artifact);
+                    if (!toBeLocked.contains(coordinates.toVersionlessDependency(artifact).toString())) {
+                        continue;
+                    }
+                    final File file = artifact.getFile();
+                    writer.println(lockLine(toCoordinates(coordinates, artifact), file.toPath()));
+                    totalBytes += file.length();
+                    locked++;
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the lock file: " + lockPath.toString(), ex);
+        }
+
+        logger.lifecycle("Locked {} dependencies ({} bytes) out of the thin gem. See: {}", locked, totalBytes, lockPath);
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    /**
+     * Returns a line of the lock file for a JAR file.
+     */
+    static String lockLine(final String coordinates, final Path jar) throws IOException {
+        return coordinates + " " + Files.size(jar) + " sha256:" + GenerateClasspathManifest.sha256(jar);
+    }
+
+    private static String toCoordinates(final ProjectCoordinates coordinates, final ResolvedArtifact artifact) {
+        if (artifact.getClassifier() == null || artifact.getClassifier().isEmpty()) {
+            return coordinates.toString();
+        }
+        return coordinates.toString() + ":" + artifact.getClassifier();
+    }
+
+    private final ListProperty<String> dependencies;
+
+    private Configuration runtimeClasspath;
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to generate a manifest fragment which lists JARs in the plugin's runtime classpath with their digests.
+ *
+ * <p>The fragment is merged into the main JAR's manifest. The main attribute {@code Embulk-Plugin-Classpath} lists
+ * JAR file names in the gem's {@code classpath/} in the classpath order, separated with spaces like {@code Class-Path}.
+ * Each JAR has its own section, such as:
+ *
+ * <pre>{@code Name: classpath/foo-1.0.jar
+ * Embulk-Plugin-Artifact: org.example:foo:1.0
+ * Embulk-Plugin-Artifact-Size: 12345
+ * Embulk-Plugin-Artifact-SHA-256: 0123456789abcdef...}</pre>
+ *
+ * <p>Embulk can verify and cache the plugin's classpath with them, without listing directories or hashing JARs
+ * on every startup. The attribute names avoid {@code SHA-256-Digest} so that they are not confused with JAR signing.
+ */
+abstract class GenerateClasspathManifest extends DefaultTask {
+    @Inject
+    public GenerateClasspathManifest() {
+        super();
+
+        this.setDescription("Generates a manifest fragment listing the Embulk plugin's runtime classpath with digests.");
+
+        this.runtimeClasspath = null;
+
+        this.getManifestFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("embulk/classpathManifest/MANIFEST.MF"));
+    }
+
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * Returns JARs in the classpath order, whose file names order JARs in {@link #getClasspath}. Staging tasks keep
+     * file names, but their outputs are file trees without the order.
+     */
+    @Internal
+    abstract ConfigurableFileCollection getClasspathOrder();
+
+    @OutputFile
+    abstract RegularFileProperty getManifestFile();
+
+    @TaskAction
+    public void generate() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+
+        // By file names, as JARs rewritten by staging tasks keep their file names.
+        final HashMap<String, ResolvedArtifact> artifacts = new HashMap<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            artifacts.put(artifact.getFile().getName(), artifact);
+        }
+
+        final long started = System.nanoTime();
+
+        final List<File> jars;
+        try {
+            jars = inClasspathOrder(this.getClasspath().getFiles(), this.getClasspathOrder().getFiles());
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex);
+        }
+
+        // Hashing is independent per JAR.
+        final List<String> digests;
+        try {
+            digests = jars.parallelStream().map(jar -> {
+                try {
+                    return sha256(jar.toPath());
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).collect(Collectors.toList());
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex.getCause());
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(
+                "Embulk-Plugin-Classpath", jars.stream().map(File::getName).collect(Collectors.joining(" ")));
+        for (int i = 0; i < jars.size(); i++) {
+            final File jar = jars.get(i);
+            final Attributes attributes = new Attributes();
+            final ResolvedArtifact artifact = artifacts.get(jar.getName());
+            if (artifact != null) {
+                attributes.putValue("Embulk-Plugin-Artifact", toCoordinates(artifact));
+            }
+            attributes.putValue("Embulk-Plugin-Artifact-Size", Long.toString(jar.length()));
+            attributes.putValue("Embulk-Plugin-Artifact-SHA-256", digests.get(i));
+            manifest.getEntries().put("classpath/" + jar.getName(), attributes);
+        }
+
+        final Path manifestPath = this.getManifestFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(manifestPath.getParent());
+            try (final OutputStream out = Files.newOutputStream(manifestPath)) {
+                manifest.write(out);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the manifest fragment: " + manifestPath.toString(), ex);
+        }
+
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+        logger.lifecycle("Hashed {} JARs for the manifest in {} ms.", jars.size(), elapsedMillis);
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    private String toCoordinates(final ResolvedArtifact artifact) {
+        final String coordinates = ProjectCoordinates.resolve(this.getProject(), artifact).toString();
+        if (artifact.getClassifier() == null || artifact.getClassifier().isEmpty()) {
+            return coordinates;
+        }
+        return coordinates + ":" + artifact.getClassifier();
+    }
+
+    /**
+     * Returns JAR files in {@code staged} in the order of JAR files with the same names in {@code order}.
+     *
+     * <p>A JAR file merged by {@code mergeClasspath} takes the place of its first merged JAR. Other JAR files not found
+     * in {@code order} follow in their file names.
+     */
+    static List<File> inClasspathOrder(final Collection<File> staged, final Collection<File> order) throws IOException {
+        final HashMap<String, Integer> positions = new HashMap<>();
+        for (final File file : order) {
+            positions.putIfAbsent(file.getName(), positions.size());
+        }
+        final HashMap<File, Integer> jarPositions = new HashMap<>();
+        for (final File file : staged) {
+            if (!file.isFile()) {
+                continue;
+            }
+            Integer position = positions.get(file.getName());
+            if (position == null) {
+                final String firstMerged = MergeClasspath.firstMergedJarName(file.toPath());
+                position = firstMerged == null ? null : positions.get(firstMerged);
+            }
+            jarPositions.put(file, position == null ? Integer.MAX_VALUE : position);
+        }
+        final ArrayList<File> jars = new ArrayList<>(jarPositions.keySet());
+        jars.sort(Comparator.comparing((File file) -> jarPositions.get(file)).thenComparing(File::getName));
+        return jars;
+    }
+
+    /**
+     * Returns the SHA-256 digest of a file in lowercase hexadecimal.
+     */
+    static String sha256(final Path path) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is unavailable unexpectedly.", ex);
+        }
+        final byte[] buffer = new byte[65536];
+        try (final InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static String toHex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            builder.append(HEX[(b >> 4) & 0x0f]);
+            builder.append(HEX[b & 0x0f]);
+        }
+        return builder.toString();
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Configuration runtimeClasspath;
+}
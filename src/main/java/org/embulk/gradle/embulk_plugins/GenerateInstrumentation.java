@@ -0,0 +1,422 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to generate Java source of a wrapper of the plugin's main class, which records time of Embulk SPI calls.
+ *
+ * <p>The wrapper implements the same Embulk SPI interfaces ({@code org.embulk.spi.*}) as the main class, and delegates
+ * to an instance of the main class. Objects returned as Embulk SPI interfaces, such as {@code TransactionalPageOutput}
+ * from {@code OutputPlugin#open}, are wrapped with {@link java.lang.reflect.Proxy} so that their calls such as
+ * {@code PageOutput#add} are also recorded.
+ *
+ * <p>Counts and total nanoseconds of calls are exported as attributes of a JMX MBean
+ * {@code org.embulk.plugin:type=TimingProbes,name=<category>.<type>}, and logged with {@code java.util.logging} every
+ * {@code embulk.instrumented.log_interval_seconds} seconds (a system property, 60 by default, 0 to disable).
+ *
+ * <p>It is compiled by {@code compileEmbulkInstrumentationJava}, and packed into {@code instrumentedJar} with
+ * {@code Embulk-Plugin-Main-Class} replaced with the wrapper.
+ */
+abstract class GenerateInstrumentation extends DefaultTask {
+    @Inject
+    public GenerateInstrumentation() {
+        super();
+
+        this.setDescription("Generates a wrapper of the Embulk plugin's main class to record time of Embulk SPI calls.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.mainClass = objectFactory.property(String.class);
+        this.probeName = objectFactory.property(String.class);
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/instrumentation/src"));
+    }
+
+    /**
+     * Compiled classes of the plugin and its compile and runtime classpath, to inspect the main class.
+     */
+    @Classpath
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @Input
+    public Property<String> getMainClass() {
+        return this.mainClass;
+    }
+
+    /**
+     * The name of the MBean and log lines, {@code "<category>.<type>"} by default.
+     */
+    @Input
+    public Property<String> getProbeName() {
+        return this.probeName;
+    }
+
+    @TaskAction
+    public void generate() {
+        final String mainClassName = this.mainClass.get();
+
+        final ArrayList<URL> urls = new ArrayList<>();
+        try {
+            for (final File file : this.getClasspath().getFiles()) {
+                urls.add(file.toURI().toURL());
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to load the classpath.", ex);
+        }
+
+        final String source;
+        try (final URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[0]), null)) {
+            final Class<?> mainClass;
+            try {
+                mainClass = Class.forName(mainClassName, false, classLoader);
+            } catch (final ClassNotFoundException | LinkageError ex) {
+                throw new GradleException("Failed to load the main class: " + mainClassName, ex);
+            }
+            source = generateSource(mainClass, this.probeName.get());
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to close the classpath.", ex);
+        }
+
+        final Path destination = this.getDestinationDirectory().get().getAsFile().toPath();
+        final Path sourcePath = destination.resolve(wrapperClassName(mainClassName).replace('.', '/') + ".java");
+        try {
+            Files.createDirectories(sourcePath.getParent());
+            Files.write(sourcePath, source.getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write: " + sourcePath.toString(), ex);
+        }
+        this.getProject().getLogger().lifecycle("Generated an instrumented wrapper of {}: {}", mainClassName, sourcePath);
+    }
+
+    /**
+     * Returns the fully-qualified name of the wrapper, such as {@code "org.example.EmbulkInstrumentedFooOutputPlugin"}.
+     */
+    static String wrapperClassName(final String mainClassName) {
+        final int lastDot = mainClassName.lastIndexOf('.');
+        return mainClassName.substring(0, lastDot + 1) + "EmbulkInstrumented" + mainClassName.substring(lastDot + 1).replace('$', '_');
+    }
+
+    static String generateSource(final Class<?> mainClass, final String probeName) {
+        if (Modifier.isAbstract(mainClass.getModifiers()) || !Modifier.isPublic(mainClass.getModifiers())) {
+            throw new GradleException("The main class must be a public concrete class: " + mainClass.getName());
+        }
+        try {
+            mainClass.getConstructor();
+        } catch (final NoSuchMethodException ex) {
+            throw new GradleException("The main class must have a public constructor without arguments: " + mainClass.getName(), ex);
+        }
+
+        final Set<Class<?>> interfaces = spiInterfacesOf(mainClass);
+        if (interfaces.isEmpty()) {
+            throw new GradleException("The main class implements no Embulk SPI interface: " + mainClass.getName());
+        }
+
+        // Methods by their signatures, not to generate a method twice from a sub-interface and a super-interface.
+        final LinkedHashMap<String, Method> methods = new LinkedHashMap<>();
+        for (final Class<?> iface : interfaces) {
+            for (final Method method : iface.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.isSynthetic() || method.isBridge()) {
+                    continue;
+                }
+                methods.putIfAbsent(method.getName() + Arrays.toString(method.getParameterTypes()), method);
+            }
+        }
+
+        final String wrapperName = wrapperClassName(mainClass.getName());
+        final int lastDot = wrapperName.lastIndexOf('.');
+        final String mainClassSource = mainClass.getCanonicalName();
+
+        final StringWriter buffer = new StringWriter();
+        final PrintWriter out = new PrintWriter(buffer);
+        out.println("// Generated by the Gradle plugin \"org.embulk.embulk-plugins\". Do not edit.");
+        if (lastDot >= 0) {
+            out.println("package " + wrapperName.substring(0, lastDot) + ";");
+            out.println();
+        }
+        out.println("@SuppressWarnings({\"deprecation\", \"rawtypes\", \"unchecked\"})");
+        out.print("public final class " + wrapperName.substring(lastDot + 1) + " implements ");
+        out.println(String.join(", ", interfaces.stream().map(Class::getCanonicalName).toArray(String[]::new)) + " {");
+        out.println("    public " + wrapperName.substring(lastDot + 1) + "() {");
+        out.println("        this.delegate = new " + mainClassSource + "();");
+        out.println("    }");
+
+        int index = 0;
+        for (final Method method : methods.values()) {
+            final String probe = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            final boolean erased = method.getTypeParameters().length > 0 || method.getDeclaringClass().getTypeParameters().length > 0;
+            final String returnType = erased
+                    ? method.getReturnType().getCanonicalName()
+                    : toSource(method.getGenericReturnType());
+
+            final ArrayList<String> parameters = new ArrayList<>();
+            final ArrayList<String> arguments = new ArrayList<>();
+            for (int i = 0; i < method.getParameterCount(); i++) {
+                final String parameterType = erased
+                        ? method.getParameterTypes()[i].getCanonicalName()
+                        : toSource(method.getGenericParameterTypes()[i]);
+                parameters.add("final " + parameterType + " arg" + i);
+                arguments.add("arg" + i);
+            }
+            final ArrayList<String> exceptions = new ArrayList<>();
+            for (final Class<?> exception : method.getExceptionTypes()) {
+                exceptions.add(exception.getCanonicalName());
+            }
+
+            out.println();
+            out.println("    private static final Probes.Counter PROBE_" + index + " = Probes.counter(\"" + probe + "\");");
+            out.println();
+            out.println("    @Override");
+            out.print("    public " + returnType + " " + method.getName() + "(" + String.join(", ", parameters) + ")");
+            out.println((exceptions.isEmpty() ? "" : " throws " + String.join(", ", exceptions)) + " {");
+            out.println("        final long started = System.nanoTime();");
+            out.println("        try {");
+            final String call = "this.delegate." + method.getName() + "(" + String.join(", ", arguments) + ")";
+            if (method.getReturnType() == void.class) {
+                out.println("            " + call + ";");
+            } else if (isSpiInterface(method.getReturnType())) {
+                out.println("            return (" + returnType + ") Probes.wrap(" + call + ", "
+                                    + method.getReturnType().getCanonicalName() + ".class);");
+            } else {
+                out.println("            return " + call + ";");
+            }
+            out.println("        } finally {");
+            out.println("            PROBE_" + index + ".record(started);");
+            out.println("        }");
+            out.println("    }");
+            index++;
+        }
+
+        out.println();
+        for (final String line : PROBES_SOURCE) {
+            out.println(line.isEmpty() ? "" : "    " + line.replace("@PROBE_NAME@", probeName));
+        }
+        out.println();
+        out.println("    private final " + mainClassSource + " delegate;");
+        out.println("}");
+        out.flush();
+        return buffer.toString();
+    }
+
+    /**
+     * Returns Embulk SPI interfaces implemented by the class, including inherited ones, in the declaration order.
+     */
+    static Set<Class<?>> spiInterfacesOf(final Class<?> klass) {
+        final LinkedHashSet<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> current = klass; current != null; current = current.getSuperclass()) {
+            for (final Class<?> iface : current.getInterfaces()) {
+                if (isSpiInterface(iface)) {
+                    interfaces.add(iface);
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    private static boolean isSpiInterface(final Class<?> klass) {
+        return klass.isInterface() && klass.getName().startsWith("org.embulk.spi.");
+    }
+
+    private static String toSource(final Type type) {
+        // Nested classes such as "org.embulk.spi.InputPlugin$Control" are referred as "org.embulk.spi.InputPlugin.Control".
+        return type.getTypeName().replace('$', '.');
+    }
+
+    /**
+     * Source of the nested class {@code Probes} in the wrapper, which keeps counters and exports them.
+     */
+    private static final List<String> PROBES_SOURCE = Arrays.asList(
+            "static final class Probes {",
+            "    private Probes() {",
+            "        // No instantiation.",
+            "    }",
+            "",
+            "    static final class Counter {",
+            "        private Counter(final String name) {",
+            "            this.name = name;",
+            "        }",
+            "",
+            "        void record(final long startedNanos) {",
+            "            this.nanos.add(System.nanoTime() - startedNanos);",
+            "            this.calls.increment();",
+            "        }",
+            "",
+            "        private final String name;",
+            "        private final java.util.concurrent.atomic.LongAdder calls = new java.util.concurrent.atomic.LongAdder();",
+            "        private final java.util.concurrent.atomic.LongAdder nanos = new java.util.concurrent.atomic.LongAdder();",
+            "    }",
+            "",
+            "    static Counter counter(final String name) {",
+            "        return COUNTERS.computeIfAbsent(name, Counter::new);",
+            "    }",
+            "",
+            "    static Object wrap(final Object value, final Class<?> iface) {",
+            "        if (value == null || java.lang.reflect.Proxy.isProxyClass(value.getClass())) {",
+            "            return value;",
+            "        }",
+            "        final java.util.concurrent.ConcurrentHashMap<java.lang.reflect.Method, Counter> counters =",
+            "                new java.util.concurrent.ConcurrentHashMap<>();",
+            "        return java.lang.reflect.Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, (proxy, method, args) -> {",
+            "            if (method.getDeclaringClass() == Object.class) {",
+            "                return invoke(value, method, args);",
+            "            }",
+            "            final Counter counter = counters.computeIfAbsent(",
+            "                    method, m -> counter(m.getDeclaringClass().getSimpleName() + \".\" + m.getName()));",
+            "            final long started = System.nanoTime();",
+            "            try {",
+            "                return invoke(value, method, args);",
+            "            } finally {",
+            "                counter.record(started);",
+            "            }",
+            "        });",
+            "    }",
+            "",
+            "    private static Object invoke(final Object target, final java.lang.reflect.Method method, final Object[] args) throws Throwable {",
+            "        try {",
+            "            return method.invoke(target, args);",
+            "        } catch (final java.lang.reflect.InvocationTargetException ex) {",
+            "            throw ex.getCause();",
+            "        }",
+            "    }",
+            "",
+            "    static String summary() {",
+            "        final StringBuilder builder = new StringBuilder(\"Timing probes of @PROBE_NAME@:\");",
+            "        for (final Counter counter : COUNTERS.values()) {",
+            "            final long calls = counter.calls.sum();",
+            "            if (calls > 0) {",
+            "                final long nanos = counter.nanos.sum();",
+            "                builder.append(String.format(\" %s=%d calls/%d ms/%d ns avg\", counter.name, calls, nanos / 1000000L, nanos / calls));",
+            "            }",
+            "        }",
+            "        return builder.toString();",
+            "    }",
+            "",
+            "    private static final class MBean implements javax.management.DynamicMBean {",
+            "        @Override",
+            "        public Object getAttribute(final String attribute) throws javax.management.AttributeNotFoundException {",
+            "            final int lastDot = attribute.lastIndexOf('.');",
+            "            final Counter counter = lastDot < 0 ? null : COUNTERS.get(attribute.substring(0, lastDot));",
+            "            if (counter != null && attribute.endsWith(\".calls\")) {",
+            "                return counter.calls.sum();",
+            "            } else if (counter != null && attribute.endsWith(\".nanos\")) {",
+            "                return counter.nanos.sum();",
+            "            }",
+            "            throw new javax.management.AttributeNotFoundException(attribute);",
+            "        }",
+            "",
+            "        @Override",
+            "        public void setAttribute(final javax.management.Attribute attribute) throws javax.management.AttributeNotFoundException {",
+            "            throw new javax.management.AttributeNotFoundException(\"Read-only: \" + attribute.getName());",
+            "        }",
+            "",
+            "        @Override",
+            "        public javax.management.AttributeList getAttributes(final String[] attributes) {",
+            "            final javax.management.AttributeList list = new javax.management.AttributeList();",
+            "            for (final String attribute : attributes) {",
+            "                try {",
+            "                    list.add(new javax.management.Attribute(attribute, this.getAttribute(attribute)));",
+            "                } catch (final javax.management.AttributeNotFoundException ex) {",
+            "                    // Skipped as DynamicMBean#getAttributes expects.",
+            "                }",
+            "            }",
+            "            return list;",
+            "        }",
+            "",
+            "        @Override",
+            "        public javax.management.AttributeList setAttributes(final javax.management.AttributeList attributes) {",
+            "            return new javax.management.AttributeList();",
+            "        }",
+            "",
+            "        @Override",
+            "        public Object invoke(final String actionName, final Object[] params, final String[] signature)",
+            "                throws javax.management.ReflectionException {",
+            "            throw new javax.management.ReflectionException(new NoSuchMethodException(actionName));",
+            "        }",
+            "",
+            "        @Override",
+            "        public javax.management.MBeanInfo getMBeanInfo() {",
+            "            final java.util.ArrayList<javax.management.MBeanAttributeInfo> attributes = new java.util.ArrayList<>();",
+            "            for (final String name : COUNTERS.keySet()) {",
+            "                attributes.add(new javax.management.MBeanAttributeInfo(",
+            "                        name + \".calls\", \"long\", \"Number of calls\", true, false, false));",
+            "                attributes.add(new javax.management.MBeanAttributeInfo(",
+            "                        name + \".nanos\", \"long\", \"Total nanoseconds of calls\", true, false, false));",
+            "            }",
+            "            return new javax.management.MBeanInfo(",
+            "                    MBean.class.getName(), \"Timing probes of @PROBE_NAME@\",",
+            "                    attributes.toArray(new javax.management.MBeanAttributeInfo[0]), null, null, null);",
+            "        }",
+            "    }",
+            "",
+            "    private static final java.util.concurrent.ConcurrentHashMap<String, Counter> COUNTERS = new java.util.concurrent.ConcurrentHashMap<>();",
+            "",
+            "    static {",
+            "        try {",
+            "            java.lang.management.ManagementFactory.getPlatformMBeanServer().registerMBean(",
+            "                    new MBean(), new javax.management.ObjectName(\"org.embulk.plugin:type=TimingProbes,name=@PROBE_NAME@\"));",
+            "        } catch (final javax.management.JMException ex) {",
+            "            java.util.logging.Logger.getLogger(Probes.class.getName()).warning(\"Failed to register the MBean: \" + ex);",
+            "        }",
+            "        final long intervalSeconds = Long.getLong(\"embulk.instrumented.log_interval_seconds\", 60L);",
+            "        if (intervalSeconds > 0) {",
+            "            final java.util.Timer timer = new java.util.Timer(\"embulk-timing-probes-@PROBE_NAME@\", true);",
+            "            timer.scheduleAtFixedRate(new java.util.TimerTask() {",
+            "                    @Override",
+            "                    public void run() {",
+            "                        java.util.logging.Logger.getLogger(Probes.class.getName()).info(summary());",
+            "                    }",
+            "                }, intervalSeconds * 1000L, intervalSeconds * 1000L);",
+            "        }",
+            "    }",
+            "}");
+
+    private final Property<String> mainClass;
+    private final Property<String> probeName;
+}
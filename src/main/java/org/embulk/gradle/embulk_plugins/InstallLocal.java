@@ -0,0 +1,251 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to install the plugin in a local Maven repository directory for Embulk to load it as a Maven plugin.
+ *
+ * <p>It installs the plugin JAR, the manipulated {@code pom.xml}, and JARs of the first-level dependencies listed in
+ * {@code pom.xml}, in the layout of Maven repositories. Files are hard-linked if possible, or copied otherwise. Files
+ * already installed with the same size and modified time are not touched.
+ *
+ * <p>It prints lines to be set in {@code embulk.properties}, such as:
+ *
+ * <pre>{@code m2_repo=/path/to/m2
+ * plugins.input.example=maven:org.embulk:example:0.1.0}</pre>
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code embulkInstallLocal {
+ *   repositoryDirectory = file("${System.properties['user.home']}/.embulk/m2")  // Default: "build/embulk/m2"
+ * }}</pre>
+ */
+abstract class InstallLocal extends DefaultTask {
+    @Inject
+    public InstallLocal() {
+        super();
+
+        this.setDescription("Installs the Embulk plugin and its dependencies in a local Maven repository directory.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.category = objectFactory.property(String.class);
+        this.type = objectFactory.property(String.class);
+        this.groupId = objectFactory.property(String.class);
+        this.artifactId = objectFactory.property(String.class);
+        this.version = objectFactory.property(String.class);
+        this.runtimeClasspath = null;
+
+        this.getRepositoryDirectory().convention(this.getProject().getLayout().getBuildDirectory().dir("embulk/m2"));
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @InputFile
+    abstract RegularFileProperty getPluginJar();
+
+    @Optional
+    @InputFile
+    abstract RegularFileProperty getPomFile();
+
+    // The repository is shared with other builds. It is not tracked as an output, and the task always runs.
+    @Internal
+    abstract DirectoryProperty getRepositoryDirectory();
+
+    @Input
+    public Property<String> getCategory() {
+        return this.category;
+    }
+
+    @Input
+    public Property<String> getType() {
+        return this.type;
+    }
+
+    @Optional
+    @Input
+    public Property<String> getGroupId() {
+        return this.groupId;
+    }
+
+    @Optional
+    @Input
+    public Property<String> getArtifactId() {
+        return this.artifactId;
+    }
+
+    @Optional
+    @Input
+    public Property<String> getVersion() {
+        return this.version;
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    @TaskAction
+    public void install() {
+        final long started = System.nanoTime();
+        final Logger logger = this.getProject().getLogger();
+
+        if (!this.getPomFile().isPresent() || !this.groupId.isPresent() || !this.artifactId.isPresent() || !this.version.isPresent()) {
+            throw new GradleException("No Maven publication is configured for \"" + this.getName() + "\". Declare one in \"publishing\".");
+        }
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+
+        final Path repository = this.getRepositoryDirectory().get().getAsFile().toPath();
+
+        // Targets to sources, in the order of the plugin JAR, pom.xml, and then dependencies.
+        final LinkedHashMap<Path, Path> files = new LinkedHashMap<>();
+        files.put(repository.resolve(m2Path(this.groupId.get(), this.artifactId.get(), this.version.get(), null, "jar")),
+                  this.getPluginJar().get().getAsFile().toPath());
+        files.put(repository.resolve(m2Path(this.groupId.get(), this.artifactId.get(), this.version.get(), null, "pom")),
+                  this.getPomFile().get().getAsFile().toPath());
+
+        final Set<File> classpath = this.getClasspath().getFiles();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            if (!classpath.contains(artifact.getFile())) {
+                continue;
+            }
+            files.put(repository.resolve(m2PathOf(this.getProject(), artifact)), artifact.getFile().toPath());
+        }
+
+        int updated = 0;
+        for (final Map.Entry<Path, Path> file : files.entrySet()) {
+            try {
+                if (install(file.getValue(), file.getKey())) {
+                    updated++;
+                }
+            } catch (final IOException ex) {
+                throw new GradleException("Failed to install " + file.getValue().toString() + " at: " + file.getKey().toString(), ex);
+            }
+        }
+
+        final String prefix = "embulk-" + this.category.get() + "-";
+        if (!this.artifactId.get().startsWith(prefix)) {
+            logger.warn("The artifact ID \"{}\" does not start with \"{}\". Embulk may not find the plugin from the line below.",
+                        this.artifactId.get(), prefix);
+        }
+        logger.lifecycle("Installed {} files ({} updated) at {} in {} ms. Set in embulk.properties:\n{}\n{}",
+                         files.size(), updated, repository, (System.nanoTime() - started) / 1_000_000L,
+                         "m2_repo=" + repository.toAbsolutePath().toString(),
+                         pluginProperty(this.category.get(), this.type.get(), this.groupId.get(), this.artifactId.get(), this.version.get()));
+    }
+
+    /**
+     * Returns the relative path of an artifact in the layout of Maven repositories.
+     *
+     * @param classifier  the classifier, or {@code null} for none
+     */
+    static String m2Path(final String group, final String artifactId, final String version, final String classifier, final String extension) {
+        return group.replace('.', '/') + "/" + artifactId + "/" + version + "/"
+                + artifactId + "-" + version + (classifier == null || classifier.isEmpty() ? "" : "-" + classifier) + "." + extension;
+    }
+
+    /**
+     * Returns the relative path of a dependency artifact in the layout of Maven repositories, as listed in {@code pom.xml}.
+     */
+    static String m2PathOf(final Project project, final ResolvedArtifact artifact) {
+        final ProjectCoordinates coordinates = ProjectCoordinates.resolve(project, artifact);
+        final VersionlessDependency dependency = coordinates.toVersionlessDependency(artifact);
+        return m2Path(dependency.getGroup(), dependency.getArtifactName(), coordinates.getVersion(),
+                      dependency.getClassifier(), artifact.getExtension());
+    }
+
+    /**
+     * Returns the line of {@code embulk.properties} for Embulk to load the plugin from a Maven repository.
+     *
+     * <p>Embulk finds the artifact {@code embulk-<category>-<name>} from {@code maven:<group>:<name>:<version>}.
+     */
+    static String pluginProperty(
+            final String category, final String type, final String groupId, final String artifactId, final String version) {
+        final String prefix = "embulk-" + category + "-";
+        final String name = artifactId.startsWith(prefix) ? artifactId.substring(prefix.length()) : artifactId;
+        return "plugins." + category + "." + type + "=maven:" + groupId + ":" + name + ":" + version;
+    }
+
+    /**
+     * Installs a file at {@code target} by a hard link if possible, or by a copy, unless it is already installed.
+     *
+     * <p>A file is regarded as already installed if {@code target} is the same file, or has the same size and modified
+     * time. A copy keeps the modified time of {@code source}.
+     *
+     * @return {@code true} if {@code target} is updated
+     */
+    static boolean install(final Path source, final Path target) throws IOException {
+        if (Files.isRegularFile(target)) {
+            if (Files.isSameFile(source, target)) {
+                return false;
+            }
+            if (Files.size(source) == Files.size(target)
+                    && Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(target))) {
+                return false;
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+        // Installed into a temporary file first, and then moved so that Embulk never reads a partial file.
+        final Path temporary = target.resolveSibling(target.getFileName().toString() + ".installing");
+        Files.deleteIfExists(temporary);
+        try {
+            Files.createLink(temporary, source);
+        } catch (final IOException | UnsupportedOperationException ex) {
+            Files.copy(source, temporary, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private final Property<String> category;
+    private final Property<String> type;
+    private final Property<String> groupId;
+    private final Property<String> artifactId;
+    private final Property<String> version;
+
+    private Configuration runtimeClasspath;
+}
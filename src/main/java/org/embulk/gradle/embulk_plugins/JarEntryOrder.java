@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reorders entries in a JAR file so that classes loaded at startup are contiguous at the front.
+ *
+ * <p>With a cold page cache, reading classes scattered in a JAR costs a page fault for each of them. Putting them
+ * together reduces pages to read. {@code META-INF/MANIFEST.MF} and directories are kept at the front as
+ * {@link java.util.jar.JarInputStream} expects.
+ */
+final class JarEntryOrder {
+    private JarEntryOrder(final int numberOfTracedEntries, final long coldReadBytesBefore, final long coldReadBytesAfter) {
+        this.numberOfTracedEntries = numberOfTracedEntries;
+        this.coldReadBytesBefore = coldReadBytesBefore;
+        this.coldReadBytesAfter = coldReadBytesAfter;
+    }
+
+    /**
+     * Reads a class-load trace into JAR entry names such as {@code "org/example/Foo.class"}, in the loaded order.
+     *
+     * <p>It accepts plain class names such as {@code "org.example.Foo"} or {@code "org/example/Foo"} line by line, and
+     * the output of {@code -Xlog:class+load} (Java 9+) or {@code -verbose:class} (Java 8).
+     */
+    static List<String> readTrace(final Path trace) throws IOException {
+        final LinkedHashSet<String> entryNames = new LinkedHashSet<>();
+        for (final String rawLine : Files.readAllLines(trace, StandardCharsets.UTF_8)) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            // "[0.012s][info][class,load] org.example.Foo source: ..." or "[Loaded org.example.Foo from ...]"
+            if (line.startsWith("[Loaded ")) {
+                line = line.substring("[Loaded ".length());
+            } else if (line.startsWith("[")) {
+                final int lastBracket = line.lastIndexOf("] ");
+                if (lastBracket < 0) {
+                    continue;
+                }
+                line = line.substring(lastBracket + 2);
+            }
+            final int space = line.indexOf(' ');
+            final String className = space < 0 ? line : line.substring(0, space);
+            entryNames.add(className.replace('.', '/') + ".class");
+        }
+        return Collections.unmodifiableList(new ArrayList<>(entryNames));
+    }
+
+    /**
+     * Rewrites the JAR file with traced entries at the front, and returns how many bytes are read for the traced entries.
+     */
+    static JarEntryOrder reorder(final Path jar, final List<String> traced) throws IOException {
+        final long before = coldReadBytes(jar, traced);
+
+        final Path rewritten = jar.resolveSibling(jar.getFileName().toString() + ".reordering");
+        int numberOfTracedEntries = 0;
+        try (final ZipFile zipFile = new ZipFile(jar.toFile());
+                final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(rewritten))) {
+            final LinkedHashMap<String, ZipEntry> head = new LinkedHashMap<>();
+            final LinkedHashMap<String, ZipEntry> rest = new LinkedHashMap<>();
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (entry.isDirectory() || entry.getName().equals("META-INF/") || entry.getName().equals("META-INF/MANIFEST.MF")) {
+                    head.put(entry.getName(), entry);
+                } else {
+                    rest.put(entry.getName(), entry);
+                }
+            }
+            for (final String name : traced) {
+                final ZipEntry entry = rest.remove(name);
+                if (entry != null) {
+                    head.put(name, entry);
+                    numberOfTracedEntries++;
+                }
+            }
+            head.putAll(rest);
+
+            final byte[] buffer = new byte[8192];
+            for (final ZipEntry entry : head.values()) {
+                final ZipEntry copied = new ZipEntry(entry);
+                if (copied.getMethod() == ZipEntry.DEFLATED) {
+                    copied.setCompressedSize(-1L);  // Deflated again. The compressed size may differ.
+                }
+                out.putNextEntry(copied);
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+        Files.move(rewritten, jar, StandardCopyOption.REPLACE_EXISTING);
+
+        return new JarEntryOrder(numberOfTracedEntries, before, coldReadBytes(jar, traced));
+    }
+
+    /**
+     * Estimates bytes read from a cold page cache to load the traced entries, as the number of pages touched by them.
+     */
+    static long coldReadBytes(final Path jar, final List<String> traced) throws IOException {
+        final Set<String> tracedSet = new HashSet<>(traced);
+        final List<ZipCentralDirectory.Entry> entries = new ArrayList<>(ZipCentralDirectory.read(jar).getEntries());
+        entries.sort((a, b) -> Long.compare(a.getLocalHeaderOffset(), b.getLocalHeaderOffset()));
+
+        final long endOfEntries = Files.size(jar);
+        final TreeSet<Long> pages = new TreeSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            final ZipCentralDirectory.Entry entry = entries.get(i);
+            if (!tracedSet.contains(entry.getName())) {
+                continue;
+            }
+            final long start = entry.getLocalHeaderOffset();
+            // The local header, the name, the extra field, and the data, until the next entry.
+            final long end = (i + 1 < entries.size())
+                    ? entries.get(i + 1).getLocalHeaderOffset()
+                    : Math.min(endOfEntries, start + LOCAL_HEADER_LENGTH + entry.getName().length() + entry.getCompressedSize());
+            for (long page = start / PAGE_SIZE; page <= (end - 1) / PAGE_SIZE; page++) {
+                pages.add(page);
+            }
+        }
+        return pages.size() * PAGE_SIZE;
+    }
+
+    int getNumberOfTracedEntries() {
+        return this.numberOfTracedEntries;
+    }
+
+    long getColdReadBytesBefore() {
+        return this.coldReadBytesBefore;
+    }
+
+    long getColdReadBytesAfter() {
+        return this.coldReadBytesAfter;
+    }
+
+    private static final long PAGE_SIZE = 4096L;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+
+    private final int numberOfTracedEntries;
+    private final long coldReadBytesBefore;
+    private final long coldReadBytesAfter;
+}
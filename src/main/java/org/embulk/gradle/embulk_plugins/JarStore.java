@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A content-addressed store of JAR files keyed by SHA-256, shared among projects and builds.
+ *
+ * <p>It is usually under the Gradle user home. Its layout is:
+ *
+ * <pre>{@code <root>/objects/01/0123456789abcdef....jar  -- JAR files named by their SHA-256 digests
+ * <root>/keys/fedcba9876543210...           -- digests of source files, named by SHA-256 of (path, size, modified time)
+ * <root>/tmp/                               -- temporary files to be moved atomically}</pre>
+ *
+ * <p>A source file is hashed only once as long as its path, size, and modified time are the same, which holds for
+ * JARs in Gradle's dependency cache. A JAR is materialized from the store by a hard link, or by a copy if a hard link
+ * is unavailable, such as across file systems. The modified time of a stored JAR is its last use, which is touched
+ * every time it is used, so that the least-recently-used JARs are evicted first. Keys of evicted JARs are removed
+ * together, so that {@code keys/} does not grow forever.
+ *
+ * <p>Files are written in {@code tmp/} and then moved atomically, so that concurrent builds share the store safely.
+ */
+final class JarStore {
+    private JarStore(final Path root) {
+        this.root = root;
+        this.hits = 0;
+        this.misses = 0;
+        this.links = 0;
+    }
+
+    static JarStore open(final Path root) throws IOException {
+        Files.createDirectories(root.resolve("objects"));
+        Files.createDirectories(root.resolve("keys"));
+        Files.createDirectories(root.resolve("tmp"));
+        return new JarStore(root);
+    }
+
+    /**
+     * Returns the SHA-256 digest of a file, hashing the file only if it is not known by its path, size, and modified time.
+     */
+    String digest(final Path file) throws IOException {
+        final String key = sha256((file.toAbsolutePath().normalize().toString()
+                + "\n" + Files.size(file) + "\n" + Files.getLastModifiedTime(file).toMillis()).getBytes(StandardCharsets.UTF_8));
+        final Path keyPath = this.root.resolve("keys").resolve(key);
+        if (Files.isRegularFile(keyPath)) {
+            final String digest = new String(Files.readAllBytes(keyPath), StandardCharsets.US_ASCII).trim();
+            if (digest.length() == 64) {
+                return digest;
+            }
+        }
+        final String digest = GenerateClasspathManifest.sha256(file);
+        this.writeAtomically(keyPath, digest.getBytes(StandardCharsets.US_ASCII));
+        return digest;
+    }
+
+    /**
+     * Stores a JAR file if not stored yet, and returns the path of the stored JAR.
+     */
+    Path put(final Path file) throws IOException {
+        final String digest = this.digest(file);
+        final Path stored = this.root.resolve("objects").resolve(digest.substring(0, 2)).resolve(digest + ".jar");
+        if (Files.isRegularFile(stored)) {
+            this.hits++;
+            Files.setLastModifiedTime(stored, FileTime.fromMillis(System.currentTimeMillis()));
+            return stored;
+        }
+        this.misses++;
+        Files.createDirectories(stored.getParent());
+        final Path temporary = Files.createTempFile(this.root.resolve("tmp"), digest, ".jar");
+        Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING);
+        moveAtomically(temporary, stored);
+        return stored;
+    }
+
+    /**
+     * Materializes a JAR file at {@code target} from the store, by a hard link if possible.
+     */
+    void materialize(final Path file, final Path target) throws IOException {
+        final Path stored = this.put(file);
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, stored);
+            this.links++;
+        } catch (final IOException | UnsupportedOperationException ex) {
+            Files.copy(stored, target);
+        }
+    }
+
+    /**
+     * Evicts least-recently-used JARs, and keys of the evicted JARs, until the store is not larger than {@code maxBytes}.
+     *
+     * @return the number of JARs evicted
+     */
+    int evict(final long maxBytes) throws IOException {
+        final List<Path> stored = this.listStored();
+        final List<Path> keys = this.listKeys();
+        long total = 0L;
+        for (final Path path : stored) {
+            total += Files.size(path);
+        }
+        for (final Path key : keys) {
+            total += Files.size(key);
+        }
+        if (total <= maxBytes) {
+            return 0;
+        }
+
+        // Keys are grouped by their digests so that keys of an evicted JAR are removed together.
+        final HashMap<String, List<Path>> keysByDigest = new HashMap<>();
+        for (final Path key : keys) {
+            final String digest = new String(Files.readAllBytes(key), StandardCharsets.US_ASCII).trim();
+            keysByDigest.computeIfAbsent(digest, k -> new ArrayList<>()).add(key);
+        }
+        final HashSet<String> storedDigests = new HashSet<>();
+        for (final Path path : stored) {
+            storedDigests.add(digestOf(path));
+        }
+        // Keys without their JARs are left by JARs evicted by older versions or deleted by hand.
+        for (final Map.Entry<String, List<Path>> entry : keysByDigest.entrySet()) {
+            if (!storedDigests.contains(entry.getKey())) {
+                total -= deleteAll(entry.getValue());
+            }
+        }
+
+        final HashMap<Path, FileTime> lastUsed = new HashMap<>();
+        for (final Path path : stored) {
+            lastUsed.put(path, Files.getLastModifiedTime(path));
+        }
+        final ArrayList<Path> oldestFirst = new ArrayList<>(stored);
+        oldestFirst.sort((a, b) -> lastUsed.get(a).compareTo(lastUsed.get(b)));
+
+        int evicted = 0;
+        for (final Path path : oldestFirst) {
+            if (total <= maxBytes) {
+                break;
+            }
+            final long size = Files.size(path);
+            // Hard links materialized from it in build directories are still valid.
+            if (Files.deleteIfExists(path)) {
+                total -= size;
+                total -= deleteAll(keysByDigest.getOrDefault(digestOf(path), Collections.emptyList()));
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the total size of stored JARs and keys.
+     */
+    long getStoredBytes() throws IOException {
+        long total = 0L;
+        for (final Path path : this.listStored()) {
+            total += Files.size(path);
+        }
+        for (final Path key : this.listKeys()) {
+            total += Files.size(key);
+        }
+        return total;
+    }
+
+    int getStoredJars() throws IOException {
+        return this.listStored().size();
+    }
+
+    int getHits() {
+        return this.hits;
+    }
+
+    int getMisses() {
+        return this.misses;
+    }
+
+    int getLinks() {
+        return this.links;
+    }
+
+    Path getRoot() {
+        return this.root;
+    }
+
+    private List<Path> listStored() throws IOException {
+        final ArrayList<Path> stored = new ArrayList<>();
+        try (final DirectoryStream<Path> prefixes = Files.newDirectoryStream(this.root.resolve("objects"))) {
+            for (final Path prefix : prefixes) {
+                if (!Files.isDirectory(prefix)) {
+                    continue;
+                }
+                try (final DirectoryStream<Path> jars = Files.newDirectoryStream(prefix, "*.jar")) {
+                    for (final Path jar : jars) {
+                        stored.add(jar);
+                    }
+                }
+            }
+        }
+        Collections.sort(stored);
+        return stored;
+    }
+
+    private List<Path> listKeys() throws IOException {
+        final ArrayList<Path> keys = new ArrayList<>();
+        try (final DirectoryStream<Path> paths = Files.newDirectoryStream(this.root.resolve("keys"))) {
+            for (final Path path : paths) {
+                if (Files.isRegularFile(path)) {
+                    keys.add(path);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String digestOf(final Path stored) {
+        final String fileName = stored.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ".jar".length());
+    }
+
+    /**
+     * Deletes files, and returns the total size of deleted files.
+     */
+    private static long deleteAll(final List<Path> paths) throws IOException {
+        long deleted = 0L;
+        for (final Path path : paths) {
+            final long size = Files.size(path);
+            if (Files.deleteIfExists(path)) {
+                deleted += size;
+            }
+        }
+        return deleted;
+    }
+
+    private void writeAtomically(final Path path, final byte[] content) throws IOException {
+        final Path temporary = Files.createTempFile(this.root.resolve("tmp"), path.getFileName().toString(), ".tmp");
+        Files.write(temporary, content);
+        moveAtomically(temporary, path);
+    }
+
+    private static void moveAtomically(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final FileAlreadyExistsException ex) {
+            // Another build has stored the same content concurrently.
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private static String sha256(final byte[] bytes) {
+        try {
+            return GenerateClasspathManifest.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is unavailable unexpectedly.", ex);
+        }
+    }
+
+    private final Path root;
+
+    private int hits;
+    private int misses;
+    private int links;
+}
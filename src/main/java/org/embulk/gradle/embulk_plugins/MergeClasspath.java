@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to merge small JARs to be staged in the gem's {@code classpath/} into one consolidated JAR.
+ *
+ * <p>A JAR is merged if it is smaller than {@code thresholdBytes}, is not signed, is not a multi-release JAR, and has
+ * no entry conflicting with any other JAR to be staged. Entries with the same name, size, and CRC-32 are not conflicts.
+ * {@code META-INF/services/} files are concatenated. License files just under {@code META-INF/} with different contents
+ * are not conflicts, and kept with the merged JAR's file name as a suffix. Other JARs are staged as-is. The consolidated JAR takes the place
+ * of the first merged JAR in the classpath order, and its entries keep their modified time.
+ *
+ * <p>The consolidated JAR lists the merged JARs in its manifest, such as:
+ *
+ * <pre>{@code Embulk-Plugin-Merged-Classpath: foo-1.0.jar bar-2.0.jar
+ *
+ * Name: foo-1.0.jar
+ * Embulk-Plugin-Artifact: org.example:foo:1.0}</pre>
+ *
+ * <p>It also benchmarks looking up all the entries through {@link URLClassLoader} before and after merging.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code embulkPlugin {
+ *   mergesSmallJars = true  // Default: false
+ * }
+ * mergeClasspath {
+ *   thresholdBytes = 65536  // Default: 65536
+ * }}</pre>
+ */
+abstract class MergeClasspath extends DefaultTask {
+    @Inject
+    public MergeClasspath() {
+        super();
+
+        this.setDescription("Merges small JARs to be staged in the gem into one consolidated JAR.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.thresholdBytes = objectFactory.property(Long.class);
+        this.thresholdBytes.set(DEFAULT_THRESHOLD_BYTES);
+        this.runtimeClasspath = null;
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/mergedClasspath"));
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/mergeClasspath.txt"));
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public Property<Long> getThresholdBytes() {
+        return this.thresholdBytes;
+    }
+
+    @TaskAction
+    public void merge() {
+        final Logger logger = this.getProject().getLogger();
+
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+        final HashMap<String, String> coordinates = new HashMap<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            // JARs may be rewritten by "slimClasspath" with the same file names.
+            coordinates.put(artifact.getFile().getName(), ProjectCoordinates.resolve(this.getProject(), artifact).toString());
+        }
+
+        final List<Path> jars;
+        try {
+            jars = GenerateClasspathManifest.inClasspathOrder(this.getClasspath().getFiles(), this.runtimeClasspath.getFiles()).stream()
+                    .map(File::toPath)
+                    .collect(Collectors.toList());
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex);
+        }
+
+        final Path destination = this.getDestinationDirectory().get().getAsFile().toPath();
+        final Path mergedJar = destination.resolve(MERGED_JAR_NAME);
+        final Merged merged;
+        try {
+            Files.createDirectories(destination);
+            try (final DirectoryStream<Path> stale = Files.newDirectoryStream(destination)) {
+                for (final Path path : stale) {
+                    Files.delete(path);
+                }
+            }
+            merged = mergeSmallJars(jars, this.thresholdBytes.get(), mergedJar, coordinates);
+            for (final Path jar : merged.remaining) {
+                Files.copy(jar, destination.resolve(jar.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to merge JARs into: " + mergedJar.toString(), ex);
+        }
+
+        final List<Path> after = merged.classpath;
+        final long beforeMillis = benchmarkLookup(jars);
+        final long afterMillis = benchmarkLookup(after);
+
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (final Path jar : merged.merged) {
+                    writer.println("Merged: " + jar.getFileName());
+                }
+                for (final Map.Entry<Path, String> skipped : merged.skipped.entrySet()) {
+                    writer.println("Not merged: " + skipped.getKey().getFileName() + " (" + skipped.getValue() + ")");
+                }
+                writer.println(String.format("JARs: %d -> %d", jars.size(), after.size()));
+                writer.println(String.format("Looking up all entries: %d ms -> %d ms", beforeMillis, afterMillis));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle(
+                "Merged {} small JARs into {}. JARs: {} -> {}. Looking up all entries: {} ms -> {} ms",
+                merged.merged.size(), MERGED_JAR_NAME, jars.size(), after.size(), beforeMillis, afterMillis);
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    static final class Merged {
+        private Merged(final List<Path> merged, final List<Path> remaining, final List<Path> classpath, final Map<Path, String> skipped) {
+            this.merged = Collections.unmodifiableList(merged);
+            this.remaining = Collections.unmodifiableList(remaining);
+            this.classpath = Collections.unmodifiableList(classpath);
+            this.skipped = Collections.unmodifiableMap(skipped);
+        }
+
+        List<Path> getMerged() {
+            return this.merged;
+        }
+
+        List<Path> getRemaining() {
+            return this.remaining;
+        }
+
+        /**
+         * Returns the JARs after merging in the classpath order, where the consolidated JAR is at its first merged JAR.
+         */
+        List<Path> getClasspath() {
+            return this.classpath;
+        }
+
+        private final List<Path> merged;
+        private final List<Path> remaining;
+        private final List<Path> classpath;
+        private final Map<Path, String> skipped;
+    }
+
+    /**
+     * Merges JARs smaller than {@code thresholdBytes} without conflicts into {@code mergedJar}, in the classpath order.
+     */
+    static Merged mergeSmallJars(
+            final List<Path> jars,
+            final long thresholdBytes,
+            final Path mergedJar,
+            final Map<String, String> coordinates) throws IOException {
+        final ArrayList<Path> merged = new ArrayList<>();
+        final ArrayList<Path> remaining = new ArrayList<>();
+        final ArrayList<Path> classpath = new ArrayList<>();
+        final LinkedHashMap<Path, String> skipped = new LinkedHashMap<>();
+
+        // Entry names to their sizes and CRC-32 in all the JARs, as merging changes the order against any other JAR.
+        final HashMap<String, HashSet<String>> contents = new HashMap<>();
+        for (final Path jar : jars) {
+            try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+                for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                    if (!entry.isDirectory()) {
+                        contents.computeIfAbsent(entry.getName(), key -> new HashSet<>()).add(entry.getSize() + ":" + entry.getCrc());
+                    }
+                }
+            }
+        }
+
+        // Entry names to their contents and modified time, in the order to be written.
+        final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>();
+        final LinkedHashMap<String, ByteArrayOutputStream> services = new LinkedHashMap<>();
+        final HashMap<String, Long> times = new HashMap<>();
+
+        for (final Path jar : jars) {
+            if (Files.size(jar) >= thresholdBytes) {
+                remaining.add(jar);
+                classpath.add(jar);
+                continue;
+            }
+
+            final LinkedHashMap<String, byte[]> jarEntries = new LinkedHashMap<>();
+            final HashMap<String, Long> jarTimes = new HashMap<>();
+            String reason = null;
+            try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+                for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                    final String name = entry.getName();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    final byte[] content;
+                    try (final InputStream in = zipFile.getInputStream(entry)) {
+                        content = ReachabilityAnalysis.readAllBytes(in);
+                    }
+                    if (name.equals("META-INF/MANIFEST.MF")) {
+                        final Attributes attributes = new Manifest(new ByteArrayInputStream(content)).getMainAttributes();
+                        if ("true".equalsIgnoreCase(attributes.getValue("Multi-Release"))) {
+                            reason = "multi-release";
+                            break;
+                        }
+                        continue;
+                    }
+                    if (SlimClasspath.isSignatureFile(name)) {
+                        reason = "signed";
+                        break;
+                    }
+                    if (!name.startsWith("META-INF/services/") && !SlimClasspath.isLicenseFile(name) && contents.get(name).size() > 1) {
+                        reason = "conflicting " + name;
+                        break;
+                    }
+                    jarEntries.put(name, content);
+                    jarTimes.put(name, entry.getTime());
+                }
+            }
+            if (reason != null) {
+                skipped.put(jar, reason);
+                remaining.add(jar);
+                classpath.add(jar);
+                continue;
+            }
+
+            for (final Map.Entry<String, byte[]> entry : jarEntries.entrySet()) {
+                if (entry.getKey().startsWith("META-INF/services/")) {
+                    final ByteArrayOutputStream service = services.computeIfAbsent(entry.getKey(), key -> new ByteArrayOutputStream());
+                    service.write(entry.getValue());
+                    if (entry.getValue().length > 0 && entry.getValue()[entry.getValue().length - 1] != '\n') {
+                        service.write('\n');
+                    }
+                    times.putIfAbsent(entry.getKey(), jarTimes.get(entry.getKey()));
+                } else if (!entries.containsKey(entry.getKey())) {
+                    entries.put(entry.getKey(), entry.getValue());
+                    times.put(entry.getKey(), jarTimes.get(entry.getKey()));
+                } else if (SlimClasspath.isLicenseFile(entry.getKey()) && !Arrays.equals(entries.get(entry.getKey()), entry.getValue())) {
+                    // Different license files are kept as ShadedJar does.
+                    final String suffixed = entry.getKey() + "." + jar.getFileName().toString();
+                    if (entries.putIfAbsent(suffixed, entry.getValue()) == null) {
+                        times.put(suffixed, jarTimes.get(entry.getKey()));
+                    }
+                }
+            }
+            if (merged.isEmpty()) {
+                classpath.add(mergedJar);
+            }
+            merged.add(jar);
+        }
+
+        if (merged.isEmpty()) {
+            return new Merged(merged, remaining, classpath, skipped);
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(
+                "Embulk-Plugin-Merged-Classpath", merged.stream().map(jar -> jar.getFileName().toString()).collect(Collectors.joining(" ")));
+        for (final Path jar : merged) {
+            final String coordinate = coordinates.get(jar.getFileName().toString());
+            if (coordinate != null) {
+                final Attributes attributes = new Attributes();
+                attributes.putValue("Embulk-Plugin-Artifact", coordinate);
+                manifest.getEntries().put(jar.getFileName().toString(), attributes);
+            }
+        }
+
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(mergedJar))) {
+            final ZipEntry manifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
+            manifestEntry.setTime(GenerateClasspathLayers.FIXED_TIME.toMillis());
+            out.putNextEntry(manifestEntry);
+            manifest.write(out);
+            out.closeEntry();
+            for (final Map.Entry<String, ByteArrayOutputStream> service : services.entrySet()) {
+                final ZipEntry serviceEntry = new ZipEntry(service.getKey());
+                serviceEntry.setTime(times.get(service.getKey()));
+                out.putNextEntry(serviceEntry);
+                service.getValue().writeTo(out);
+                out.closeEntry();
+            }
+            for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                final ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(times.get(entry.getKey()));
+                out.putNextEntry(zipEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return new Merged(merged, remaining, classpath, skipped);
+    }
+
+    /**
+     * Returns the file name of the first JAR merged into a consolidated JAR, or {@code null} if it is not consolidated.
+     */
+    static String firstMergedJarName(final Path jar) throws IOException {
+        try (final JarFile jarFile = new JarFile(jar.toFile())) {
+            final Manifest manifest = jarFile.getManifest();
+            if (manifest == null) {
+                return null;
+            }
+            final String mergedClasspath = manifest.getMainAttributes().getValue("Embulk-Plugin-Merged-Classpath");
+            if (mergedClasspath == null || mergedClasspath.trim().isEmpty()) {
+                return null;
+            }
+            return mergedClasspath.trim().split(" ")[0];
+        }
+    }
+
+    /**
+     * Measures time to open the JARs and to look up all the entries in them through {@link URLClassLoader}.
+     */
+    private static long benchmarkLookup(final List<Path> jars) {
+        final ArrayList<String> names = new ArrayList<>();
+        final URL[] urls = new URL[jars.size()];
+        try {
+            for (int i = 0; i < jars.size(); i++) {
+                urls[i] = jars.get(i).toUri().toURL();
+                for (final ZipCentralDirectory.Entry entry : ZipCentralDirectory.read(jars.get(i)).getEntries()) {
+                    if (!entry.isDirectory()) {
+                        names.add(entry.getName());
+                    }
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to benchmark the classpath.", ex);
+        }
+
+        final long started = System.nanoTime();
+        try (final URLClassLoader classLoader = new URLClassLoader(urls, null)) {
+            for (final String name : names) {
+                classLoader.findResource(name);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to benchmark the classpath.", ex);
+        }
+        return (System.nanoTime() - started) / 1_000_000L;
+    }
+
+    static final String MERGED_JAR_NAME = "embulk-plugin-merged-classpath.jar";
+
+    private static final long DEFAULT_THRESHOLD_BYTES = 65536L;
+
+    private final Property<Long> thresholdBytes;
+
+    private Configuration runtimeClasspath;
+}
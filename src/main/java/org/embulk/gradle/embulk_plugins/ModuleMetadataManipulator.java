@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * A manipulator of Gradle Module Metadata ({@code .module}) to flatten its dependencies.
+ *
+ * <p>It rewrites {@code "dependencies"} of the {@code "java-api"} and {@code "java-runtime"} variants so that they
+ * consist of the same first-level dependencies as {@code pom.xml} manipulated by {@link DependenciesNodeManipulator}.
+ *
+ * <ul>
+ * <li>{@code compile} scope: in both the {@code "java-api"} and the {@code "java-runtime"} variants
+ * <li>{@code runtime} scope: only in the {@code "java-runtime"} variant
+ * <li>{@code provided} scope: in neither of the variants, as {@code provided} is not transitive in Maven
+ * </ul>
+ *
+ * <p>Every dependency excludes all its transitive dependencies, as {@code <exclusion><groupId>*</groupId></exclusion>}.
+ *
+ * @see <a href="https://github.com/gradle/gradle/blob/master/platforms/documentation/docs/src/docs/design/gradle-module-metadata-latest-specification.md">Gradle Module Metadata specification</a>
+ */
+final class ModuleMetadataManipulator {
+    private ModuleMetadataManipulator(final Map<String, Object> root, final Logger logger) {
+        this.root = root;
+        this.logger = logger;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ModuleMetadataManipulator read(final Path path, final Logger logger) {
+        final Object parsed;
+        try (final Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            parsed = new JsonSlurper().parse(reader);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read Gradle Module Metadata: " + path.toString(), ex);
+        }
+        if (!(parsed instanceof Map)) {
+            throw new GradleException("Gradle Module Metadata is not a JSON object unexpectedly: " + path.toString());
+        }
+        return new ModuleMetadataManipulator(new LinkedHashMap<>((Map<String, Object>) parsed), logger);
+    }
+
+    /**
+     * Replaces dependencies in the {@code "java-api"} and {@code "java-runtime"} variants with the flattened dependencies.
+     */
+    void flattenDependencies(final Iterable<ScopedDependency> dependencies) {
+        final ArrayList<ScopedDependency> apiDependencies = new ArrayList<>();
+        final ArrayList<ScopedDependency> runtimeDependencies = new ArrayList<>();
+        for (final ScopedDependency dependency : dependencies) {
+            switch (dependency.getScope()) {
+                case COMPILE:
+                    apiDependencies.add(dependency);
+                    runtimeDependencies.add(dependency);
+                    break;
+                case RUNTIME:
+                    runtimeDependencies.add(dependency);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        for (final Map<String, Object> variant : this.getVariants()) {
+            final String usage = getUsage(variant);
+            if ("java-api".equals(usage)) {
+                this.replaceDependencies(variant, apiDependencies);
+            } else if ("java-runtime".equals(usage)) {
+                this.replaceDependencies(variant, runtimeDependencies);
+            }
+        }
+    }
+
+    void write(final Path path) {
+        try (final Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(JsonOutput.prettyPrint(JsonOutput.toJson(this.root)));
+            writer.write("\n");
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write Gradle Module Metadata: " + path.toString(), ex);
+        }
+    }
+
+    private void replaceDependencies(final Map<String, Object> variant, final List<ScopedDependency> dependencies) {
+        this.logger.lifecycle("\"dependencies\" in the variant \"{}\" of Gradle Module Metadata is going to be flattened:", variant.get("name"));
+        final ArrayList<Map<String, Object>> dependencyObjects = new ArrayList<>();
+        for (final ScopedDependency dependency : dependencies) {
+            this.logger.lifecycle("    => {}", dependency);
+            dependencyObjects.add(newDependencyObject(dependency));
+        }
+        this.logger.lifecycle("");
+
+        // Same as removing <dependencyManagement> from pom.xml. Versions are already resolved in dependencies.
+        variant.remove("dependencyConstraints");
+        if (dependencyObjects.isEmpty()) {
+            variant.remove("dependencies");
+        } else {
+            variant.put("dependencies", dependencyObjects);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> getVariants() {
+        final Object variants = this.root.get("variants");
+        if (variants == null) {
+            return Collections.emptyList();
+        }
+        if (!(variants instanceof List)) {
+            throw new GradleException("\"variants\" in Gradle Module Metadata is not a JSON array unexpectedly.");
+        }
+        return (List<Map<String, Object>>) variants;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getUsage(final Map<String, Object> variant) {
+        final Object attributes = variant.get("attributes");
+        if (!(attributes instanceof Map)) {
+            return null;
+        }
+        final Object usage = ((Map<String, Object>) attributes).get("org.gradle.usage");
+        if (usage instanceof String) {
+            return (String) usage;
+        }
+        return null;
+    }
+
+    private static Map<String, Object> newDependencyObject(final ScopedDependency dependency) {
+        final VersionlessDependency versionless = dependency.getVersionlessDependency();
+
+        final LinkedHashMap<String, Object> object = new LinkedHashMap<>();
+        object.put("group", versionless.getGroup());
+        object.put("module", versionless.getArtifactName());
+
+        final LinkedHashMap<String, Object> version = new LinkedHashMap<>();
+        version.put("requires", dependency.getVersion());
+        object.put("version", version);
+
+        final LinkedHashMap<String, Object> excludeAll = new LinkedHashMap<>();
+        excludeAll.put("group", "*");
+        excludeAll.put("module", "*");
+        object.put("excludes", Collections.singletonList(excludeAll));
+
+        if (versionless.getClassifier() != null) {
+            // Gradle Module Metadata has no direct notion of classifiers. Gradle itself writes them this way.
+            final LinkedHashMap<String, Object> artifactSelector = new LinkedHashMap<>();
+            artifactSelector.put("name", versionless.getArtifactName());
+            artifactSelector.put("type", "jar");
+            artifactSelector.put("extension", "jar");
+            artifactSelector.put("classifier", versionless.getClassifier());
+
+            final LinkedHashMap<String, Object> thirdPartyCompatibility = new LinkedHashMap<>();
+            thirdPartyCompatibility.put("artifactSelector", artifactSelector);
+            object.put("thirdPartyCompatibility", thirdPartyCompatibility);
+        }
+
+        return object;
+    }
+
+    private final Map<String, Object> root;
+
+    private final Logger logger;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.util.ArrayList;
+import java.util.function.Function;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.maven.MavenPublication;
+
+/**
+ * Maven coordinates of a project dependency, such as {@code implementation project(":sublib")}.
+ *
+ * <p>A project dependency is published as the coordinates of its {@link MavenPublication} if the project has
+ * exactly one Maven publication, in the same way as Gradle generates {@code pom.xml}. Otherwise, it falls back to
+ * the project's {@code group}, {@code name}, and {@code version}.
+ */
+final class ProjectCoordinates {
+    private ProjectCoordinates(final String group, final String artifactName, final String version) {
+        this.group = group;
+        this.artifactName = artifactName;
+        this.version = version;
+    }
+
+    /**
+     * Returns a function to find the Maven coordinates of a project dependency in the build of {@code project}.
+     */
+    static Function<ResolvedArtifact, ProjectCoordinates> resolverOf(final Project project) {
+        return artifact -> resolve(project, artifact);
+    }
+
+    static ProjectCoordinates resolve(final Project project, final ResolvedArtifact artifact) {
+        final ModuleVersionIdentifier fallback = artifact.getModuleVersion().getId();
+
+        if (!(artifact.getId().getComponentIdentifier() instanceof ProjectComponentIdentifier)) {
+            return new ProjectCoordinates(fallback.getGroup(), fallback.getName(), fallback.getVersion());
+        }
+        final ProjectComponentIdentifier identifier = (ProjectComponentIdentifier) artifact.getId().getComponentIdentifier();
+
+        // A project in an included build is not found from the root project. It falls back.
+        final Project dependencyProject = project.getRootProject().findProject(identifier.getProjectPath());
+        if (dependencyProject == null) {
+            return new ProjectCoordinates(fallback.getGroup(), fallback.getName(), fallback.getVersion());
+        }
+
+        final PublishingExtension publishing = dependencyProject.getExtensions().findByType(PublishingExtension.class);
+        if (publishing == null) {
+            return new ProjectCoordinates(fallback.getGroup(), fallback.getName(), fallback.getVersion());
+        }
+
+        final ArrayList<MavenPublication> publications = new ArrayList<>(publishing.getPublications().withType(MavenPublication.class));
+        if (publications.size() != 1) {
+            if (publications.size() > 1) {
+                project.getLogger().warn(
+                        "The project dependency {} has multiple Maven publications. Using {}:{}:{} as its coordinates.",
+                        identifier.getProjectPath(), fallback.getGroup(), fallback.getName(), fallback.getVersion());
+            }
+            return new ProjectCoordinates(fallback.getGroup(), fallback.getName(), fallback.getVersion());
+        }
+
+        final MavenPublication publication = publications.get(0);
+        return new ProjectCoordinates(publication.getGroupId(), publication.getArtifactId(), publication.getVersion());
+    }
+
+    VersionlessDependency toVersionlessDependency(final ResolvedArtifact artifact) {
+        return VersionlessDependency.of(this.group, this.artifactName, artifact.getClassifier());
+    }
+
+    String getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public String toString() {
+        return this.group + ":" + this.artifactName + ":" + this.version;
+    }
+
+    private final String group;
+    private final String artifactName;
+    private final String version;
+}
@@ -24,6 +24,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.ResolvedArtifact;
@@ -57,10 +59,15 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
      * <li>Included only in {@code runtimeClasspath}, not in {@code compileClasspath}: {@code runtime} scope in Maven
      * <li>Included only in {@code compileClasspath}, not in {@code runtimeClasspath}: {@code provided} scope in Maven (compileOnly)
      * </ul>
+     *
+     * <p>A project dependency, such as {@code implementation project(":sublib")}, is mapped to its publication
+     * coordinates by {@code projectResolver}. Its own external dependencies are flattened together in the same way
+     * as other transitive dependencies because they are already in the resolved {@code runtimeClasspath}.
      */
     static ProspectiveDependencies build(
             final Set<ResolvedArtifact> compileClasspath,
             final Set<ResolvedArtifact> runtimeClasspath,
+            final Function<ResolvedArtifact, ProjectCoordinates> projectResolver,
             final Logger logger) {
         logger.lifecycle("compileClasspath:");
         for (final ResolvedArtifact compileArtifact : compileClasspath) {
@@ -82,7 +89,7 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
                     runtimeArtifact.getModuleVersion().getId().getVersion());
         }
         logger.lifecycle("");
-        return new Builder().addCompileClasspath(compileClasspath).addRuntimeClasspath(runtimeClasspath).build();
+        return new Builder(projectResolver).addCompileClasspath(compileClasspath).addRuntimeClasspath(runtimeClasspath).build();
     }
 
     /**
@@ -128,6 +135,41 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
         return new ProspectiveDependencies(prospectiveDependencies);
     }
 
+    /**
+     * Returns a new set of dependencies whose {@code compile} and {@code runtime} dependencies are moved to
+     * {@code provided} if they match {@code toBeProvided}.
+     *
+     * <p>It is used for dependencies which Embulk core provides by itself, and loads parent-first.
+     */
+    ProspectiveDependencies withProvided(final Predicate<VersionlessDependency> toBeProvided) {
+        final LinkedHashMap<VersionlessDependency, VersionScope> modified = new LinkedHashMap<>();
+        for (final Map.Entry<VersionlessDependency, VersionScope> entry : this.dependencies.entrySet()) {
+            final MavenScope scope = entry.getValue().getScope();
+            if ((scope == MavenScope.COMPILE || scope == MavenScope.RUNTIME) && toBeProvided.test(entry.getKey())) {
+                modified.put(entry.getKey(), VersionScope.provided(entry.getValue().getVersion()));
+            } else {
+                modified.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ProspectiveDependencies(modified);
+    }
+
+    /**
+     * Returns a new set of dependencies without {@code compile} and {@code runtime} dependencies matching {@code toBeDropped}.
+     *
+     * <p>It is used for dependencies which are unreachable from the plugin's main class.
+     */
+    ProspectiveDependencies without(final Predicate<VersionlessDependency> toBeDropped) {
+        final LinkedHashMap<VersionlessDependency, VersionScope> modified = new LinkedHashMap<>();
+        for (final Map.Entry<VersionlessDependency, VersionScope> entry : this.dependencies.entrySet()) {
+            final MavenScope scope = entry.getValue().getScope();
+            if (!((scope == MavenScope.COMPILE || scope == MavenScope.RUNTIME) && toBeDropped.test(entry.getKey()))) {
+                modified.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ProspectiveDependencies(modified);
+    }
+
     @Override
     public Iterator<ScopedDependency> iterator() {
         return this.scopedDependencies.iterator();
@@ -139,7 +181,8 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
     }
 
     private static class Builder {
-        Builder() {
+        Builder(final Function<ResolvedArtifact, ProjectCoordinates> projectResolver) {
+            this.projectResolver = projectResolver;
             this.compileVersionMap = null;
             this.runtimeVersionMap = null;
             this.compileException = null;
@@ -152,7 +195,7 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
                         "ProspectiveDependencies.Builder.addCompileClasspath is called twice unexpectedly.");
             }
             try {
-                this.compileVersionMap = buildVersionMapFromResolvedArtifacts(compileClasspath);
+                this.compileVersionMap = buildVersionMapFromResolvedArtifacts(compileClasspath, this.projectResolver);
             } catch (final UnexpectedDependencyException ex) {
                 this.compileException = ex;
             }
@@ -165,7 +208,7 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
                         "ProspectiveDependencies.Builder.addRuntimeClasspath is called twice unexpectedly.");
             }
             try {
-                this.runtimeVersionMap = buildVersionMapFromResolvedArtifacts(runtimeClasspath);
+                this.runtimeVersionMap = buildVersionMapFromResolvedArtifacts(runtimeClasspath, this.projectResolver);
             } catch (final UnexpectedDependencyException ex) {
                 this.runtimeException = ex;
             }
@@ -185,6 +228,8 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
             return ProspectiveDependencies.buildFromVersionMaps(this.compileVersionMap, this.runtimeVersionMap);
         }
 
+        private final Function<ResolvedArtifact, ProjectCoordinates> projectResolver;
+
         private LinkedHashMap<VersionlessDependency, String> compileVersionMap;
         private LinkedHashMap<VersionlessDependency, String> runtimeVersionMap;
 
@@ -257,7 +302,8 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
     }
 
     private static LinkedHashMap<VersionlessDependency, String> buildVersionMapFromResolvedArtifacts(
-            final Set<ResolvedArtifact> artifacts)
+            final Set<ResolvedArtifact> artifacts,
+            final Function<ResolvedArtifact, ProjectCoordinates> projectResolver)
             throws UnexpectedDependencyException {
         final LinkedHashMap<VersionlessDependency, String> versionMap = new LinkedHashMap<>();
 
@@ -269,9 +315,13 @@ final class ProspectiveDependencies implements Iterable<ScopedDependency> {
             final ComponentIdentifier componentIdentifier = artifact.getId().getComponentIdentifier();
 
             if (componentIdentifier instanceof ProjectComponentIdentifier) {
-                // @@@
-                // TODO: Support project dependencies.
-                // @@@
+                final ProjectCoordinates coordinates = projectResolver.apply(artifact);
+                final VersionlessDependency project = coordinates.toVersionlessDependency(artifact);
+                if (versionMap.containsKey(project)) {
+                    duplicates.add(project);
+                } else {
+                    versionMap.put(project, coordinates.getVersion());
+                }
             } else if (componentIdentifier instanceof ModuleComponentIdentifier) {
                 final ModuleComponentIdentifier moduleIdentifier = (ModuleComponentIdentifier) componentIdentifier;
                 final VersionlessDependency module = VersionlessDependency.fromModule(moduleIdentifier, artifact);
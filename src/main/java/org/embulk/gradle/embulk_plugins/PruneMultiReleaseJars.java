@@ -0,0 +1,299 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to rewrite multi-release JARs to be staged in the gem's {@code classpath/} for a specific Java version.
+ *
+ * <p>For each entry, the variant effective on {@code targetJavaVersion} is kept at the base location, that is the one
+ * in {@code META-INF/versions/N/} with the greatest {@code N} not greater than {@code targetJavaVersion}, or the base
+ * entry if none. Other variants are removed, and {@code Multi-Release: true} is removed from the manifest so that
+ * the JVM looks up classes in the JAR without versioned lookups.
+ *
+ * <p>The JARs work only on Java {@code targetJavaVersion} or later. Signed JARs and JARs which are not multi-release
+ * are staged as-is.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code embulkPlugin {
+ *   targetJavaVersion = 11  // Default: unset not to rewrite
+ * }}</pre>
+ */
+abstract class PruneMultiReleaseJars extends DefaultTask {
+    @Inject
+    public PruneMultiReleaseJars() {
+        super();
+
+        this.setDescription("Rewrites multi-release JARs to be staged in the gem only with variants for the target Java version.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.targetJavaVersion = objectFactory.property(Integer.class);
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/multiReleasePruned"));
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/pruneMultiReleaseJars.txt"));
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public Property<Integer> getTargetJavaVersion() {
+        return this.targetJavaVersion;
+    }
+
+    @TaskAction
+    public void prune() {
+        final Logger logger = this.getProject().getLogger();
+        final int target = this.targetJavaVersion.get();
+
+        final List<Path> jars = this.getClasspath().getFiles().stream()
+                .filter(File::isFile)
+                .map(File::toPath)
+                .collect(Collectors.toList());
+
+        final Path destination = this.getDestinationDirectory().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(destination);
+            try (final DirectoryStream<Path> stale = Files.newDirectoryStream(destination)) {
+                for (final Path path : stale) {
+                    Files.delete(path);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to clean the directory: " + destination.toString(), ex);
+        }
+
+        // Rewriting is independent per JAR.
+        final List<Pruned> results;
+        try {
+            results = jars.parallelStream().map(jar -> {
+                try {
+                    return prune(jar, destination.resolve(jar.getFileName().toString()), target);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).collect(Collectors.toList());
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException("Failed to rewrite JARs in the runtime classpath.", ex.getCause());
+        }
+
+        long totalSaved = 0L;
+        long totalLookups = 0L;
+        int rewritten = 0;
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (int i = 0; i < jars.size(); i++) {
+                    final Pruned pruned = results.get(i);
+                    if (pruned == null) {
+                        continue;
+                    }
+                    writer.println(String.format(
+                            "%s: %d bytes saved, %d variants removed, %d versioned lookups per class avoided",
+                            jars.get(i).getFileName(), pruned.savedBytes, pruned.removedVariants, pruned.versionedLookups));
+                    totalSaved += pruned.savedBytes;
+                    totalLookups += (long) pruned.versionedLookups * pruned.classes;
+                    rewritten++;
+                }
+                writer.println(String.format(
+                        "Total: %d bytes saved in %d multi-release JAR(s) for Java %d, %d versioned lookups avoided for all classes",
+                        totalSaved, rewritten, target, totalLookups));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle("Pruned {} multi-release JARs for Java {}, {} bytes saved. See: {}", rewritten, target, totalSaved, reportPath);
+    }
+
+    static final class Pruned {
+        private Pruned(final long savedBytes, final int removedVariants, final int versionedLookups, final int classes) {
+            this.savedBytes = savedBytes;
+            this.removedVariants = removedVariants;
+            this.versionedLookups = versionedLookups;
+            this.classes = classes;
+        }
+
+        long getSavedBytes() {
+            return this.savedBytes;
+        }
+
+        int getRemovedVariants() {
+            return this.removedVariants;
+        }
+
+        /**
+         * Returns the number of versions in {@code META-INF/versions/} effective on the target, which the JVM looks up
+         * for each class before the base entry.
+         */
+        int getVersionedLookups() {
+            return this.versionedLookups;
+        }
+
+        private final long savedBytes;
+        private final int removedVariants;
+        private final int versionedLookups;
+        private final int classes;
+    }
+
+    /**
+     * Rewrites a multi-release JAR only with variants effective on {@code targetJavaVersion}.
+     *
+     * @return the result, or {@code null} if the JAR is copied as-is as it is not multi-release, or signed
+     */
+    static Pruned prune(final Path source, final Path target, final int targetJavaVersion) throws IOException {
+        try (final ZipFile zipFile = new ZipFile(source.toFile())) {
+            final ZipEntry manifestEntry = zipFile.getEntry("META-INF/MANIFEST.MF");
+            Manifest manifest = null;
+            if (manifestEntry != null) {
+                try (final InputStream in = zipFile.getInputStream(manifestEntry)) {
+                    manifest = new Manifest(in);
+                }
+            }
+            boolean signed = false;
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                signed |= SlimClasspath.isSignatureFile(entry.getName());
+            }
+            if (manifest == null || signed || !"true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"))) {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                return null;
+            }
+
+            // Base names to the effective entries, in the order of the base entries, then new entries only in versions.
+            final LinkedHashMap<String, ZipEntry> effective = new LinkedHashMap<>();
+            final HashMap<String, Integer> effectiveVersions = new HashMap<>();
+            final TreeSet<Integer> lookedUpVersions = new TreeSet<>();
+            int variants = 0;
+            int classes = 0;
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                final String name = entry.getName();
+                if (name.equals("META-INF/MANIFEST.MF")) {
+                    continue;
+                }
+                if (!name.startsWith(VERSIONS)) {
+                    effective.putIfAbsent(name, entry);
+                    if (name.endsWith(".class")) {
+                        classes++;
+                    }
+                    continue;
+                }
+                final int slash = name.indexOf('/', VERSIONS.length());
+                final int version;
+                try {
+                    version = slash < 0 ? -1 : Integer.parseInt(name.substring(VERSIONS.length(), slash));
+                } catch (final NumberFormatException ex) {
+                    effective.putIfAbsent(name, entry);
+                    continue;
+                }
+                if (slash < 0 || entry.isDirectory()) {
+                    continue;  // Directories in "META-INF/versions/".
+                }
+                variants++;
+                if (version < 9 || version > targetJavaVersion) {  // Versions less than 9 are ignored by the JVM.
+                    continue;
+                }
+                lookedUpVersions.add(version);
+                final String baseName = name.substring(slash + 1);
+                final Integer current = effectiveVersions.get(baseName);
+                if (current == null || current < version) {
+                    effectiveVersions.put(baseName, version);
+                    effective.put(baseName, entry);
+                }
+            }
+
+            manifest.getMainAttributes().remove(new Attributes.Name("Multi-Release"));
+
+            int kept = 0;
+            try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+                final ZipEntry newManifestEntry = new ZipEntry("META-INF/MANIFEST.MF");
+                newManifestEntry.setTime(manifestEntry.getTime());
+                out.putNextEntry(newManifestEntry);
+                manifest.write(out);
+                out.closeEntry();
+
+                final byte[] buffer = new byte[8192];
+                for (final Map.Entry<String, ZipEntry> entry : effective.entrySet()) {
+                    final ZipEntry copied = new ZipEntry(entry.getKey());
+                    copied.setTime(entry.getValue().getTime());
+                    out.putNextEntry(copied);
+                    if (effectiveVersions.containsKey(entry.getKey())) {
+                        kept++;
+                    }
+                    try (final InputStream in = zipFile.getInputStream(entry.getValue())) {
+                        int read;
+                        while ((read = in.read(buffer)) >= 0) {
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                    out.closeEntry();
+                }
+            }
+            return new Pruned(Files.size(source) - Files.size(target), variants - kept, lookedUpVersions.size(), classes);
+        }
+    }
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private final Property<Integer> targetJavaVersion;
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A class reachability analysis over JAR files, from root classes through references in constant pools.
+ *
+ * <p>A class is looked up from the JAR files in the classpath order, as a class loader does. A service interface
+ * reachable makes its implementations listed in {@code META-INF/services/} reachable, as {@link java.util.ServiceLoader}
+ * does at runtime.
+ */
+final class ReachabilityAnalysis {
+    private ReachabilityAnalysis(final List<Path> jars, final Map<Path, Integer> numberOfClasses, final Map<Path, Set<String>> reachable) {
+        this.jars = jars;
+        this.numberOfClasses = numberOfClasses;
+        this.reachable = reachable;
+    }
+
+    /**
+     * Analyzes reachability.
+     *
+     * @param jars  JAR files in the classpath order
+     * @param roots  root class names in the internal form, such as {@code "org/example/Foo"}, or prefixes ending with
+     *     {@code "/"} to mark all classes in a package and its sub-packages as roots
+     */
+    static ReachabilityAnalysis analyze(final List<Path> jars, final List<String> roots) {
+        // Scanning class files is independent per JAR. It is the heaviest part, then done in parallel.
+        final List<JarClasses> scanned = jars.parallelStream().map(jar -> {
+            try {
+                return JarClasses.scan(jar);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).collect(Collectors.toList());
+
+        final HashMap<String, Path> classToJar = new HashMap<>();
+        final HashMap<String, Set<String>> classToReferences = new HashMap<>();
+        final HashMap<String, List<String>> services = new HashMap<>();
+        final LinkedHashMap<Path, Integer> numberOfClasses = new LinkedHashMap<>();
+        for (final JarClasses jarClasses : scanned) {
+            numberOfClasses.put(jarClasses.jar, jarClasses.references.size());
+            for (final Map.Entry<String, Set<String>> entry : jarClasses.references.entrySet()) {
+                if (!classToJar.containsKey(entry.getKey())) {  // The first one in the classpath wins.
+                    classToJar.put(entry.getKey(), jarClasses.jar);
+                    classToReferences.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (final Map.Entry<String, List<String>> entry : jarClasses.services.entrySet()) {
+                services.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
+
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        final HashSet<String> visited = new HashSet<>();
+        for (final String root : roots) {
+            if (root.endsWith("/")) {
+                for (final String className : classToJar.keySet()) {
+                    if (className.startsWith(root)) {
+                        queue.add(className);
+                    }
+                }
+            } else {
+                queue.add(root);
+            }
+        }
+
+        final LinkedHashMap<Path, Set<String>> reachable = new LinkedHashMap<>();
+        for (final Path jar : jars) {
+            reachable.put(jar, new HashSet<>());
+        }
+
+        while (!queue.isEmpty()) {
+            final String className = queue.poll();
+            if (!visited.add(className)) {
+                continue;
+            }
+            // Implementations are reachable even if the service interface is not in the JARs, such as java.sql.Driver.
+            final List<String> implementations = services.get(className);
+            if (implementations != null) {
+                queue.addAll(implementations);
+            }
+            final Path jar = classToJar.get(className);
+            if (jar == null) {
+                continue;  // Provided by Embulk core, by the JDK, or missing.
+            }
+            reachable.get(jar).add(className);
+            for (final String referenced : classToReferences.get(className)) {
+                if (!visited.contains(referenced)) {
+                    queue.add(referenced);
+                }
+            }
+        }
+
+        return new ReachabilityAnalysis(
+                Collections.unmodifiableList(new ArrayList<>(jars)),
+                Collections.unmodifiableMap(numberOfClasses),
+                Collections.unmodifiableMap(reachable));
+    }
+
+    List<Path> getJars() {
+        return this.jars;
+    }
+
+    int getNumberOfClasses(final Path jar) {
+        return this.numberOfClasses.getOrDefault(jar, 0);
+    }
+
+    int getNumberOfReachableClasses(final Path jar) {
+        final Set<String> classes = this.reachable.get(jar);
+        return classes == null ? 0 : classes.size();
+    }
+
+    /**
+     * Returns reachable classes in the JAR file, in the internal form.
+     */
+    Set<String> getReachableClasses(final Path jar) {
+        final Set<String> classes = this.reachable.get(jar);
+        return classes == null ? Collections.emptySet() : Collections.unmodifiableSet(classes);
+    }
+
+    /**
+     * Returns JAR files which contain classes, but none of them are reachable.
+     */
+    List<Path> getUnreachableJars() {
+        final ArrayList<Path> unreachable = new ArrayList<>();
+        for (final Path jar : this.jars) {
+            if (this.getNumberOfClasses(jar) > 0 && this.getNumberOfReachableClasses(jar) == 0) {
+                unreachable.add(jar);
+            }
+        }
+        return Collections.unmodifiableList(unreachable);
+    }
+
+    private static final class JarClasses {
+        private JarClasses(final Path jar, final Map<String, Set<String>> references, final Map<String, List<String>> services) {
+            this.jar = jar;
+            this.references = references;
+            this.services = services;
+        }
+
+        static JarClasses scan(final Path jar) throws IOException {
+            final HashMap<String, Set<String>> references = new HashMap<>();
+            final HashMap<String, List<String>> services = new HashMap<>();
+            try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+                final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    final String name = entry.getName();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (name.startsWith("META-INF/services/")) {
+                        final String service = name.substring("META-INF/services/".length()).replace('.', '/');
+                        if (!service.isEmpty() && !service.contains("/META-INF")) {
+                            services.put(service, readServiceImplementations(zipFile, entry));
+                        }
+                    } else if (name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class")) {
+                        final String className = name.substring(0, name.length() - ".class".length());
+                        try (final InputStream in = zipFile.getInputStream(entry)) {
+                            references.put(className, ClassReferences.read(readAllBytes(in)));
+                        } catch (final IOException ex) {
+                            throw new IOException("Failed to read a class file: " + name + " in " + jar.toString(), ex);
+                        }
+                    }
+                }
+            }
+            return new JarClasses(jar, references, services);
+        }
+
+        private final Path jar;
+        private final Map<String, Set<String>> references;
+        private final Map<String, List<String>> services;
+    }
+
+    /**
+     * Returns implementations listed in all {@code META-INF/services/} files in the JAR file, in the internal form.
+     */
+    static List<String> readServiceImplementations(final Path jar) throws IOException {
+        final ArrayList<String> implementations = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (entry.getName().startsWith("META-INF/services/") && !entry.isDirectory()) {
+                    implementations.addAll(readServiceImplementations(zipFile, entry));
+                }
+            }
+        }
+        return implementations;
+    }
+
+    private static List<String> readServiceImplementations(final ZipFile zipFile, final ZipEntry entry) throws IOException {
+        final ArrayList<String> implementations = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                final String trimmed = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!trimmed.isEmpty()) {
+                    implementations.add(trimmed.replace('.', '/'));
+                }
+            }
+        }
+        return implementations;
+    }
+
+    static byte[] readAllBytes(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private final List<Path> jars;
+    private final Map<Path, Integer> numberOfClasses;
+    private final Map<Path, Set<String>> reachable;
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Shades dependency JARs into the main JAR, with optional relocation and minimization.
+ *
+ * <p>Entries in dependencies are added after entries in the main JAR. The first one wins for the same name, as a class
+ * loader does, except that {@code META-INF/services/} files are concatenated, and that license and notice texts in
+ * {@code META-INF/} with different contents are kept with the dependency's file name as a suffix.
+ *
+ * <p>Manifests, signature files, {@code META-INF/maven/**}, {@code META-INF/versions/**}, {@code META-INF/INDEX.LIST},
+ * and {@code module-info.class} in dependencies are not added as they are meaningless in the merged JAR.
+ *
+ * <p>With minimization, classes in dependencies unreachable from classes in the main JAR, and from implementations
+ * listed in {@code META-INF/services/} files, are not added. See {@link ReachabilityAnalysis} about its limitations,
+ * such as references through reflection.
+ */
+final class ShadedJar {
+    private ShadedJar(final int addedEntries, final int minimizedClasses, final long bytesBefore, final long bytesAfter) {
+        this.addedEntries = addedEntries;
+        this.minimizedClasses = minimizedClasses;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    /**
+     * Rewrites the main JAR with dependencies shaded in.
+     *
+     * @param relocations  package prefixes in the dotted form to relocate to, such as
+     *     {@code "com.google.common" -> "org.embulk.input.example.shaded.com.google.common"}
+     */
+    static ShadedJar shade(
+            final Path mainJar,
+            final List<Path> dependencies,
+            final Map<String, String> relocations,
+            final boolean minimizes) throws IOException {
+        final long bytesBefore = Files.size(mainJar);
+        final ClassRelocator relocator = ClassRelocator.of(relocations);
+
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+        final LinkedHashMap<String, ByteArrayOutputStream> services = new LinkedHashMap<>();
+        readEntries(mainJar, null, entries, services, null);
+
+        int minimizedClasses = 0;
+        Set<String> reachable = null;
+        if (minimizes) {
+            final ArrayList<String> roots = new ArrayList<>();
+            for (final String name : entries.keySet()) {
+                if (name.endsWith(".class") && !name.equals("module-info.class")) {
+                    roots.add(name.substring(0, name.length() - ".class".length()));
+                }
+            }
+            // Implementations are kept as long as the merged service files list them, for ServiceLoader.
+            for (final Path dependency : dependencies) {
+                roots.addAll(ReachabilityAnalysis.readServiceImplementations(dependency));
+            }
+            final ArrayList<Path> jars = new ArrayList<>();
+            jars.add(mainJar);
+            jars.addAll(dependencies);
+            final ReachabilityAnalysis analysis = ReachabilityAnalysis.analyze(jars, roots);
+            reachable = new HashSet<>();
+            for (final Path dependency : dependencies) {
+                reachable.addAll(analysis.getReachableClasses(dependency));
+            }
+        }
+
+        final int numberOfMainEntries = entries.size();
+        for (final Path dependency : dependencies) {
+            minimizedClasses += readEntries(dependency, dependency.getFileName().toString(), entries, services, reachable);
+        }
+
+        final Path rewritten = mainJar.resolveSibling(mainJar.getFileName().toString() + ".shading");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(rewritten))) {
+            for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+                final String name = entry.getKey();
+                final boolean isManifest = name.equals("META-INF/MANIFEST.MF");
+                final ZipEntry zipEntry = new ZipEntry(isManifest ? name : relocator.relocate(name));
+                zipEntry.setTime(entry.getValue().time);
+                out.putNextEntry(zipEntry);
+                if (name.endsWith(".class") && !relocator.isEmpty()) {
+                    out.write(relocator.relocateClass(entry.getValue().content));
+                } else {
+                    out.write(entry.getValue().content);
+                }
+                out.closeEntry();
+            }
+            for (final Map.Entry<String, ByteArrayOutputStream> service : services.entrySet()) {
+                final String serviceName = service.getKey().substring("META-INF/services/".length());
+                out.putNextEntry(new ZipEntry("META-INF/services/" + relocator.relocate(serviceName)));
+                out.write(relocator.relocate(new String(service.getValue().toByteArray(), StandardCharsets.UTF_8))
+                                  .getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        Files.move(rewritten, mainJar, StandardCopyOption.REPLACE_EXISTING);
+
+        return new ShadedJar(entries.size() - numberOfMainEntries, minimizedClasses, bytesBefore, Files.size(mainJar));
+    }
+
+    int getAddedEntries() {
+        return this.addedEntries;
+    }
+
+    int getMinimizedClasses() {
+        return this.minimizedClasses;
+    }
+
+    long getBytesBefore() {
+        return this.bytesBefore;
+    }
+
+    long getBytesAfter() {
+        return this.bytesAfter;
+    }
+
+    /**
+     * Reads entries from a JAR file into {@code entries} and {@code services}.
+     *
+     * @param dependencyName  the file name of the dependency, or {@code null} for the main JAR
+     * @param reachable  reachable classes in the internal form, or {@code null} not to minimize
+     * @return the number of classes not added as they are unreachable
+     */
+    private static int readEntries(
+            final Path jar,
+            final String dependencyName,
+            final Map<String, Entry> entries,
+            final Map<String, ByteArrayOutputStream> services,
+            final Set<String> reachable) throws IOException {
+        int minimized = 0;
+        try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+            for (final ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+                final String name = zipEntry.getName();
+                if (dependencyName != null && (zipEntry.isDirectory() || isExcludedFromDependency(name))) {
+                    continue;
+                }
+                if (name.endsWith(".class") && reachable != null
+                        && !reachable.contains(name.substring(0, name.length() - ".class".length()))) {
+                    minimized++;
+                    continue;
+                }
+
+                final byte[] content;
+                try (final InputStream in = zipFile.getInputStream(zipEntry)) {
+                    content = ReachabilityAnalysis.readAllBytes(in);
+                }
+
+                if (name.startsWith("META-INF/services/") && !zipEntry.isDirectory()) {
+                    final ByteArrayOutputStream service = services.computeIfAbsent(name, key -> new ByteArrayOutputStream());
+                    service.write(content);
+                    if (content.length > 0 && content[content.length - 1] != '\n') {
+                        service.write('\n');
+                    }
+                    continue;
+                }
+
+                final Entry existing = entries.get(name);
+                if (existing == null) {
+                    entries.put(name, new Entry(content, zipEntry.getTime()));
+                } else if (dependencyName != null && SlimClasspath.isLicenseFile(name) && !Arrays.equals(existing.content, content)) {
+                    entries.putIfAbsent(name + "." + dependencyName, new Entry(content, zipEntry.getTime()));
+                }
+            }
+        }
+        return minimized;
+    }
+
+    private static boolean isExcludedFromDependency(final String name) {
+        return name.equals("META-INF/MANIFEST.MF")
+                || name.equals("META-INF/INDEX.LIST")
+                || name.equals("module-info.class")
+                || name.startsWith("META-INF/maven/")
+                || name.startsWith("META-INF/versions/")
+                || SlimClasspath.isSignatureFile(name);
+    }
+
+    private static final class Entry {
+        private Entry(final byte[] content, final long time) {
+            this.content = content;
+            this.time = time;
+        }
+
+        private final byte[] content;
+        private final long time;
+    }
+
+    private final int addedEntries;
+    private final int minimizedClasses;
+    private final long bytesBefore;
+    private final long bytesAfter;
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A Gradle task to rewrite JARs to be staged in the gem's {@code classpath/} without redundant entries.
+ *
+ * <p>It removes:
+ *
+ * <ul>
+ * <li>signature files ({@code META-INF/*.SF}, {@code *.RSA}, {@code *.DSA}, {@code *.EC}, {@code SIG-*}), and
+ *     per-entry digests in {@code META-INF/MANIFEST.MF}
+ * <li>{@code META-INF/maven/**}
+ * <li>license and notice texts in {@code META-INF/} exactly the same as ones kept in a preceding JAR
+ * </ul>
+ *
+ * <p>Multi-release variants in {@code META-INF/versions/} are kept as the plugin may run on any newer Java. They are
+ * pruned by {@code pruneMultiReleaseJars} for {@code targetJavaVersion}.
+ *
+ * <p>JARs listed in {@code keepsSigned} are staged as-is so that their signatures are kept valid.
+ *
+ * <p>Configuration example:
+ *
+ * <pre>{@code embulkPlugin {
+ *   slimsClasspath = true  // Default: false
+ * }
+ * slimClasspath {
+ *   keepsSigned = [ "org.bouncycastle:bcprov-jdk18on" ]  // In "group:name".
+ * }}</pre>
+ */
+abstract class SlimClasspath extends DefaultTask {
+    @Inject
+    public SlimClasspath() {
+        super();
+
+        this.setDescription("Rewrites JARs to be staged in the gem without signatures and redundant META-INF entries.");
+
+        final ObjectFactory objectFactory = this.getProject().getObjects();
+
+        this.keepsSigned = objectFactory.listProperty(String.class);
+        this.runtimeClasspath = null;
+
+        this.getDestinationDirectory().convention(
+                this.getProject().getLayout().getBuildDirectory().dir("embulk/slimClasspath"));
+        this.getReportFile().convention(
+                this.getProject().getLayout().getBuildDirectory().file("reports/embulk/slimClasspath.txt"));
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @OutputDirectory
+    abstract DirectoryProperty getDestinationDirectory();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @Input
+    public ListProperty<String> getKeepsSigned() {
+        return this.keepsSigned;
+    }
+
+    @TaskAction
+    public void slim() {
+        final Logger logger = this.getProject().getLogger();
+
+        final Set<String> keptSignedFileNames = this.findKeptSignedFileNames();
+
+        final List<Path> jars = this.getClasspath().getFiles().stream()
+                .filter(File::isFile)
+                .map(File::toPath)
+                .collect(Collectors.toList());
+
+        final Path destination = this.getDestinationDirectory().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(destination);
+            try (final DirectoryStream<Path> stale = Files.newDirectoryStream(destination)) {
+                for (final Path path : stale) {
+                    Files.delete(path);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to clean the directory: " + destination.toString(), ex);
+        }
+
+        final long started = System.nanoTime();
+
+        final List<Long> savedBytes;
+        try {
+            savedBytes = slim(jars, destination, keptSignedFileNames);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to read JARs in the runtime classpath.", ex);
+        } catch (final UncheckedIOException ex) {
+            throw new GradleException("Failed to rewrite JARs in the runtime classpath.", ex.getCause());
+        }
+
+        final long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+
+        long totalSaved = 0L;
+        final Path reportPath = this.getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportPath.getParent());
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                for (int i = 0; i < jars.size(); i++) {
+                    final Path jar = jars.get(i);
+                    final String kept = keptSignedFileNames.contains(jar.getFileName().toString()) ? " [KEPT SIGNED]" : "";
+                    writer.println(String.format("%s: %d bytes saved%s", jar.getFileName(), savedBytes.get(i), kept));
+                    totalSaved += savedBytes.get(i);
+                }
+                writer.println(String.format("Total: %d bytes saved in %d JAR(s)", totalSaved, jars.size()));
+            }
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to write the report: " + reportPath.toString(), ex);
+        }
+
+        logger.lifecycle("Slimmed {} JARs in {} ms, {} bytes saved. See: {}", jars.size(), elapsedMillis, totalSaved, reportPath);
+    }
+
+    void setRuntimeClasspath(final Configuration runtimeClasspath) {
+        this.runtimeClasspath = runtimeClasspath;
+    }
+
+    /**
+     * Rewrites JAR files into {@code destination}, and returns bytes saved per JAR.
+     *
+     * <p>JARs are matched with {@code keptSignedFileNames} by their file names, as the JARs may be copies rewritten by
+     * {@code pruneMultiReleaseJars} with the same file names, not the resolved artifacts.
+     */
+    static List<Long> slim(final List<Path> jars, final Path destination, final Set<String> keptSignedFileNames) throws IOException {
+        final List<Set<String>> licensesToRemove = findDuplicateLicenses(jars);
+        final ArrayList<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < jars.size(); i++) {
+            indices.add(i);
+        }
+        // Rewriting is independent per JAR once duplicate licenses are determined in the classpath order.
+        return indices.parallelStream().map(i -> {
+            final Path jar = jars.get(i);
+            final Path target = destination.resolve(jar.getFileName().toString());
+            try {
+                if (keptSignedFileNames.contains(jar.getFileName().toString())) {
+                    Files.copy(jar, target, StandardCopyOption.REPLACE_EXISTING);
+                    return 0L;
+                }
+                rewrite(jar, target, licensesToRemove.get(i));
+                return Files.size(jar) - Files.size(target);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Rewrites a JAR file through a filter of entries.
+     */
+    static void rewrite(final Path source, final Path target, final Set<String> licensesToRemove) throws IOException {
+        try (final ZipFile zipFile = new ZipFile(source.toFile());
+                final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+            boolean signed = false;
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (isSignatureFile(entry.getName())) {
+                    signed = true;
+                    break;
+                }
+            }
+
+            final byte[] buffer = new byte[8192];
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                final String name = entry.getName();
+                if (isSignatureFile(name)
+                        || name.startsWith("META-INF/maven/")
+                        || licensesToRemove.contains(name)) {
+                    continue;
+                }
+
+                final ZipEntry copied = new ZipEntry(entry);
+                if (copied.getMethod() == ZipEntry.DEFLATED) {
+                    copied.setCompressedSize(-1L);  // Deflated again. The compressed size may differ.
+                }
+
+                if (signed && name.equals("META-INF/MANIFEST.MF")) {
+                    // Per-entry sections of a signed JAR are only digests for the signature.
+                    final Manifest manifest;
+                    try (final InputStream in = zipFile.getInputStream(entry)) {
+                        manifest = new Manifest(in);
+                    }
+                    manifest.getEntries().clear();
+                    final ZipEntry manifestEntry = new ZipEntry(name);
+                    manifestEntry.setTime(entry.getTime());
+                    out.putNextEntry(manifestEntry);
+                    manifest.write(out);
+                    out.closeEntry();
+                    continue;
+                }
+
+                out.putNextEntry(copied);
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Finds license and notice texts in each JAR which are exactly the same as ones in a preceding JAR.
+     */
+    static List<Set<String>> findDuplicateLicenses(final List<Path> jars) throws IOException {
+        final List<Map<String, String>> digestsPerJar;
+        try {
+            digestsPerJar = jars.parallelStream().map(jar -> {
+                try {
+                    return digestLicenses(jar);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).collect(Collectors.toList());
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        final HashSet<String> seen = new HashSet<>();
+        final ArrayList<Set<String>> duplicates = new ArrayList<>();
+        for (final Map<String, String> digests : digestsPerJar) {
+            final HashSet<String> duplicatesInJar = new HashSet<>();
+            for (final Map.Entry<String, String> license : digests.entrySet()) {
+                if (!seen.add(license.getValue())) {
+                    duplicatesInJar.add(license.getKey());
+                }
+            }
+            duplicates.add(Collections.unmodifiableSet(duplicatesInJar));
+        }
+        return Collections.unmodifiableList(duplicates);
+    }
+
+    private static Map<String, String> digestLicenses(final Path jar) throws IOException {
+        final HashMap<String, String> digests = new HashMap<>();
+        try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                if (entry.isDirectory() || !isLicenseFile(entry.getName())) {
+                    continue;
+                }
+                final MessageDigest digest;
+                try {
+                    digest = MessageDigest.getInstance("SHA-256");
+                } catch (final NoSuchAlgorithmException ex) {
+                    throw new IllegalStateException("SHA-256 is unavailable unexpectedly.", ex);
+                }
+                try (final InputStream in = zipFile.getInputStream(entry)) {
+                    digest.update(ReachabilityAnalysis.readAllBytes(in));
+                }
+                digests.put(entry.getName(), GenerateClasspathManifest.toHex(digest.digest()));
+            }
+        }
+        return digests;
+    }
+
+    static boolean isSignatureFile(final String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) {
+            return false;
+        }
+        final String upper = name.substring("META-INF/".length()).toUpperCase(Locale.ROOT);
+        return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC")
+                || upper.startsWith("SIG-");
+    }
+
+    static boolean isLicenseFile(final String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) >= 0) {
+            return false;
+        }
+        final String upper = name.substring("META-INF/".length()).toUpperCase(Locale.ROOT);
+        return upper.startsWith("LICENSE") || upper.startsWith("NOTICE") || upper.startsWith("COPYING");
+    }
+
+    /**
+     * Returns file names of JARs in {@code keepsSigned}. Staging tasks keep file names of JARs.
+     */
+    private Set<String> findKeptSignedFileNames() {
+        final List<String> keepsSigned = this.keepsSigned.getOrElse(Collections.emptyList());
+        if (keepsSigned.isEmpty()) {
+            return Collections.emptySet();
+        }
+        if (this.runtimeClasspath == null) {
+            throw new GradleException("\"runtimeClasspath\" is not configured for \"" + this.getName() + "\" unexpectedly.");
+        }
+        final HashSet<String> fileNames = new HashSet<>();
+        for (final ResolvedArtifact artifact : this.runtimeClasspath.getResolvedConfiguration().getResolvedArtifacts()) {
+            final ModuleVersionIdentifier id = artifact.getModuleVersion().getId();
+            if (keepsSigned.contains(id.getGroup() + ":" + id.getName())) {
+                fileNames.add(artifact.getFile().getName());
+            }
+        }
+        return fileNames;
+    }
+
+    private final ListProperty<String> keepsSigned;
+
+    private Configuration runtimeClasspath;
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A forward-only reader of a tar stream, such as a gem and its {@code data.tar.gz}.
+ *
+ * <p>It reads POSIX ustar headers with the {@code prefix} field, and GNU long names ({@code L}) which RubyGems may
+ * write for long paths. The content of an entry is skipped unless it is read before {@link #next}.
+ *
+ * @see <a href="https://pubs.opengroup.org/onlinepubs/9699919799/utilities/pax.html#tag_20_92_13_06">ustar Interchange Format</a>
+ */
+final class TarReader {
+    TarReader(final InputStream in) {
+        this.in = in;
+        this.remaining = 0L;
+        this.padding = 0L;
+    }
+
+    static final class Entry {
+        private Entry(final String name, final long size, final char type) {
+            this.name = name;
+            this.size = size;
+            this.type = type;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        long getSize() {
+            return this.size;
+        }
+
+        boolean isFile() {
+            return this.type == '0' || this.type == '\0';
+        }
+
+        private final String name;
+        private final long size;
+        private final char type;
+    }
+
+    /**
+     * Moves to the next entry, skipping the rest of the current entry.
+     *
+     * @return the next entry, or {@code null} at the end of the archive
+     */
+    Entry next() throws IOException {
+        String longName = null;
+        while (true) {
+            skipFully(this.remaining + this.padding);
+            this.remaining = 0L;
+            this.padding = 0L;
+
+            final byte[] header = new byte[BLOCK];
+            if (!readBlock(header)) {
+                return null;
+            }
+            if (isZeros(header)) {
+                return null;  // The end-of-archive marker.
+            }
+
+            final long size = parseOctal(header, 124, 12);
+            final char type = (char) (header[156] & 0xff);
+            this.remaining = size;
+            this.padding = (BLOCK - (size % BLOCK)) % BLOCK;
+
+            if (type == 'L') {  // A GNU long name for the next entry.
+                final byte[] name = new byte[(int) size];
+                readFully(name);
+                this.remaining = 0L;
+                longName = parseString(name, 0, name.length);
+                continue;
+            }
+            if (type == 'x' || type == 'g') {  // PAX headers are not interpreted.
+                continue;
+            }
+
+            final String name;
+            if (longName != null) {
+                name = longName;
+            } else {
+                final String prefix = parseString(header, 345, 155);
+                final String base = parseString(header, 0, 100);
+                name = prefix.isEmpty() ? base : prefix + "/" + base;
+            }
+            return new Entry(name, size, type);
+        }
+    }
+
+    /**
+     * Returns a stream of the content of the current entry, which ends at the end of the entry.
+     */
+    InputStream getInputStream() {
+        return new FilterInputStream(this.in) {
+            @Override
+            public int read() throws IOException {
+                if (TarReader.this.remaining <= 0) {
+                    return -1;
+                }
+                final int read = this.in.read();
+                if (read >= 0) {
+                    TarReader.this.remaining--;
+                }
+                return read;
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                if (TarReader.this.remaining <= 0) {
+                    return -1;
+                }
+                final int read = this.in.read(buffer, offset, (int) Math.min(length, TarReader.this.remaining));
+                if (read > 0) {
+                    TarReader.this.remaining -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(final long n) throws IOException {
+                final long skipped = this.in.skip(Math.min(n, TarReader.this.remaining));
+                TarReader.this.remaining -= skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(this.in.available(), TarReader.this.remaining);
+            }
+
+            @Override
+            public void close() {
+                // The underlying stream is kept open for the next entry.
+            }
+        };
+    }
+
+    private boolean readBlock(final byte[] block) throws IOException {
+        int offset = 0;
+        while (offset < block.length) {
+            final int read = this.in.read(block, offset, block.length - offset);
+            if (read < 0) {
+                if (offset == 0) {
+                    return false;  // Some writers omit the end-of-archive marker.
+                }
+                throw new EOFException("Unexpected end of a tar header.");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private void readFully(final byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            final int read = this.in.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of a tar entry.");
+            }
+            offset += read;
+        }
+    }
+
+    private void skipFully(final long bytes) throws IOException {
+        long left = bytes;
+        while (left > 0) {
+            final long skipped = this.in.skip(left);
+            if (skipped > 0) {
+                left -= skipped;
+            } else if (this.in.read() >= 0) {
+                left--;
+            } else {
+                throw new EOFException("Unexpected end of a tar entry.");
+            }
+        }
+    }
+
+    private static boolean isZeros(final byte[] block) {
+        for (final byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseOctal(final byte[] header, final int offset, final int length) throws IOException {
+        long value = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            final byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value == 0L && b == ' ') {
+                    continue;  // Leading spaces.
+                }
+                break;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid octal number in a tar header.");
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private static String parseString(final byte[] bytes, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static final int BLOCK = 512;
+
+    private final InputStream in;
+
+    private long remaining;
+    private long padding;
+}
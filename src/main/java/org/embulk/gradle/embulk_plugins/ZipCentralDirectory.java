@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A read-only view of the central directory of a ZIP (JAR) file.
+ *
+ * <p>It reads only the end of central directory record and the central directory through memory-mapped I/O,
+ * without inflating any entry. It is much cheaper than {@link java.util.zip.ZipFile} or
+ * {@link java.util.jar.JarFile} when only names and sizes of entries are needed.
+ *
+ * @see <a href="https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT">APPNOTE.TXT - .ZIP File Format Specification</a>
+ */
+final class ZipCentralDirectory implements Iterable<ZipCentralDirectory.Entry> {
+    private ZipCentralDirectory(final Path path, final List<Entry> entries) {
+        this.path = path;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    static final class Entry {
+        private Entry(
+                final String name,
+                final int method,
+                final long crc,
+                final long compressedSize,
+                final long size,
+                final long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        int getMethod() {
+            return this.method;
+        }
+
+        long getCrc() {
+            return this.crc;
+        }
+
+        long getCompressedSize() {
+            return this.compressedSize;
+        }
+
+        long getSize() {
+            return this.size;
+        }
+
+        long getLocalHeaderOffset() {
+            return this.localHeaderOffset;
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+    }
+
+    static ZipCentralDirectory read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < END_OF_CENTRAL_DIRECTORY_LENGTH) {
+                throw new IOException("Not a ZIP file: " + path.toString());
+            }
+
+            // The end of central directory record is at the end of the file, followed by a comment up to 65535 bytes.
+            final long tailOffset = Math.max(0L, fileSize - END_OF_CENTRAL_DIRECTORY_LENGTH - 0xffff);
+            final MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailOffset, fileSize - tailOffset);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            int endOfCentralDirectory = -1;
+            for (int i = tail.limit() - END_OF_CENTRAL_DIRECTORY_LENGTH; i >= 0; i--) {
+                if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    endOfCentralDirectory = i;
+                    break;
+                }
+            }
+            if (endOfCentralDirectory < 0) {
+                throw new IOException("No end of central directory record found in: " + path.toString());
+            }
+
+            long numberOfEntries = tail.getShort(endOfCentralDirectory + 10) & 0xffffL;
+            long centralDirectorySize = tail.getInt(endOfCentralDirectory + 12) & 0xffffffffL;
+            long centralDirectoryOffset = tail.getInt(endOfCentralDirectory + 16) & 0xffffffffL;
+
+            final int zip64Locator = endOfCentralDirectory - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH;
+            if (zip64Locator >= 0 && tail.getInt(zip64Locator) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                final long zip64EndOffset = tail.getLong(zip64Locator + 8);
+                final MappedByteBuffer zip64End = channel.map(
+                        FileChannel.MapMode.READ_ONLY, zip64EndOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH);
+                zip64End.order(ByteOrder.LITTLE_ENDIAN);
+                if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new IOException("Broken ZIP64 end of central directory record in: " + path.toString());
+                }
+                numberOfEntries = zip64End.getLong(32);
+                centralDirectorySize = zip64End.getLong(40);
+                centralDirectoryOffset = zip64End.getLong(48);
+            }
+
+            if (centralDirectoryOffset + centralDirectorySize > fileSize) {
+                throw new IOException("Broken central directory in: " + path.toString());
+            }
+
+            final MappedByteBuffer directory = channel.map(
+                    FileChannel.MapMode.READ_ONLY, centralDirectoryOffset, centralDirectorySize);
+            directory.order(ByteOrder.LITTLE_ENDIAN);
+
+            final ArrayList<Entry> entries = new ArrayList<>((int) Math.min(numberOfEntries, 1 << 20));
+            int position = 0;
+            for (long i = 0; i < numberOfEntries; i++) {
+                if (directory.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new IOException("Broken central directory header in: " + path.toString());
+                }
+                final int method = directory.getShort(position + 10) & 0xffff;
+                final long crc = directory.getInt(position + 16) & 0xffffffffL;
+                long compressedSize = directory.getInt(position + 20) & 0xffffffffL;
+                long size = directory.getInt(position + 24) & 0xffffffffL;
+                final int nameLength = directory.getShort(position + 28) & 0xffff;
+                final int extraLength = directory.getShort(position + 30) & 0xffff;
+                final int commentLength = directory.getShort(position + 32) & 0xffff;
+                long localHeaderOffset = directory.getInt(position + 42) & 0xffffffffL;
+
+                final byte[] nameBytes = new byte[nameLength];
+                directory.position(position + CENTRAL_DIRECTORY_HEADER_LENGTH);
+                directory.get(nameBytes);
+                // Entry names in JAR files are practically always in UTF-8, even without the language encoding flag (0x800).
+                final String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+                // ZIP64 extended information extra field, only when the 32-bit fields are saturated.
+                int extra = position + CENTRAL_DIRECTORY_HEADER_LENGTH + nameLength;
+                final int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    final int headerId = directory.getShort(extra) & 0xffff;
+                    final int dataSize = directory.getShort(extra + 2) & 0xffff;
+                    if (headerId == 0x0001) {
+                        int field = extra + 4;
+                        if (size == 0xffffffffL) {
+                            size = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == 0xffffffffL) {
+                            compressedSize = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == 0xffffffffL) {
+                            localHeaderOffset = directory.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + dataSize;
+                }
+
+                entries.add(new Entry(name, method, crc, compressedSize, size, localHeaderOffset));
+                position += CENTRAL_DIRECTORY_HEADER_LENGTH + nameLength + extraLength + commentLength;
+            }
+
+            return new ZipCentralDirectory(path, entries);
+        }
+    }
+
+    Path getPath() {
+        return this.path;
+    }
+
+    List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return this.entries.iterator();
+    }
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH = 56;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_LENGTH = 46;
+
+    private final Path path;
+    private final List<Entry> entries;
+}
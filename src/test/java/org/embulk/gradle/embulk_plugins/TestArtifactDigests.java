@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestArtifactDigests {
+    @Test
+    public void testWriteSidecars(@TempDir Path tempDir) throws IOException {
+        final Path artifact = Files.write(tempDir.resolve("foo-1.0.jar"), "abc".getBytes(StandardCharsets.UTF_8));
+
+        final List<Path> sidecars = ArtifactDigests.of(artifact).writeSidecars(artifact);
+        assertEquals(4, sidecars.size());
+        assertEquals("900150983cd24fb0d6963f7d28e17f72", read(tempDir.resolve("foo-1.0.jar.md5")));
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", read(tempDir.resolve("foo-1.0.jar.sha1")));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", read(tempDir.resolve("foo-1.0.jar.sha256")));
+        assertEquals(128, read(tempDir.resolve("foo-1.0.jar.sha512")).length());
+        assertEquals("ddaf35a193617aba", read(tempDir.resolve("foo-1.0.jar.sha512")).substring(0, 16));
+    }
+
+    private static String read(final Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+    }
+}
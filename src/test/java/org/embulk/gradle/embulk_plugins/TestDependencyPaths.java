@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TestDependencyPaths {
+    @Test
+    public void testShortestPaths() {
+        final HashMap<String, List<String>> graph = new HashMap<>();
+        graph.put("project", Arrays.asList("foo", "bar"));
+        graph.put("foo", Arrays.asList("baz", "qux"));
+        graph.put("bar", Arrays.asList("qux"));
+        graph.put("qux", Arrays.asList("project"));  // A cycle.
+
+        final Map<String, List<String>> paths =
+                DependencyPaths.shortestPaths("project", node -> graph.getOrDefault(node, Collections.emptyList()));
+        assertEquals(Arrays.asList("foo", "bar", "baz", "qux"), Arrays.asList(paths.keySet().toArray()));
+        assertEquals(Arrays.asList("foo"), paths.get("foo"));
+        assertEquals(Arrays.asList("foo", "baz"), paths.get("baz"));
+        assertEquals(Arrays.asList("foo", "qux"), paths.get("qux"));
+    }
+}
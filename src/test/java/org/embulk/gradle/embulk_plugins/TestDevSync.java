@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestDevSync {
+    @Test
+    public void testUpdate(@TempDir Path tempDir) throws IOException {
+        final Path built = tempDir.resolve("embulk-input-example-0.1.0.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(built))) {
+            writeEntry(out, "org/embulk/input/example/ExampleInputPlugin.class", "old");
+            writeEntry(out, "org/embulk/input/example/Removed.class", "removed");
+            writeEntry(out, "example.properties", "kept");
+        }
+        // Installed by a hard link as "embulkInstallLocal" does.
+        final Path installed = tempDir.resolve("installed.jar");
+        InstallLocal.install(built, installed);
+
+        final Path changed = Files.write(tempDir.resolve("ExampleInputPlugin.class"), "new".getBytes(StandardCharsets.UTF_8));
+        final Path added = Files.write(tempDir.resolve("Added.class"), "added".getBytes(StandardCharsets.UTF_8));
+        final LinkedHashMap<String, Path> entries = new LinkedHashMap<>();
+        entries.put("org/embulk/input/example/ExampleInputPlugin.class", changed);
+        entries.put("org/embulk/input/example/Removed.class", null);
+        entries.put("org/embulk/input/example/sub/Added.class", added);
+        DevSync.update(installed, entries);
+
+        try (final ZipFile zipFile = new ZipFile(installed.toFile())) {
+            assertEquals("new", read(zipFile, "org/embulk/input/example/ExampleInputPlugin.class"));
+            assertNull(zipFile.getEntry("org/embulk/input/example/Removed.class"));
+            assertEquals("added", read(zipFile, "org/embulk/input/example/sub/Added.class"));
+            assertEquals("kept", read(zipFile, "example.properties"));
+        }
+        // The built JAR is not modified through the hard link.
+        try (final ZipFile zipFile = new ZipFile(built.toFile())) {
+            assertEquals("old", read(zipFile, "org/embulk/input/example/ExampleInputPlugin.class"));
+            assertEquals("removed", read(zipFile, "org/embulk/input/example/Removed.class"));
+        }
+    }
+
+    private static void writeEntry(final ZipOutputStream out, final String name, final String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private static String read(final ZipFile zipFile, final String name) throws IOException {
+        try (final InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return new String(ReachabilityAnalysis.readAllBytes(in), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -56,6 +57,43 @@ class TestGem {
         assertEquals("sub1/sub2/file3", foundPathsWithSlashes[3]);
     }
 
+    @Test
+    public void testRenderBootstrap() {
+        assertEquals(Arrays.asList(
+                "Embulk::JavaPlugin.register_input(",
+                "  \"example\", \"org.embulk.input.example.ExampleInputPlugin\",",
+                "  File.expand_path(\"../../../../classpath\", __FILE__))"),
+                Gem.renderBootstrap("input", "example", "org.embulk.input.example.ExampleInputPlugin", null, false));
+    }
+
+    @Test
+    public void testRenderBootstrapWithJarList() {
+        assertEquals(Arrays.asList(
+                "Embulk::JavaPlugin.register_input(",
+                "  \"example\", \"org.embulk.input.example.ExampleInputPlugin\",",
+                "  [",
+                "    File.expand_path(\"../../../../classpath/embulk-input-example-0.1.0.jar\", __FILE__),",
+                "    File.expand_path(\"../../../../classpath/commons-lang3-3.12.0.jar\", __FILE__),",
+                "  ].freeze)"),
+                Gem.renderBootstrap("input", "example", "org.embulk.input.example.ExampleInputPlugin",
+                                    Arrays.asList("embulk-input-example-0.1.0.jar", "commons-lang3-3.12.0.jar"), false));
+    }
+
+    @Test
+    public void testRenderBootstrapWithLock() {
+        assertEquals(Arrays.asList(
+                "# No released Embulk resolves dependencies in classpath.lock. They must be put in classpath/ before loading.",
+                "lock = File.expand_path(\"../../../../classpath.lock\", __FILE__)",
+                "locked = File.readlines(lock).count { |line| !line.start_with?(\"#\") && !line.strip.empty? }",
+                "if Dir.glob(File.join(File.expand_path(\"../../../../classpath\", __FILE__), \"*.jar\")).size <= locked",
+                "  raise LoadError, \"Dependencies of the thin gem in #{lock} are not resolved into classpath/.\"",
+                "end",
+                "Embulk::JavaPlugin.register_input(",
+                "  \"example\", \"org.embulk.input.example.ExampleInputPlugin\",",
+                "  File.expand_path(\"../../../../classpath\", __FILE__))"),
+                Gem.renderBootstrap("input", "example", "org.embulk.input.example.ExampleInputPlugin", null, true));
+    }
+
     private static List<Path> listFiles(final Path root) throws IOException {
         final ArrayList<Path> files = new ArrayList<>();
 
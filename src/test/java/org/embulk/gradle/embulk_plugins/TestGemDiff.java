@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGemDiff {
+    @Test
+    public void testVersionlessKey() {
+        assertEquals("commons-lang3", GemDiff.versionlessKey("commons-lang3-3.12.0.jar"));
+        assertEquals("jffi-native", GemDiff.versionlessKey("jffi-1.2.23-native.jar"));
+        assertEquals("guava-jre", GemDiff.versionlessKey("guava-31.1-jre.jar"));
+        assertEquals("unversioned.jar", GemDiff.versionlessKey("unversioned.jar"));
+    }
+
+    @Test
+    public void testDiff(@TempDir Path tempDir) throws IOException {
+        final Path base = createGem(tempDir.resolve("base.gem"),
+                "classpath/plugin-0.1.0.jar", "aaaa",
+                "classpath/foo-1.0.jar", "bbbbbb",
+                "classpath/bar-1.0.jar", "cc",
+                "lib/embulk/input/example.rb", "rb");
+        final Path current = createGem(tempDir.resolve("current.gem"),
+                "classpath/plugin-0.1.0.jar", "aaaaaa",
+                "classpath/foo-1.1.jar", "bbbbbbbbbb",
+                "classpath/baz-2.0.jar", "ddd",
+                "lib/embulk/input/example.rb", "rb");
+
+        final GemDiff.Contents baseContents = GemDiff.Contents.read(base);
+        final GemDiff.Contents currentContents = GemDiff.Contents.read(current);
+        assertEquals(14, baseContents.getPayloadBytes());
+        assertEquals(21, currentContents.getPayloadBytes());
+        assertEquals(Arrays.asList(
+                "- bar-1.0.jar: 2 bytes (-2 bytes)",
+                "~ plugin-0.1.0.jar: 4 -> 6 bytes (+2 bytes)",
+                "~ foo-1.0.jar -> foo-1.1.jar: 6 -> 10 bytes (+4 bytes)",
+                "+ baz-2.0.jar: 3 bytes (+3 bytes)"),
+                GemDiff.diff(baseContents, currentContents));
+    }
+
+    private static Path createGem(final Path gem, final String... namesAndContents) throws IOException {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(data)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                TestGemVerify.writeTarEntry(out, namesAndContents[i], namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+            out.write(new byte[1024]);
+        }
+        try (final OutputStream out = Files.newOutputStream(gem)) {
+            TestGemVerify.writeTarEntry(out, "metadata.gz", TestGemVerify.gzip("---\n".getBytes(StandardCharsets.UTF_8)));
+            TestGemVerify.writeTarEntry(out, "data.tar.gz", data.toByteArray());
+            out.write(new byte[1024]);
+        }
+        return gem;
+    }
+}
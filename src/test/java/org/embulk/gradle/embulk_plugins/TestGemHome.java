@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.embulk.gradle.embulk_plugins.Util.prepareProjectDir;
+import static org.embulk.gradle.embulk_plugins.Util.runGradle;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@code gemHome} in the Embulk plugins Gradle plugin.
+ *
+ * <p>This test is tentatively disabled on Windows. {@code GradleRunner} may keep some related files open.
+ * It prevents JUnit 5 from removing the temporary directory ({@code TempDir}).
+ */
+class TestGemHome {
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void test(@TempDir Path tempDir) throws IOException {
+        final Path projectDir = prepareProjectDir(tempDir, "testGemHome");
+        runGradle(projectDir, "gemHome");
+
+        final Path tarPath = projectDir.resolve("build/gems/embulk-input-gemhome-0.1.0-java-gem-home.tar");
+        assertTrue(Files.exists(tarPath));
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final InputStream in = Files.newInputStream(tarPath)) {
+            final TarReader reader = new TarReader(in);
+            for (TarReader.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                names.add(entry.getName());
+            }
+        }
+        assertTrue(names.contains("specifications/embulk-input-gemhome-0.1.0-java.gemspec"));
+        assertTrue(names.contains("gems/embulk-input-gemhome-0.1.0-java/lib/embulk/input/gemhome.rb"));
+        assertTrue(names.contains("gems/embulk-input-gemhome-0.1.0-java/classpath/embulk-input-gemhome-0.1.0.jar"));
+        assertTrue(names.contains("gems/embulk-input-gemhome-0.1.0-java/classpath/commons-lang-2.6.jar"));
+        // The gemspec is only in "specifications/".
+        assertFalse(names.contains("gems/embulk-input-gemhome-0.1.0-java/embulk-input-gemhome.gemspec"));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGemVerify {
+    @Test
+    public void testVerify(@TempDir Path tempDir) throws Exception {
+        final Path gem = createGem(tempDir.resolve("embulk-input-example-0.1.0-java.gem"), false);
+
+        final GemVerify.Verified verified = GemVerify.verify(gem, null, true);
+        assertEquals(Collections.emptyList(), verified.getProblems());
+        assertEquals(3, verified.getFiles());
+    }
+
+    @Test
+    public void testVerifyBroken(@TempDir Path tempDir) throws Exception {
+        final Path gem = createGem(tempDir.resolve("embulk-input-example-0.1.0-java.gem"), true);
+
+        final GemVerify.Verified verified = GemVerify.verify(gem, "embulk-input-example-0.1.0.jar", true);
+        assertEquals(Arrays.asList(
+                "SHA256 of data.tar.gz mismatches with checksums.yaml.gz: expected 0000, actual " + verifiedDigestOfData,
+                "A file in the gem specification is not in data.tar.gz: classpath/missing.jar",
+                "The bootstrap Ruby code does not register input \"example\" with org.embulk.input.example.ExampleInputPlugin"),
+                verified.getProblems());
+    }
+
+    @Test
+    public void testParseChecksums() {
+        final Map<String, Map<String, String>> checksums = GemVerify.parseChecksums(Arrays.asList(
+                "---",
+                "SHA256:",
+                "  metadata.gz: 0123",
+                "  data.tar.gz: '4567'",
+                "SHA512:",
+                "  metadata.gz: 89ab"));
+        assertEquals("0123", checksums.get("SHA256").get("metadata.gz"));
+        assertEquals("4567", checksums.get("SHA256").get("data.tar.gz"));
+        assertEquals(Collections.singletonMap("metadata.gz", "89ab"), checksums.get("SHA512"));
+    }
+
+    private Path createGem(final Path gem, final boolean broken) throws IOException, NoSuchAlgorithmException {
+        final ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Embulk-Plugin-Main-Class", "org.embulk.input.example.ExampleInputPlugin");
+        manifest.getMainAttributes().putValue("Embulk-Plugin-Category", "input");
+        manifest.getMainAttributes().putValue("Embulk-Plugin-Type", "example");
+        manifest.getMainAttributes().putValue("Embulk-Plugin-Classpath", "dep-1.0.jar");
+        final Attributes section = new Attributes();
+        section.putValue("Embulk-Plugin-Artifact-Size", "3");
+        section.putValue("Embulk-Plugin-Artifact-SHA-256", sha256("dep".getBytes(StandardCharsets.UTF_8)));
+        manifest.getEntries().put("classpath/dep-1.0.jar", section);
+        try (final JarOutputStream out = new JarOutputStream(jar, manifest)) {
+            out.putNextEntry(new ZipEntry("org/embulk/input/example/ExampleInputPlugin.class"));
+            out.write(new byte[] { (byte) 0xca, (byte) 0xfe });
+            out.closeEntry();
+        }
+
+        final String bootstrap = "Embulk::JavaPlugin.register_input(\n"
+                + "  \"example\", \"" + (broken ? "org.embulk.input.example.Wrong" : "org.embulk.input.example.ExampleInputPlugin") + "\",\n"
+                + "  File.expand_path(\"../../../../classpath\", __FILE__))\n";
+
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(data)) {
+            writeTarEntry(out, "classpath/embulk-input-example-0.1.0.jar", jar.toByteArray());
+            writeTarEntry(out, "classpath/dep-1.0.jar", "dep".getBytes(StandardCharsets.UTF_8));
+            writeTarEntry(out, "lib/embulk/input/example.rb", bootstrap.getBytes(StandardCharsets.UTF_8));
+            out.write(new byte[1024]);
+        }
+
+        final String spec = "--- !ruby/object:Gem::Specification\n"
+                + "name: embulk-input-example\n"
+                + "version: !ruby/object:Gem::Version\n"
+                + "  version: 0.1.0\n"
+                + "platform: java\n"
+                + "files:\n"
+                + "- classpath/dep-1.0.jar\n"
+                + "- classpath/embulk-input-example-0.1.0.jar\n"
+                + (broken ? "- classpath/missing.jar\n" : "")
+                + "- lib/embulk/input/example.rb\n"
+                + "require_paths:\n"
+                + "- lib\n";
+        final byte[] metadata = gzip(spec.getBytes(StandardCharsets.UTF_8));
+
+        this.verifiedDigestOfData = sha256(data.toByteArray());
+        final String checksums = "---\n"
+                + "SHA256:\n"
+                + "  metadata.gz: " + sha256(metadata) + "\n"
+                + "  data.tar.gz: " + (broken ? "0000" : this.verifiedDigestOfData) + "\n";
+
+        try (final OutputStream out = Files.newOutputStream(gem)) {
+            writeTarEntry(out, "metadata.gz", metadata);
+            writeTarEntry(out, "data.tar.gz", data.toByteArray());
+            writeTarEntry(out, "checksums.yaml.gz", gzip(checksums.getBytes(StandardCharsets.UTF_8)));
+            out.write(new byte[1024]);
+        }
+        return gem;
+    }
+
+    static void writeTarEntry(final OutputStream out, final String name, final byte[] content) throws IOException {
+        final byte[] header = new byte[512];
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        final byte[] size = String.format("%011o", content.length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = '0';
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    static byte[] gzip(final byte[] content) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(final byte[] content) throws NoSuchAlgorithmException {
+        return GenerateClasspathManifest.toHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private String verifiedDigestOfData;
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGenerateCdsArchive {
+    @Test
+    public void testJvmArgs(@TempDir Path tempDir) {
+        final Path classList = tempDir.resolve("classes.lst");
+        final Path archive = tempDir.resolve("classes.jsa");
+        assertEquals(Arrays.asList("-Xshare:off", "-XX:DumpLoadedClassList=" + classList),
+                     GenerateCdsArchive.classListJvmArgs(classList));
+        assertEquals(Arrays.asList("-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive),
+                     GenerateCdsArchive.archiveDumpJvmArgs(classList, archive));
+        assertEquals(Arrays.asList("-Xshare:auto", "-XX:SharedArchiveFile=" + archive),
+                     GenerateCdsArchive.archiveJvmArgs(archive));
+        assertEquals(Collections.singletonList("-Xshare:auto"), GenerateCdsArchive.archiveJvmArgs(null));
+    }
+
+    @Test
+    public void testPrepareOutputs(@TempDir Path tempDir) throws IOException {
+        final Path classList = tempDir.resolve("cds/classes.lst");
+        final Path archive = tempDir.resolve("cds/classes.jsa");
+
+        // No archive is created without "createsArchive".
+        GenerateCdsArchive.prepareOutputs(classList, null);
+        assertTrue(Files.isDirectory(classList.getParent()));
+        assertFalse(Files.exists(archive));
+
+        // An archive from a previous run is removed not to be taken as the output of a failed dump.
+        Files.write(archive, new byte[] { 1, 2, 3 });
+        GenerateCdsArchive.prepareOutputs(classList, archive);
+        assertFalse(Files.exists(archive));
+    }
+
+    @Test
+    public void testCountClasses(@TempDir Path tempDir) throws IOException {
+        final Path classList = tempDir.resolve("classes.lst");
+        Files.write(classList, Arrays.asList(
+                "# NOTE: Do not modify this file.",
+                "java/lang/Object id: 0",
+                "java/lang/String id: 1",
+                "org/embulk/input/example/ExampleInputPlugin id: 2 super: 0 source: /path/to/embulk-input-example.jar",
+                "@lambda-proxy java/lang/Runnable run ()Ljava/lang/Runnable; ()V REF_invokeStatic Example lambda$0 ()V ()V",
+                ""), StandardCharsets.UTF_8);
+        assertEquals(3, GenerateCdsArchive.countClasses(classList));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGenerateClasspathIndex {
+    @Test
+    public void testIndex(@TempDir Path tempDir) throws IOException {
+        final Path jar1 = TestZipCentralDirectory.createJar(tempDir.resolve("a.jar"),
+                "META-INF/MANIFEST.MF", "org/", "org/example/", "org/example/Foo.class", "org/example/a/A.class", "a.properties");
+        final Path jar2 = TestZipCentralDirectory.createJar(tempDir.resolve("b.jar"),
+                "org/example/Bar.class", "META-INF/services/org.example.Service");
+
+        final Map<Path, TreeSet<String>> index = GenerateClasspathIndex.buildIndex(Arrays.asList(jar1, jar2));
+        assertEquals(Arrays.asList(jar1, jar2), Arrays.asList(index.keySet().toArray()));
+        assertEquals(Arrays.asList("/", "org/example", "org/example/a"), Arrays.asList(index.get(jar1).toArray()));
+        assertEquals(Arrays.asList("META-INF/services", "org/example"), Arrays.asList(index.get(jar2).toArray()));
+
+        final StringWriter written = new StringWriter();
+        try (final PrintWriter writer = new PrintWriter(written)) {
+            GenerateClasspathIndex.write(writer, index);
+        }
+        final Map<String, List<String>> directories = GenerateClasspathIndex.read(Arrays.asList(written.toString().split("\n", -1)));
+        assertEquals(Arrays.asList("a.jar", "b.jar"), directories.get("org/example"));
+        assertEquals(Arrays.asList("a.jar"), directories.get("org/example/a"));
+        assertEquals(Arrays.asList("b.jar"), directories.get("META-INF/services"));
+    }
+}
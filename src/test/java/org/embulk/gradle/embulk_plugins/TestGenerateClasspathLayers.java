@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGenerateClasspathLayers {
+    @Test
+    public void testWrite(@TempDir Path tempDir) throws IOException {
+        final Path release = write(tempDir.resolve("foo-1.0.jar"), "foo");
+        final Path snapshot = write(tempDir.resolve("bar-2.0-SNAPSHOT.jar"), "bar");
+        final Path plugin = write(tempDir.resolve("embulk-input-example-0.1.0.jar"), "plugin");
+
+        final Path destination = tempDir.resolve("layers");
+        final Path stale = write(Files.createDirectories(destination.resolve("dependencies")).resolve("foo-0.9.jar"), "old");
+
+        final LinkedHashMap<Path, String> layers = new LinkedHashMap<>();
+        layers.put(release, GenerateClasspathLayers.DEPENDENCIES);
+        layers.put(snapshot, GenerateClasspathLayers.SNAPSHOT_DEPENDENCIES);
+        layers.put(plugin, GenerateClasspathLayers.PLUGIN);
+        GenerateClasspathLayers.write(layers, destination);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(destination.resolve("dependencies/foo-1.0.jar")));
+        assertTrue(Files.exists(destination.resolve("snapshot-dependencies/bar-2.0-SNAPSHOT.jar")));
+        assertTrue(Files.exists(destination.resolve("plugin/embulk-input-example-0.1.0.jar")));
+        assertEquals("plugin", new String(
+                Files.readAllBytes(destination.resolve("plugin/embulk-input-example-0.1.0.jar")), StandardCharsets.UTF_8));
+
+        for (final String layer : GenerateClasspathLayers.LAYERS) {
+            assertEquals(GenerateClasspathLayers.FIXED_TIME, Files.getLastModifiedTime(destination.resolve(layer)));
+        }
+        assertEquals(GenerateClasspathLayers.FIXED_TIME, Files.getLastModifiedTime(destination.resolve("dependencies/foo-1.0.jar")));
+    }
+
+    private static Path write(final Path path, final String content) throws IOException {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGenerateClasspathManifest {
+    @Test
+    public void testSha256(@TempDir Path tempDir) throws IOException {
+        final Path file = tempDir.resolve("abc.txt");
+        Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+        // FIPS 180-2, Appendix B.1.
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", GenerateClasspathManifest.sha256(file));
+
+        final Path empty = tempDir.resolve("empty.txt");
+        Files.write(empty, new byte[0]);
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", GenerateClasspathManifest.sha256(empty));
+    }
+
+    @Test
+    public void testInClasspathOrder(@TempDir Path tempDir) throws IOException {
+        final Path runtime = Files.createDirectories(tempDir.resolve("runtime"));
+        final Path staged = Files.createDirectories(tempDir.resolve("staged"));
+        for (final String name : Arrays.asList("a.jar", "b.jar", "c.jar", "d.jar")) {
+            TestZipCentralDirectory.createJar(runtime.resolve(name), "content");
+        }
+        // Staged JARs have the same file names in another directory, except for merged ones.
+        for (final String name : Arrays.asList("a.jar", "d.jar", "other.jar")) {
+            TestZipCentralDirectory.createJar(staged.resolve(name), "content");
+        }
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Embulk-Plugin-Merged-Classpath", "b.jar c.jar");
+        try (final JarOutputStream out = new JarOutputStream(Files.newOutputStream(staged.resolve("merged.jar")), manifest)) {
+            out.putNextEntry(new ZipEntry("content"));
+            out.closeEntry();
+        }
+        Files.createDirectories(staged.resolve("directory"));
+
+        final List<File> jars = GenerateClasspathManifest.inClasspathOrder(
+                Arrays.asList(staged.resolve("other.jar").toFile(), staged.resolve("d.jar").toFile(),
+                              staged.resolve("directory").toFile(), staged.resolve("merged.jar").toFile(),
+                              staged.resolve("a.jar").toFile()),
+                Arrays.asList(runtime.resolve("a.jar").toFile(), runtime.resolve("b.jar").toFile(),
+                              runtime.resolve("c.jar").toFile(), runtime.resolve("d.jar").toFile()));
+        // The merged JAR takes the place of "b.jar", and unknown JARs follow.
+        assertEquals(Arrays.asList(staged.resolve("a.jar").toFile(), staged.resolve("merged.jar").toFile(),
+                                   staged.resolve("d.jar").toFile(), staged.resolve("other.jar").toFile()),
+                     jars);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestGenerateInstrumentation {
+    @Test
+    public void testWrapperClassName() {
+        assertEquals("org.example.EmbulkInstrumentedFooOutputPlugin",
+                     GenerateInstrumentation.wrapperClassName("org.example.FooOutputPlugin"));
+        assertEquals("org.example.EmbulkInstrumentedOuter_FooOutputPlugin",
+                     GenerateInstrumentation.wrapperClassName("org.example.Outer$FooOutputPlugin"));
+        assertEquals("EmbulkInstrumentedFooOutputPlugin",
+                     GenerateInstrumentation.wrapperClassName("FooOutputPlugin"));
+    }
+
+    @Test
+    public void testNoSpiInterface() {
+        assertTrue(GenerateInstrumentation.spiInterfacesOf(ArrayList.class).isEmpty());
+        assertThrows(GradleException.class, () -> GenerateInstrumentation.generateSource(ArrayList.class, "output.foo"));
+    }
+
+    @Test
+    public void testGenerateAndCompile(@TempDir Path tempDir) throws Exception {
+        // A minimal Embulk SPI with a nested interface, a generic method, and a method returning another SPI interface.
+        final Path sources = tempDir.resolve("src");
+        write(sources.resolve("org/embulk/spi/FooPlugin.java"),
+              "package org.embulk.spi;",
+              "public interface FooPlugin {",
+              "    interface Control {",
+              "        java.util.List<String> run(String name);",
+              "    }",
+              "    java.util.List<String> transaction(java.util.Map<String, Integer> config, Control control);",
+              "    <T> T cast(Object value, Class<T> type);",
+              "    BarPlugin open() throws java.io.IOException;",
+              "}");
+        write(sources.resolve("org/embulk/spi/BarPlugin.java"),
+              "package org.embulk.spi;",
+              "public interface BarPlugin {",
+              "    String name();",
+              "}");
+        write(sources.resolve("org/example/FooOutputPlugin.java"),
+              "package org.example;",
+              "public class FooOutputPlugin implements org.embulk.spi.FooPlugin {",
+              "    public java.util.List<String> transaction(final java.util.Map<String, Integer> config, final Control control) {",
+              "        return control.run(\"foo\");",
+              "    }",
+              "    public <T> T cast(final Object value, final Class<T> type) {",
+              "        return type.cast(value);",
+              "    }",
+              "    public org.embulk.spi.BarPlugin open() {",
+              "        return () -> \"bar\";",
+              "    }",
+              "}");
+        final Path classes = tempDir.resolve("classes");
+        compile(classes, classes, sources.resolve("org/embulk/spi/FooPlugin.java"),
+                sources.resolve("org/embulk/spi/BarPlugin.java"), sources.resolve("org/example/FooOutputPlugin.java"));
+
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, null)) {
+            final Class<?> mainClass = Class.forName("org.example.FooOutputPlugin", false, classLoader);
+            final String source = GenerateInstrumentation.generateSource(mainClass, "output.foo");
+            assertTrue(source.contains("public final class EmbulkInstrumentedFooOutputPlugin implements org.embulk.spi.FooPlugin {"));
+            assertTrue(source.contains("java.util.List<java.lang.String> transaction("
+                                               + "final java.util.Map<java.lang.String, java.lang.Integer> arg0, "
+                                               + "final org.embulk.spi.FooPlugin.Control arg1)"));
+
+            final Path wrapper = sources.resolve("org/example/EmbulkInstrumentedFooOutputPlugin.java");
+            write(wrapper, source);
+            compile(classes, classes, wrapper);
+        }
+
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, null)) {
+            final Class<?> wrapperClass = Class.forName(
+                    GenerateInstrumentation.wrapperClassName("org.example.FooOutputPlugin"), true, classLoader);
+            final Object instance = wrapperClass.getConstructor().newInstance();
+            assertEquals("bar", wrapperClass.getMethod("cast", Object.class, Class.class).invoke(instance, "bar", String.class));
+            final Object opened = wrapperClass.getMethod("open").invoke(instance);
+            assertEquals("bar", opened.getClass().getMethod("name").invoke(opened));
+        }
+    }
+
+    private static void write(final Path path, final String... lines) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private static void compile(final Path destination, final Path classpath, final Path... sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Files.createDirectories(destination);
+        final ArrayList<String> arguments = new ArrayList<>(Arrays.asList(
+                "-d", destination.toString(), "-classpath", classpath.toString(), "-encoding", "UTF-8"));
+        for (final Path source : sources) {
+            arguments.add(source.toString());
+        }
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestInstallLocal {
+    @Test
+    public void testM2Path() {
+        assertEquals("org/embulk/embulk-input-example/0.1.0/embulk-input-example-0.1.0.jar",
+                     InstallLocal.m2Path("org.embulk", "embulk-input-example", "0.1.0", null, "jar"));
+        assertEquals("org/embulk/embulk-input-example/0.1.0/embulk-input-example-0.1.0.pom",
+                     InstallLocal.m2Path("org.embulk", "embulk-input-example", "0.1.0", "", "pom"));
+        assertEquals("com/github/jnr/jffi/1.2.23/jffi-1.2.23-native.jar",
+                     InstallLocal.m2Path("com.github.jnr", "jffi", "1.2.23", "native", "jar"));
+    }
+
+    @Test
+    public void testPluginProperty() {
+        assertEquals("plugins.input.example=maven:org.embulk:example:0.1.0",
+                     InstallLocal.pluginProperty("input", "example", "org.embulk", "embulk-input-example", "0.1.0"));
+    }
+
+    @Test
+    public void testInstallOnlyChanged(@TempDir Path tempDir) throws IOException {
+        final Path source = Files.write(tempDir.resolve("foo-1.0.jar"), "foo".getBytes(StandardCharsets.UTF_8));
+        final Path target = tempDir.resolve("m2/org/example/foo/1.0/foo-1.0.jar");
+
+        assertTrue(InstallLocal.install(source, target));
+        assertEquals("foo", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertFalse(InstallLocal.install(source, target));
+
+        // A rebuilt file replaces the installed one.
+        Files.delete(source);
+        Files.write(source, "foo2".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(target).toMillis() + 2000L));
+        assertTrue(InstallLocal.install(source, target));
+        assertEquals("foo2", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertFalse(InstallLocal.install(source, target));
+        assertFalse(Files.exists(target.resolveSibling("foo-1.0.jar.installing")));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestJarEntryOrder {
+    @Test
+    public void testReadTrace(@TempDir Path tempDir) throws IOException {
+        final Path trace = tempDir.resolve("trace.txt");
+        Files.write(trace, Arrays.asList(
+                "# comment",
+                "org.example.A",
+                "org/example/B",
+                "[0.012s][info][class,load] org.example.C source: file:/tmp/a.jar",
+                "[Loaded org.example.D from file:/tmp/a.jar]",
+                "org.example.A"), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("org/example/A.class", "org/example/B.class", "org/example/C.class", "org/example/D.class"),
+                     JarEntryOrder.readTrace(trace));
+    }
+
+    @Test
+    public void testReorder(@TempDir Path tempDir) throws IOException {
+        final Random random = new Random(42L);
+        final Path jar = tempDir.resolve("main.jar");
+        final ArrayList<byte[]> contents = new ArrayList<>();
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            for (int i = 0; i < 20; i++) {
+                final byte[] content = new byte[6000];  // Random bytes are not compressed.
+                random.nextBytes(content);
+                contents.add(content);
+                out.putNextEntry(new ZipEntry("org/example/C" + i + ".class"));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+
+        final List<String> traced = Arrays.asList("org/example/C15.class", "org/example/C3.class", "org/example/C9.class");
+        final JarEntryOrder order = JarEntryOrder.reorder(jar, traced);
+        assertEquals(3, order.getNumberOfTracedEntries());
+        assertTrue(order.getColdReadBytesAfter() < order.getColdReadBytesBefore());
+
+        try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+            final ArrayList<String> names = new ArrayList<>();
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(21, names.size());
+            assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "org/example/C15.class", "org/example/C3.class", "org/example/C9.class"),
+                         names.subList(0, 4));
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("org/example/C9.class"))) {
+                assertArrayEquals(contents.get(9), ReachabilityAnalysis.readAllBytes(in));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestJarStore {
+    @Test
+    public void testMaterialize(@TempDir Path tempDir) throws IOException {
+        final JarStore store = JarStore.open(tempDir.resolve("store"));
+        final Path jar1 = Files.write(tempDir.resolve("project1-foo-1.0.jar"), "foo".getBytes(StandardCharsets.UTF_8));
+        final Path jar2 = Files.write(tempDir.resolve("project2-foo-1.0.jar"), "foo".getBytes(StandardCharsets.UTF_8));
+
+        final Path target1 = Files.createDirectories(tempDir.resolve("project1/classpath")).resolve("foo-1.0.jar");
+        final Path target2 = Files.createDirectories(tempDir.resolve("project2/classpath")).resolve("foo-1.0.jar");
+        store.materialize(jar1, target1);
+        store.materialize(jar2, target2);
+        store.materialize(jar1, target1);
+
+        assertEquals(1, store.getMisses());
+        assertEquals(2, store.getHits());
+        assertEquals(1, store.getStoredJars());
+        // 3 bytes of the JAR, and 64 bytes of the digest for each of 2 keys.
+        assertEquals(3L + 64L * 2, store.getStoredBytes());
+        assertArrayEquals("foo".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target1));
+        assertArrayEquals("foo".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target2));
+
+        // The digest is cached by the path, the size, and the modified time.
+        assertEquals(GenerateClasspathManifest.sha256(jar1), store.digest(jar1));
+        try (final Stream<Path> keys = Files.list(tempDir.resolve("store/keys"))) {
+            assertEquals(2L, keys.count());
+        }
+    }
+
+    @Test
+    public void testEvict(@TempDir Path tempDir) throws IOException {
+        final JarStore store = JarStore.open(tempDir.resolve("store"));
+        final Path old = store.put(Files.write(tempDir.resolve("old.jar"), "old-content".getBytes(StandardCharsets.UTF_8)));
+        final Path recent = store.put(Files.write(tempDir.resolve("recent.jar"), "recent".getBytes(StandardCharsets.UTF_8)));
+        Files.setLastModifiedTime(old, FileTime.fromMillis(1000L));
+        Files.setLastModifiedTime(recent, FileTime.fromMillis(2000L));
+
+        // 11 + 6 bytes of the JARs, and 64 bytes of the digest for each of 2 keys.
+        assertEquals(0, store.evict(200L));
+        assertEquals(1, store.evict(80L));
+        assertTrue(Files.notExists(old));
+        assertTrue(Files.exists(recent));
+        // The key of the evicted JAR is removed together.
+        try (final Stream<Path> keys = Files.list(tempDir.resolve("store/keys"))) {
+            assertEquals(1L, keys.count());
+        }
+        assertEquals(6L + 64L, store.getStoredBytes());
+        assertEquals(GenerateClasspathManifest.sha256(tempDir.resolve("recent.jar")), store.digest(tempDir.resolve("recent.jar")));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestMergeClasspath {
+    @Test
+    public void testMergeSmallJars(@TempDir Path tempDir) throws IOException {
+        // The same content for the same name with TestZipCentralDirectory.createJar.
+        final Path jar1 = TestZipCentralDirectory.createJar(tempDir.resolve("a.jar"),
+                "org/example/a/A.class", "org/example/common/C.class", "META-INF/services/org.example.Service");
+        final Path jar2 = TestZipCentralDirectory.createJar(tempDir.resolve("b.jar"),
+                "org/example/b/B.class", "org/example/common/C.class", "META-INF/services/org.example.Service");
+        // A small JAR conflicting with a large JAR, which is not merged.
+        final Path jar3 = tempDir.resolve("c.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar3))) {
+            out.putNextEntry(new ZipEntry("org/example/e/E.class"));
+            out.write("different content".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        final Path jar4 = TestZipCentralDirectory.createJar(tempDir.resolve("d.jar"),
+                "org/example/d/D1.class", "org/example/d/D2.class", "org/example/d/D3.class", "org/example/d/D4.class");
+        final long threshold = Files.size(jar4);
+        final Path jar5 = TestZipCentralDirectory.createJar(tempDir.resolve("e.jar"),
+                "org/example/e/E.class", "org/example/e/E1.class", "org/example/e/E2.class", "org/example/e/E3.class",
+                "org/example/e/E4.class");
+
+        final HashMap<String, String> coordinates = new HashMap<>();
+        coordinates.put("a.jar", "org.example:a:1.0");
+        coordinates.put("b.jar", "org.example:b:2.0");
+
+        final Path merged = tempDir.resolve("merged.jar");
+        final MergeClasspath.Merged result = MergeClasspath.mergeSmallJars(
+                Arrays.asList(jar1, jar3, jar4, jar2, jar5), threshold, merged, coordinates);
+        assertEquals(Arrays.asList(jar1, jar2), result.getMerged());
+        assertEquals(Arrays.asList(jar3, jar4, jar5), result.getRemaining());
+        // The merged JAR is at the place of its first merged JAR.
+        assertEquals(Arrays.asList(merged, jar3, jar4, jar5), result.getClasspath());
+        assertEquals("a.jar", MergeClasspath.firstMergedJarName(merged));
+        assertNull(MergeClasspath.firstMergedJarName(jar5));
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(merged.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(Arrays.asList(
+                    "META-INF/MANIFEST.MF",
+                    "META-INF/services/org.example.Service",
+                    "org/example/a/A.class",
+                    "org/example/common/C.class",
+                    "org/example/b/B.class"), names);
+
+            try (final ZipFile source = new ZipFile(jar1.toFile())) {
+                assertEquals(source.getEntry("org/example/a/A.class").getTime(), zipFile.getEntry("org/example/a/A.class").getTime());
+            }
+
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/services/org.example.Service"))) {
+                assertEquals("content of META-INF/services/org.example.Service\ncontent of META-INF/services/org.example.Service\n",
+                             new String(ReachabilityAnalysis.readAllBytes(in), StandardCharsets.UTF_8));
+            }
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/MANIFEST.MF"))) {
+                final Manifest manifest = new Manifest(in);
+                assertEquals("a.jar b.jar", manifest.getMainAttributes().getValue("Embulk-Plugin-Merged-Classpath"));
+                assertEquals("org.example:b:2.0", manifest.getAttributes("b.jar").getValue("Embulk-Plugin-Artifact"));
+            }
+        }
+    }
+
+    @Test
+    public void testMergeDifferentLicenses(@TempDir Path tempDir) throws IOException {
+        final Path jar1 = tempDir.resolve("a.jar");
+        final Path jar2 = tempDir.resolve("b.jar");
+        for (final Path jar : Arrays.asList(jar1, jar2)) {
+            try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new ZipEntry("META-INF/LICENSE"));
+                out.write(("license of " + jar.getFileName()).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("META-INF/NOTICE"));
+                out.write("the same notice".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+                out.putNextEntry(new ZipEntry("org/example/" + jar.getFileName() + "/A.class"));
+                out.write("content".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        final Path merged = tempDir.resolve("merged.jar");
+        final MergeClasspath.Merged result = MergeClasspath.mergeSmallJars(
+                Arrays.asList(jar1, jar2), 65536L, merged, new HashMap<>());
+        assertEquals(Arrays.asList(jar1, jar2), result.getMerged());
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(merged.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(Arrays.asList(
+                    "META-INF/MANIFEST.MF",
+                    "META-INF/LICENSE",
+                    "META-INF/NOTICE",
+                    "org/example/a.jar/A.class",
+                    "META-INF/LICENSE.b.jar",
+                    "org/example/b.jar/A.class"), names);
+
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/LICENSE.b.jar"))) {
+                assertEquals("license of b.jar", new String(ReachabilityAnalysis.readAllBytes(in), StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
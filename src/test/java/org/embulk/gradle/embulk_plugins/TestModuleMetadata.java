@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.embulk.gradle.embulk_plugins.Util.prepareProjectDir;
+import static org.embulk.gradle.embulk_plugins.Util.runGradle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import groovy.json.JsonSlurper;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests flattened Gradle Module Metadata in the Embulk plugins Gradle plugin.
+ *
+ * <p>This test is tentatively disabled on Windows. {@code GradleRunner} may keep some related files open.
+ * It prevents JUnit 5 from removing the temporary directory ({@code TempDir}).
+ *
+ * @see <a href="https://github.com/embulk/gradle-embulk-plugins/runs/719452273">A failed test</a>
+ */
+class TestModuleMetadata {
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    @SuppressWarnings("unchecked")
+    public void test(@TempDir Path tempDir) throws IOException {
+        final Path projectDir = prepareProjectDir(tempDir, "testModuleMetadata");
+
+        runGradle(projectDir, "publishEmbulkPluginMavenPublicationToMavenRepository");
+
+        final Path versionDir = projectDir.resolve("build/mavenPublishLocal/org/embulk/input/test_module/embulk-input-test_module/0.3.1");
+        final Path modulePath = versionDir.resolve("embulk-input-test_module-0.3.1.module");
+        assertTrue(Files.exists(modulePath));
+
+        System.out.println("Generated Gradle Module Metadata :");
+        System.out.println("============================================================");
+        for (final String line : Files.readAllLines(modulePath, StandardCharsets.UTF_8)) {
+            System.out.println(line);
+        }
+        System.out.println("============================================================");
+
+        final Map<String, Object> root;
+        try (final Reader reader = Files.newBufferedReader(modulePath, StandardCharsets.UTF_8)) {
+            root = (Map<String, Object>) new JsonSlurper().parse(reader);
+        }
+
+        for (final Map<String, Object> variant : (List<Map<String, Object>>) root.get("variants")) {
+            final Map<String, Object> attributes = (Map<String, Object>) variant.get("attributes");
+            final String usage = (String) attributes.get("org.gradle.usage");
+            if (!"java-api".equals(usage) && !"java-runtime".equals(usage)) {
+                continue;
+            }
+
+            assertFalse(variant.containsKey("dependencyConstraints"));
+            final List<Map<String, Object>> dependencies = (List<Map<String, Object>>) variant.get("dependencies");
+            final List<String> modules = dependencies.stream()
+                    .map(dependency -> dependency.get("group") + ":" + dependency.get("module"))
+                    .collect(Collectors.toList());
+
+            // "compileOnly" dependencies are "provided" in pom.xml, and they are not in Gradle Module Metadata.
+            assertFalse(modules.contains("org.embulk:embulk-api"));
+            assertFalse(modules.contains("org.embulk:embulk-spi"));
+
+            // "org.apache.commons:commons-lang3" is a transitive dependency of "commons-text", to be flattened.
+            assertTrue(modules.contains("org.apache.commons:commons-text"));
+            assertTrue(modules.contains("org.apache.commons:commons-lang3"));
+            assertEquals(2, modules.stream().filter(module -> module.equals("com.github.jnr:jffi")).count());
+
+            for (final Map<String, Object> dependency : dependencies) {
+                final List<Map<String, Object>> excludes = (List<Map<String, Object>>) dependency.get("excludes");
+                assertEquals(1, excludes.size());
+                assertEquals("*", excludes.get(0).get("group"));
+                assertEquals("*", excludes.get(0).get("module"));
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.embulk.gradle.embulk_plugins.Util.assertFileDoesContain;
+import static org.embulk.gradle.embulk_plugins.Util.assertFileDoesNotContain;
+import static org.embulk.gradle.embulk_plugins.Util.assertSingleTextContentByTagName;
+import static org.embulk.gradle.embulk_plugins.Util.getSingleElementByTagName;
+import static org.embulk.gradle.embulk_plugins.Util.prepareProjectDir;
+import static org.embulk.gradle.embulk_plugins.Util.runGradle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests {@code providesEmbulkCoreArtifacts} and {@code checkEmbulkCoreOverlap} in the Embulk plugins Gradle plugin.
+ *
+ * <p>This test is tentatively disabled on Windows. {@code GradleRunner} may keep some related files open.
+ * It prevents JUnit 5 from removing the temporary directory ({@code TempDir}).
+ */
+class TestProvidesEmbulkCoreArtifacts {
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void test(@TempDir Path tempDir) throws IOException {
+        final Path projectDir = prepareProjectDir(tempDir, "testProvidesEmbulkCoreArtifacts");
+
+        runGradle(projectDir, "checkEmbulkCoreOverlap", "publishEmbulkPluginMavenPublicationToMavenRepository", "gem");
+
+        // The overlap report lists artifacts in runtimeClasspath overlapping with Embulk core.
+        final Path reportPath = projectDir.resolve("build/reports/embulk/embulkCoreOverlap.txt");
+        for (final String line : Files.readAllLines(reportPath, StandardCharsets.UTF_8)) {
+            System.out.println(line);
+        }
+        assertFileDoesContain(reportPath, "org.msgpack:msgpack-core:0.8.11 (msgpack-core-0.8.11.jar, ");
+        assertFileDoesContain(reportPath, "org.slf4j:slf4j-api:1.7.30 (slf4j-api-1.7.30.jar, ");
+        assertFileDoesContain(reportPath, "Total: 2 artifact(s), ");
+        assertFileDoesNotContain(reportPath, "commons-lang");
+
+        // Overlapping artifacts are not staged in the gem.
+        assertTrue(Files.exists(projectDir.resolve("build/gemContents/classpath/embulk-input-provided-0.1.0.jar")));
+        assertTrue(Files.exists(projectDir.resolve("build/gemContents/classpath/commons-lang-2.6.jar")));
+        assertFalse(Files.exists(projectDir.resolve("build/gemContents/classpath/msgpack-core-0.8.11.jar")));
+        assertFalse(Files.exists(projectDir.resolve("build/gemContents/classpath/slf4j-api-1.7.30.jar")));
+
+        // Overlapping artifacts are "provided" in pom.xml.
+        final Path pomPath = projectDir.resolve(
+                "build/mavenPublishLocal/org/embulk/input/provided/embulk-input-provided/0.1.0/embulk-input-provided-0.1.0.pom");
+        System.out.println("Generated POM :");
+        System.out.println("============================================================");
+        for (final String line : Files.readAllLines(pomPath, StandardCharsets.UTF_8)) {
+            System.out.println(line);
+        }
+        System.out.println("============================================================");
+
+        final Document document;
+        try (final InputStream pomStream = Files.newInputStream(pomPath)) {
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pomStream);
+        } catch (final ParserConfigurationException | SAXException ex) {
+            throw new IOException(ex);
+        }
+
+        final Element dependencies = getSingleElementByTagName(document.getDocumentElement(), "dependencies");
+        final NodeList dependencyEach = dependencies.getElementsByTagName("dependency");
+        final HashMap<String, Element> byArtifactId = new HashMap<>();
+        for (int i = 0; i < dependencyEach.getLength(); i++) {
+            final Element dependency = (Element) dependencyEach.item(i);
+            byArtifactId.put(getSingleElementByTagName(dependency, "artifactId").getTextContent(), dependency);
+        }
+        assertEquals(3, byArtifactId.size());
+
+        assertSingleTextContentByTagName("org.msgpack", byArtifactId.get("msgpack-core"), "groupId");
+        assertSingleTextContentByTagName("0.8.11", byArtifactId.get("msgpack-core"), "version");
+        assertSingleTextContentByTagName("provided", byArtifactId.get("msgpack-core"), "scope");
+
+        assertSingleTextContentByTagName("org.slf4j", byArtifactId.get("slf4j-api"), "groupId");
+        assertSingleTextContentByTagName("1.7.30", byArtifactId.get("slf4j-api"), "version");
+        assertSingleTextContentByTagName("provided", byArtifactId.get("slf4j-api"), "scope");
+
+        assertSingleTextContentByTagName("commons-lang", byArtifactId.get("commons-lang"), "groupId");
+        assertSingleTextContentByTagName("2.6", byArtifactId.get("commons-lang"), "version");
+        assertSingleTextContentByTagName("compile", byArtifactId.get("commons-lang"), "scope");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestPruneMultiReleaseJars {
+    @Test
+    public void testPrune(@TempDir Path tempDir) throws IOException {
+        final Path jar = tempDir.resolve("mr.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().putValue("Multi-Release", "true");
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            manifest.write(out);
+            out.closeEntry();
+            for (final String name : Arrays.asList(
+                    "org/example/A.class",
+                    "org/example/B.class",
+                    "META-INF/versions/9/org/example/A.class",
+                    "META-INF/versions/11/org/example/A.class",
+                    "META-INF/versions/11/org/example/C.class",
+                    "META-INF/versions/17/org/example/A.class",
+                    "META-INF/versions/17/org/example/B.class")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(("content of " + name).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+
+        final Path pruned = tempDir.resolve("mr-pruned.jar");
+        final PruneMultiReleaseJars.Pruned result = PruneMultiReleaseJars.prune(jar, pruned, 11);
+        assertEquals(3, result.getRemovedVariants());  // 9/A replaced by 11/A, 17/A, 17/B
+        assertEquals(2, result.getVersionedLookups());  // 9 and 11
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(pruned.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "org/example/A.class", "org/example/B.class", "org/example/C.class"), names);
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("org/example/A.class"))) {
+                assertEquals("content of META-INF/versions/11/org/example/A.class",
+                             new String(ReachabilityAnalysis.readAllBytes(in), StandardCharsets.UTF_8));
+            }
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/MANIFEST.MF"))) {
+                assertNull(new Manifest(in).getMainAttributes().getValue("Multi-Release"));
+            }
+        }
+    }
+
+    @Test
+    public void testNotMultiRelease(@TempDir Path tempDir) throws IOException {
+        final Path jar = TestZipCentralDirectory.createJar(tempDir.resolve("a.jar"),
+                "org/example/A.class", "META-INF/versions/11/org/example/A.class");
+        final Path copied = tempDir.resolve("a-copied.jar");
+        assertNull(PruneMultiReleaseJars.prune(jar, copied, 11));
+        assertEquals(Files.size(jar), Files.size(copied));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestReachabilityAnalysis {
+    @Test
+    public void testClassReferences() throws IOException {
+        final Set<String> references = ClassReferences.read(readClass(Root.class));
+        assertTrue(references.contains(internalName(Referenced.class)));
+        assertTrue(references.contains(internalName(Service.class)));
+        assertFalse(references.contains(internalName(Unreferenced.class)));
+    }
+
+    @Test
+    public void testDescriptor() {
+        final LinkedHashSet<String> references = new LinkedHashSet<>();
+        ClassReferences.addFromDescriptor("(Ljava/util/List<Lorg/example/Foo;>;[Lorg/example/Bar;I)Lorg/example/Baz;", references);
+        assertEquals(Arrays.asList("java/util/List", "org/example/Foo", "org/example/Bar", "org/example/Baz"),
+                     Arrays.asList(references.toArray()));
+    }
+
+    @Test
+    public void testAnalyze(@TempDir Path tempDir) throws IOException {
+        final Path main = createJar(tempDir.resolve("main.jar"), Root.class, Referenced.class, Service.class);
+        final Path unreachable = createJar(tempDir.resolve("unreachable.jar"), Unreferenced.class);
+        final Path service = createServiceJar(tempDir.resolve("service.jar"), Service.class, ServiceImpl.class);
+
+        final ReachabilityAnalysis analysis = ReachabilityAnalysis.analyze(
+                Arrays.asList(main, unreachable, service), Collections.singletonList(internalName(Root.class)));
+        assertEquals(3, analysis.getNumberOfClasses(main));
+        assertEquals(3, analysis.getNumberOfReachableClasses(main));
+        assertEquals(1, analysis.getNumberOfReachableClasses(service));
+        assertEquals(Collections.singletonList(unreachable), analysis.getUnreachableJars());
+
+        // A package prefix as a root, such as for classes loaded through reflection.
+        final ReachabilityAnalysis withPrefix = ReachabilityAnalysis.analyze(
+                Arrays.asList(main, unreachable, service),
+                Arrays.asList(AnalyzeReachability.toInternalName(Root.class.getPackage().getName() + ".*")));
+        assertEquals(Collections.emptyList(), withPrefix.getUnreachableJars());
+
+        // A service interface not in the JARs, such as java.sql.Driver in the JDK.
+        final Path jdkMain = createJar(tempDir.resolve("jdk-main.jar"), JdkServiceRoot.class);
+        final Path jdkService = createServiceJar(tempDir.resolve("jdk-service.jar"), Runnable.class, RunnableImpl.class);
+        final ReachabilityAnalysis withJdkService = ReachabilityAnalysis.analyze(
+                Arrays.asList(jdkMain, jdkService), Collections.singletonList(internalName(JdkServiceRoot.class)));
+        assertEquals(1, withJdkService.getNumberOfReachableClasses(jdkService));
+        assertEquals(Collections.emptyList(), withJdkService.getUnreachableJars());
+    }
+
+    @Test
+    public void testToInternalName() {
+        assertEquals("org/example/Foo", AnalyzeReachability.toInternalName("org.example.Foo"));
+        assertEquals("org/example/", AnalyzeReachability.toInternalName("org.example.*"));
+    }
+
+    interface Service {
+    }
+
+    static class ServiceImpl implements Service {
+    }
+
+    static class RunnableImpl implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    static class JdkServiceRoot {
+        Runnable runnable;
+    }
+
+    static class Referenced {
+    }
+
+    static class Unreferenced {
+    }
+
+    static class Root {
+        Referenced referenced;
+
+        Service service;
+    }
+
+    private static String internalName(final Class<?> klass) {
+        return klass.getName().replace('.', '/');
+    }
+
+    private static byte[] readClass(final Class<?> klass) throws IOException {
+        try (final InputStream in = klass.getResourceAsStream("/" + internalName(klass) + ".class")) {
+            return ReachabilityAnalysis.readAllBytes(in);
+        }
+    }
+
+    private static Path createJar(final Path path, final Class<?>... classes) throws IOException {
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (final Class<?> klass : classes) {
+                out.putNextEntry(new ZipEntry(internalName(klass) + ".class"));
+                out.write(readClass(klass));
+                out.closeEntry();
+            }
+        }
+        return path;
+    }
+
+    private static Path createServiceJar(final Path path, final Class<?> service, final Class<?> implementation) throws IOException {
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            out.putNextEntry(new ZipEntry(internalName(implementation) + ".class"));
+            out.write(readClass(implementation));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("META-INF/services/" + service.getName()));
+            out.write(("# comment\n" + implementation.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestShadedJar {
+    @Test
+    public void testRelocate() {
+        final ClassRelocator relocator = ClassRelocator.of(Collections.singletonMap("com.google", "org.example.shaded.com.google"));
+        assertEquals("(Lorg/example/shaded/com/google/Foo;)Lorg/example/shaded/com/google/Bar;",
+                     relocator.relocate("(Lcom/google/Foo;)Lcom/google/Bar;"));
+        assertEquals("org.example.shaded.com.google.Foo", relocator.relocate("com.google.Foo"));
+        // Not in the middle of another name.
+        assertEquals("org.example.shaded.com.google.Foo", relocator.relocate("org.example.shaded.com.google.Foo"));
+        assertEquals("Lxcom/google/Foo;", relocator.relocate("Lxcom/google/Foo;"));
+        assertEquals("com.googleapis.Foo", relocator.relocate("com.googleapis.Foo"));
+    }
+
+    @Test
+    public void testShade(@TempDir Path tempDir) throws Exception {
+        final Path main = tempDir.resolve("main.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(main))) {
+            addClass(out, Root.class);
+            addEntry(out, "META-INF/LICENSE", "main license");
+        }
+        final Path dependency = tempDir.resolve("dependency-1.0.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dependency))) {
+            addEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+            addEntry(out, "META-INF/LICENSE", "dependency license");
+            addEntry(out, "META-INF/services/" + Service.class.getName(), ServiceImpl.class.getName());
+            addClass(out, Referenced.class);
+            addClass(out, Unreferenced.class);
+            addClass(out, Service.class);
+            addClass(out, ServiceImpl.class);
+        }
+
+        final ShadedJar shaded = ShadedJar.shade(
+                main,
+                Collections.singletonList(dependency),
+                Collections.singletonMap(TestShadedJar.class.getPackage().getName(), "shaded"),
+                true);
+        assertEquals(1, shaded.getMinimizedClasses());
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(main.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            try (final InputStream in = zipFile.getInputStream(zipFile.getEntry("META-INF/services/shaded.TestShadedJar$Service"))) {
+                assertEquals("shaded.TestShadedJar$ServiceImpl\n", new String(ReachabilityAnalysis.readAllBytes(in), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(Arrays.asList(
+                "shaded/TestShadedJar$Root.class",
+                "META-INF/LICENSE",
+                "META-INF/LICENSE.dependency-1.0.jar",
+                "shaded/TestShadedJar$Referenced.class",
+                "shaded/TestShadedJar$Service.class",
+                "shaded/TestShadedJar$ServiceImpl.class",
+                "META-INF/services/shaded.TestShadedJar$Service"), names);
+
+        // The relocated classes are linked with each other.
+        try (final URLClassLoader classLoader = new URLClassLoader(new URL[] { main.toUri().toURL() }, null)) {
+            final Class<?> root = classLoader.loadClass("shaded.TestShadedJar$Root");
+            final ArrayList<String> fieldTypes = new ArrayList<>();
+            for (final Field field : root.getDeclaredFields()) {
+                fieldTypes.add(field.getType().getName());
+            }
+            Collections.sort(fieldTypes);
+            assertEquals(Arrays.asList("shaded.TestShadedJar$Referenced", "shaded.TestShadedJar$Service"), fieldTypes);
+        }
+    }
+
+    @Test
+    public void testMinimizeKeepsServiceImplementations(@TempDir Path tempDir) throws Exception {
+        final Path main = tempDir.resolve("main.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(main))) {
+            addClass(out, Root.class);
+        }
+        final Path dependency = tempDir.resolve("dependency-1.0.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dependency))) {
+            // The service interface is not referenced from the main JAR, but it can be loaded through ServiceLoader.
+            addEntry(out, "META-INF/services/" + UnreferencedService.class.getName(), UnreferencedServiceImpl.class.getName() + "\n");
+            addClass(out, Referenced.class);
+            addClass(out, Unreferenced.class);
+            addClass(out, UnreferencedService.class);
+            addClass(out, UnreferencedServiceImpl.class);
+        }
+
+        final ShadedJar shaded = ShadedJar.shade(main, Collections.singletonList(dependency), Collections.emptyMap(), true);
+        assertEquals(1, shaded.getMinimizedClasses());
+
+        try (final ZipFile zipFile = new ZipFile(main.toFile())) {
+            assertNotNull(zipFile.getEntry(UnreferencedService.class.getName().replace('.', '/') + ".class"));
+            assertNotNull(zipFile.getEntry(UnreferencedServiceImpl.class.getName().replace('.', '/') + ".class"));
+            assertNull(zipFile.getEntry(Unreferenced.class.getName().replace('.', '/') + ".class"));
+        }
+    }
+
+    interface Service {
+    }
+
+    interface UnreferencedService {
+    }
+
+    static class UnreferencedServiceImpl implements UnreferencedService {
+    }
+
+    static class ServiceImpl implements Service {
+    }
+
+    static class Referenced {
+    }
+
+    static class Unreferenced {
+    }
+
+    static class Root {
+        Referenced referenced;
+
+        Service service;
+    }
+
+    private static void addClass(final ZipOutputStream out, final Class<?> klass) throws IOException {
+        final String name = klass.getName().replace('.', '/') + ".class";
+        out.putNextEntry(new ZipEntry(name));
+        try (final InputStream in = klass.getResourceAsStream("/" + name)) {
+            out.write(ReachabilityAnalysis.readAllBytes(in));
+        }
+        out.closeEntry();
+    }
+
+    private static void addEntry(final ZipOutputStream out, final String name, final String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
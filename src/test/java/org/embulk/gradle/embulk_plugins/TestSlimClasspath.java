@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestSlimClasspath {
+    @Test
+    public void testRewrite(@TempDir Path tempDir) throws IOException {
+        // The same content for the same name with TestZipCentralDirectory.createJar.
+        final Path jar1 = TestZipCentralDirectory.createJar(tempDir.resolve("a.jar"),
+                "META-INF/MANIFEST.MF", "META-INF/LICENSE", "org/example/a/A.class");
+        final Path jar2 = TestZipCentralDirectory.createJar(tempDir.resolve("b.jar"),
+                "META-INF/MANIFEST.MF",
+                "META-INF/SIGNER.SF",
+                "META-INF/SIGNER.RSA",
+                "META-INF/LICENSE",
+                "META-INF/NOTICE.txt",
+                "META-INF/maven/org.example/b/pom.xml",
+                "META-INF/versions/9/org/example/b/B.class",
+                "META-INF/versions/17/org/example/b/B.class",
+                "org/example/b/B.class");
+
+        final List<Set<String>> licenses = SlimClasspath.findDuplicateLicenses(Arrays.asList(jar1, jar2));
+        assertEquals(Collections.emptySet(), licenses.get(0));
+        assertEquals(Collections.singleton("META-INF/LICENSE"), licenses.get(1));
+
+        final Path slimmed = tempDir.resolve("b-slim.jar");
+        SlimClasspath.rewrite(jar2, slimmed, licenses.get(1));
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(slimmed.toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(Arrays.asList(
+                "META-INF/MANIFEST.MF",
+                "META-INF/NOTICE.txt",
+                "META-INF/versions/9/org/example/b/B.class",
+                "META-INF/versions/17/org/example/b/B.class",
+                "org/example/b/B.class"), names);
+    }
+
+    @Test
+    public void testKeepsSignedAfterPrune(@TempDir Path tempDir) throws IOException {
+        final Path jar = TestZipCentralDirectory.createJar(tempDir.resolve("signed-1.0.jar"),
+                "META-INF/MANIFEST.MF",
+                "META-INF/SIGNER.SF",
+                "META-INF/SIGNER.RSA",
+                "META-INF/versions/9/org/example/s/S.class",
+                "org/example/s/S.class");
+
+        // The copy in the directory of pruneMultiReleaseJars has the same file name, but not the same path.
+        final Path pruned = Files.createDirectories(tempDir.resolve("pruned"));
+        assertNull(PruneMultiReleaseJars.prune(jar, pruned.resolve(jar.getFileName()), 8));
+
+        final Path slimmed = Files.createDirectories(tempDir.resolve("slimmed"));
+        final List<Long> saved = SlimClasspath.slim(
+                Collections.singletonList(pruned.resolve("signed-1.0.jar")), slimmed, Collections.singleton("signed-1.0.jar"));
+        assertEquals(Collections.singletonList(0L), saved);
+
+        final ArrayList<String> names = new ArrayList<>();
+        try (final ZipFile zipFile = new ZipFile(slimmed.resolve("signed-1.0.jar").toFile())) {
+            for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(Arrays.asList(
+                "META-INF/MANIFEST.MF",
+                "META-INF/SIGNER.SF",
+                "META-INF/SIGNER.RSA",
+                "META-INF/versions/9/org/example/s/S.class",
+                "org/example/s/S.class"), names);
+    }
+}
@@ -186,12 +186,13 @@ class TestSubprojects {
         assertSingleTextContentByTagName("provided", dependencyRoot3, "scope");
         assertExcludeAll(dependencyRoot3);
 
+        // project(":sublib") => originally in build.gradle as "implementation", in compileClasspath and runtimeClasspath.
         final Element dependencyRoot4 = (Element) dependenciesRootEach.item(4);
         assertSingleTextContentByTagName("org.embulk.input.test_subprojects", dependencyRoot4, "groupId");
         assertSingleTextContentByTagName("sublib", dependencyRoot4, "artifactId");
         assertSingleTextContentByTagName("0.6.14", dependencyRoot4, "version");
         assertNoElement(dependencyRoot4, "classifier");
-        assertSingleTextContentByTagName("runtime", dependencyRoot4, "scope");
+        assertSingleTextContentByTagName("compile", dependencyRoot4, "scope");
         assertExcludeAll(dependencyRoot4);
 
         final Element dependencyRoot5 = (Element) dependenciesRootEach.item(5);
@@ -299,12 +300,13 @@ class TestSubprojects {
         assertSingleTextContentByTagName("provided", dependencySub3, "scope");
         assertExcludeAll(dependencySub3);
 
+        // project(":sublib") => originally in build.gradle as "implementation", in compileClasspath and runtimeClasspath.
         final Element dependencySub4 = (Element) dependenciesSubEach.item(4);
         assertSingleTextContentByTagName("org.embulk.input.test_subprojects", dependencySub4, "groupId");
         assertSingleTextContentByTagName("sublib", dependencySub4, "artifactId");
         assertSingleTextContentByTagName("0.6.14", dependencySub4, "version");
         assertNoElement(dependencySub4, "classifier");
-        assertSingleTextContentByTagName("runtime", dependencySub4, "scope");
+        assertSingleTextContentByTagName("compile", dependencySub4, "scope");
         assertExcludeAll(dependencySub4);
 
         final Element dependencySub5 = (Element) dependenciesSubEach.item(5);
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 The Embulk project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.embulk.gradle.embulk_plugins;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestZipCentralDirectory {
+    @Test
+    public void testSameAsZipFile(@TempDir Path tempDir) throws IOException {
+        final Path jar = createJar(tempDir.resolve("test.jar"),
+                                   "META-INF/MANIFEST.MF", "org/", "org/example/", "org/example/Foo.class", "org/example/Bar.class");
+
+        final ZipCentralDirectory directory = ZipCentralDirectory.read(jar);
+
+        try (final ZipFile zipFile = new ZipFile(jar.toFile())) {
+            final ArrayList<ZipEntry> expectedEntries = new ArrayList<>();
+            final Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                expectedEntries.add(enumeration.nextElement());
+            }
+
+            assertEquals(expectedEntries.size(), directory.getEntries().size());
+            for (int i = 0; i < expectedEntries.size(); i++) {
+                final ZipEntry expected = expectedEntries.get(i);
+                final ZipCentralDirectory.Entry actual = directory.getEntries().get(i);
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.isDirectory(), actual.isDirectory());
+                assertEquals(expected.getSize(), actual.getSize());
+                assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+                assertEquals(expected.getCrc(), actual.getCrc());
+                assertEquals(expected.getMethod(), actual.getMethod());
+            }
+        }
+    }
+
+    @Test
+    public void testClassIndex(@TempDir Path tempDir) throws IOException {
+        final Path jar1 = createJar(tempDir.resolve("a.jar"),
+                                    "org/example/Foo.class", "org/example/a/A.class", "module-info.class");
+        final Path jar2 = createJar(tempDir.resolve("b.jar"),
+                                    "org/example/Foo.class", "org/example/b/B.class", "META-INF/versions/9/org/example/Foo.class");
+        final Path jar3 = createJar(tempDir.resolve("c.jar"),
+                                    "org/example/a/C.class", "module-info.class");
+
+        final CheckDuplicateClasses.ClassIndex index =
+                CheckDuplicateClasses.ClassIndex.build(Arrays.asList(jar1, jar2, jar3), Collections.emptyList());
+
+        assertEquals(4, index.getNumberOfClasses());
+
+        final Map<String, List<Path>> duplicateClasses = index.getDuplicateClasses();
+        assertEquals(1, duplicateClasses.size());
+        assertEquals(Arrays.asList(jar1, jar2), duplicateClasses.get("org/example/Foo.class"));
+
+        final Map<String, List<Path>> splitPackages = index.getSplitPackages();
+        assertEquals(2, splitPackages.size());
+        assertEquals(Arrays.asList(jar1, jar2), splitPackages.get("org/example"));
+        assertEquals(Arrays.asList(jar1, jar3), splitPackages.get("org/example/a"));
+
+        final CheckDuplicateClasses.ClassIndex ignoring =
+                CheckDuplicateClasses.ClassIndex.build(Arrays.asList(jar1, jar2, jar3), Arrays.asList("org/example/a/"));
+        assertEquals(1, ignoring.getSplitPackages().size());
+    }
+
+    static Path createJar(final Path path, final String... names) throws IOException {
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+            for (final String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                if (!name.endsWith("/")) {
+                    out.write(("content of " + name).getBytes(StandardCharsets.UTF_8));
+                }
+                out.closeEntry();
+            }
+        }
+        return path;
+    }
+}